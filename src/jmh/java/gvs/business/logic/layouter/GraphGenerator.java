@@ -0,0 +1,175 @@
+package gvs.business.logic.layouter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import gvs.model.Edge;
+import gvs.model.Graph;
+import gvs.model.IEdge;
+import gvs.model.IVertex;
+import gvs.model.graph.GraphVertex;
+import gvs.model.tree.LeafVertex;
+import gvs.model.tree.TreeVertex;
+
+/**
+ * Generates graphs of a given size and shape for the layout benchmarks. The
+ * same seed always generates the same graph.
+ * 
+ * @author mwieland
+ *
+ */
+public final class GraphGenerator {
+
+  /**
+   * Shapes of the generated graphs.
+   */
+  public enum Shape {
+    /**
+     * Random edges, two per vertex on average.
+     */
+    RANDOM,
+    /**
+     * Preferential attachment after Barabasi-Albert. Few hubs, many vertices
+     * with a single edge.
+     */
+    SCALE_FREE,
+    /**
+     * Square grid, each vertex connected to its right and lower neighbour.
+     */
+    GRID
+  }
+
+  private static final int EDGES_PER_VERTEX = 2;
+  // parents of the deep tree are picked among the most recent vertices
+  private static final int TREE_WINDOW = 4;
+
+  private GraphGenerator() {
+  }
+
+  /**
+   * Generate a graph with vertices of the graph session type.
+   * 
+   * @param shape
+   *          shape of the graph
+   * @param size
+   *          number of vertices
+   * @param seed
+   *          random seed
+   * @return new graph
+   */
+  public static Graph generate(Shape shape, int size, long seed) {
+    Random random = new Random(seed);
+    List<IVertex> vertices = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      vertices.add(new GraphVertex(i, String.valueOf(i), null, 0, 0, null));
+    }
+
+    List<IEdge> edges;
+    switch (shape) {
+    case SCALE_FREE:
+      edges = scaleFreeEdges(vertices, random);
+      break;
+    case GRID:
+      edges = gridEdges(vertices);
+      break;
+    default:
+      edges = randomEdges(vertices, random);
+    }
+    return new Graph("", vertices, edges);
+  }
+
+  /**
+   * Generate a deep, narrow tree with vertices of the tree session type.
+   * 
+   * @param size
+   *          number of vertices
+   * @param seed
+   *          random seed
+   * @return new tree
+   */
+  public static Graph generateTree(int size, long seed) {
+    Random random = new Random(seed);
+    List<IVertex> vertices = new ArrayList<>(size);
+    List<TreeVertex> treeVertices = new ArrayList<>(size);
+    List<IEdge> edges = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      TreeVertex vertex = new TreeVertex(i, String.valueOf(i), null, false,
+          null);
+      if (i == 0) {
+        vertex.setRoot(true);
+      } else {
+        int window = Math.min(i, TREE_WINDOW);
+        TreeVertex parent = treeVertices.get(i - 1 - random.nextInt(window));
+        parent.addChild(vertex);
+        parent.addChildId(vertex.getId());
+        vertex.setParent(parent);
+        edges.add(new Edge("", null, true, parent, vertex));
+      }
+      vertices.add(vertex);
+      treeVertices.add(vertex);
+    }
+
+    // the tree layouter expects explicit leaves
+    treeVertices.stream().filter(v -> v.getChildren().isEmpty())
+        .forEach(v -> {
+          LeafVertex leaf = new LeafVertex(v.getLabel());
+          v.addChild(leaf);
+          leaf.setParent(v);
+        });
+    return new Graph("", vertices, edges);
+  }
+
+  private static List<IEdge> randomEdges(List<IVertex> vertices,
+      Random random) {
+    int size = vertices.size();
+    List<IEdge> edges = new ArrayList<>(size * EDGES_PER_VERTEX);
+    for (int i = 0; i < size * EDGES_PER_VERTEX; i++) {
+      edges.add(new Edge("", null, false, vertices.get(random.nextInt(size)),
+          vertices.get(random.nextInt(size))));
+    }
+    return edges;
+  }
+
+  private static List<IEdge> scaleFreeEdges(List<IVertex> vertices,
+      Random random) {
+    int size = vertices.size();
+    List<IEdge> edges = new ArrayList<>(size * EDGES_PER_VERTEX);
+    // each edge end is listed once, so picking uniformly from this list
+    // prefers vertices with many edges
+    List<IVertex> edgeEnds = new ArrayList<>(size * EDGES_PER_VERTEX * 2);
+    for (int i = 1; i < size; i++) {
+      IVertex vertex = vertices.get(i);
+      for (int j = 0; j < Math.min(i, EDGES_PER_VERTEX); j++) {
+        IVertex target;
+        if (edgeEnds.isEmpty()) {
+          target = vertices.get(0);
+        } else {
+          target = edgeEnds.get(random.nextInt(edgeEnds.size()));
+        }
+        edges.add(new Edge("", null, false, vertex, target));
+        edgeEnds.add(vertex);
+        edgeEnds.add(target);
+      }
+    }
+    return edges;
+  }
+
+  private static List<IEdge> gridEdges(List<IVertex> vertices) {
+    int size = vertices.size();
+    int columns = (int) Math.ceil(Math.sqrt(size));
+    List<IEdge> edges = new ArrayList<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      if ((i + 1) % columns != 0 && i + 1 < size) {
+        edges.add(new Edge("", null, false, vertices.get(i),
+            vertices.get(i + 1)));
+      }
+      if (i + columns < size) {
+        edges.add(new Edge("", null, false, vertices.get(i),
+            vertices.get(i + columns)));
+      }
+    }
+    return edges;
+  }
+}
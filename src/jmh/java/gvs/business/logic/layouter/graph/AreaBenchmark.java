@@ -0,0 +1,107 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gvs.business.logic.layouter.GraphGenerator;
+import gvs.business.logic.layouter.GraphGenerator.Shape;
+import gvs.model.Graph;
+import gvs.model.graph.GraphVertex;
+
+/**
+ * Measures the force engine of the {@link GraphLayouter}.
+ * 
+ * Run with the gc profiler to see the allocation rate per iteration:
+ * {@code gradle jmh -PjmhArgs="AreaBenchmark -prof gc"}
+ * 
+ * @author mwieland
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AreaBenchmark {
+
+  @Param({ "100", "1000", "10000", "50000" })
+  private int vertices;
+
+  @Param({ "RANDOM", "SCALE_FREE", "GRID" })
+  private Shape shape;
+
+  @Param({ "barnes-hut", "grid" })
+  private String repulsion;
+
+  private Graph graph;
+  private Area area;
+
+  private static final long SEED = 42;
+  private static final double WIDTH = 3000;
+  private static final double HEIGHT = 1500;
+  private static final int MAX_ITERATIONS = 10_000;
+  // stable particles are skipped, so the cost is measured on a fresh layout
+  private static final int ITERATIONS_PER_INVOCATION = 10;
+
+  @Setup(Level.Trial)
+  public void createGraph() {
+    graph = GraphGenerator.generate(shape, vertices, SEED);
+    area = new Area(new AreaDimension(WIDTH, HEIGHT));
+    area.setRepulsionMode(RepulsionMode.byName(repulsion));
+  }
+
+  /**
+   * Every invocation starts from the same placement by {@link PivotMds}, with
+   * the small step of placed particles. The benchmarks measure refining this
+   * placement, not untangling a random one.
+   */
+  @Setup(Level.Invocation)
+  public void loadArea() {
+    graph.getVertices().forEach(v -> ((GraphVertex) v).setStable(false));
+    AreaLoader.load(area, graph);
+  }
+
+  /**
+   * Cost of a single iteration.
+   * 
+   * @return area, so the computation is not eliminated
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OperationsPerInvocation(ITERATIONS_PER_INVOCATION)
+  public Area iteration() {
+    for (int i = 0; i < ITERATIONS_PER_INVOCATION; i++) {
+      area.updateAll();
+    }
+    return area;
+  }
+
+  /**
+   * Time until the layout refined from the placement converged. See
+   * {@link Area#getIterations()} for the number of iterations.
+   * 
+   * @return area, so the computation is not eliminated
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Measurement(iterations = 3)
+  public Area converge() {
+    while (!area.isStable() && area.getIterations() < MAX_ITERATIONS) {
+      area.updateAll();
+    }
+    return area;
+  }
+}
@@ -0,0 +1,60 @@
+package gvs.business.logic.layouter.tree;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gvs.business.logic.layouter.GraphGenerator;
+import gvs.model.Graph;
+
+/**
+ * Measures the {@link TreeLayouter} on deep trees.
+ * 
+ * @author mwieland
+ *
+ */
+@State(Scope.Thread)
+// the layouter recurses once per tree level
+@Fork(value = 1, jvmArgsAppend = "-Xss512m")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TreeLayouterBenchmark {
+
+  @Param({ "100", "1000", "10000", "50000" })
+  private int vertices;
+
+  private Graph tree;
+  private TreeLayouter layouter;
+
+  private static final long SEED = 42;
+
+  @Setup(Level.Trial)
+  public void createTree() {
+    tree = GraphGenerator.generateTree(vertices, SEED);
+    layouter = new TreeLayouter();
+  }
+
+  /**
+   * Layout of the whole tree.
+   * 
+   * @return layouted tree, so the computation is not eliminated
+   */
+  @Benchmark
+  public Graph layout() {
+    layouter.layout(tree, null);
+    return tree;
+  }
+}
@@ -0,0 +1,166 @@
+package gvs.access;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import gvs.model.styles.GVSStyle;
+
+/**
+ * Reads the primitives of a message of the binary GVS protocol.
+ *
+ * A client switches to the binary protocol with
+ * {@link ProtocolCommand#BINARY_GVS}. From then on, it sends frames instead
+ * of lines. A frame is a big-endian 4 byte length followed by that many
+ * bytes: a message type and its payload.
+ * <ul>
+ * <li>var: unsigned LEB128 varint, used for counts and references</li>
+ * <li>id: zigzag encoded var, so small negative ids stay short</li>
+ * <li>double: 8 byte IEEE 754, big-endian</li>
+ * <li>string: var reference. 0 is null, 1 to n are the strings of this
+ * message in order of appearance and n + 1 introduces a new string, followed
+ * by its UTF-8 length as var and its bytes</li>
+ * <li>style: var reference, interned like strings. n + 1 introduces a new
+ * style, followed by line color, line style, line thickness and fill color
+ * as strings</li>
+ * </ul>
+ * Messages:
+ * <ul>
+ * <li>graph: 'G' id name var(vertices) vertex* var(edges) edge*<br>
+ * vertex: id label style flags [x y] [icon], where flag 1 marks a relative
+ * position in percent as two doubles and flag 2 an icon name as string<br>
+ * edge: label style directed(byte) id(from) id(to)</li>
+ * <li>tree: 'T' id name var(nodes) node*<br>
+ * node: id label style var(children) id(child)*</li>
+ * <li>delta: 'D' id name var(changes) change*, applied in order to the last
+ * graph of the session, see {@link gvs.model.GraphDelta}<br>
+ * change: 1 vertex, adds or replaces a vertex, which keeps its position
+ * unless flag 1 is set | 2 id, removes a vertex | 3 id style, restyles a
+ * vertex | 4 edge, adds an edge | 5 id(from) id(to), removes edges | 6
+ * id(from) id(to) style, restyles edges</li>
+ * <li>release: 'R', same as {@link ProtocolCommand#RELEASE_GVS}</li>
+ * </ul>
+ *
+ * @author mwieland
+ */
+final class BinaryInput {
+
+  static final byte GRAPH = 'G';
+  static final byte TREE = 'T';
+  static final byte RELEASE = 'R';
+  static final byte DELTA = 'D';
+
+  static final int PUT_VERTEX = 1;
+  static final int REMOVE_VERTEX = 2;
+  static final int RESTYLE_VERTEX = 3;
+  static final int ADD_EDGE = 4;
+  static final int REMOVE_EDGE = 5;
+  static final int RESTYLE_EDGE = 6;
+
+  // larger frames are rejected before they are buffered
+  static final int MAX_FRAME_SIZE = 1 << 28;
+
+  static final int RELATIVE_POSITION = 1;
+  static final int ICON = 2;
+
+  private final ByteBuffer frame;
+  private final List<String> strings = new ArrayList<>();
+  private final List<GVSStyle> styles = new ArrayList<>();
+
+  /**
+   * Constructor.
+   *
+   * @param frame
+   *          content of a frame without its length
+   */
+  BinaryInput(ByteBuffer frame) {
+    this.frame = frame;
+  }
+
+  int readByte() throws IOException {
+    require(1);
+    return frame.get() & 0xFF;
+  }
+
+  double readDouble() throws IOException {
+    require(Double.BYTES);
+    return frame.getDouble();
+  }
+
+  long readVar() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < Long.SIZE; shift += 7) {
+      int b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  long readId() throws IOException {
+    long value = readVar();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Read a count of elements. Each element needs at least one byte, so larger
+   * counts are malformed and rejected before anything is allocated.
+   */
+  int readCount() throws IOException {
+    long count = readVar();
+    if (count > frame.remaining()) {
+      throw new IOException("Malformed count " + count);
+    }
+    return (int) count;
+  }
+
+  String readString() throws IOException {
+    int reference = readReference(strings.size());
+    if (reference == 0) {
+      return null;
+    }
+    if (reference <= strings.size()) {
+      return strings.get(reference - 1);
+    }
+    int length = readCount();
+    String text = new String(frame.array(),
+        frame.arrayOffset() + frame.position(), length,
+        StandardCharsets.UTF_8);
+    frame.position(frame.position() + length);
+    strings.add(text);
+    return text;
+  }
+
+  GVSStyle readStyle() throws IOException {
+    int reference = readReference(styles.size());
+    if (reference == 0) {
+      throw new IOException("Missing style");
+    }
+    if (reference <= styles.size()) {
+      return styles.get(reference - 1);
+    }
+    GVSStyle style = new GVSStyle(readString(), readString(), readString(),
+        readString());
+    styles.add(style);
+    return style;
+  }
+
+  private int readReference(int tableSize) throws IOException {
+    long reference = readVar();
+    if (reference > tableSize + 1) {
+      throw new IOException("Malformed reference " + reference);
+    }
+    return (int) reference;
+  }
+
+  private void require(int bytes) throws EOFException {
+    if (frame.remaining() < bytes) {
+      throw new EOFException("Frame ends unexpectedly");
+    }
+  }
+}
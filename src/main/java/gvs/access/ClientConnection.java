@@ -1,12 +1,18 @@
 package gvs.access;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.SequenceInputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.dom4j.Document;
 import org.slf4j.Logger;
@@ -21,7 +27,7 @@ import gvs.util.Configuration;
  * This class is the endpoint for each incoming connection.
  * 
  * The class handles protocol commands and stores the incoming data in a xml
- * file.
+ * file. With stream ingest, the data is parsed directly from the socket.
  * 
  * @author mwieland
  */
@@ -33,6 +39,11 @@ public class ClientConnection extends Thread {
   private final ModelBuilder modelBuilder;
 
   private final GvsXmlReader xmlReader;
+  private final boolean streamIngest;
+  private final int sampleRate;
+  private ValidationMode validation;
+  private long documentCount;
+  private boolean skipLineFeed;
   private Thread watchdogThread;
 
   // protocol messages
@@ -40,6 +51,11 @@ public class ClientConnection extends Thread {
   private static final String FAILED = "FAILED";
 
   private static final String THREAD_NAME = "Client Connection Thread";
+  private static final String DOM_INGEST = "dom";
+  // the watchdog is fed after each chunk of a large frame
+  private static final int FRAME_CHUNK_SIZE = 65536;
+  private static final String VALIDATION_COMMAND = ProtocolCommand
+      .VALIDATION_GVS.toString() + " ";
 
   private static final Logger logger = LoggerFactory
       .getLogger(ClientConnection.class);
@@ -57,10 +73,13 @@ public class ClientConnection extends Thread {
    *          connection watchdog
    * @param gvsXmlReader
    *          xml reader used to read the created xml stream
+   * @param configuration
+   *          configuration wrapper
    */
   @Inject
   public ClientConnection(ConnectionMonitor monitor, ModelBuilder modelBuilder,
-      Watchdog watchdog, GvsXmlReader gvsXmlReader, @Assisted Socket client) {
+      Watchdog watchdog, GvsXmlReader gvsXmlReader,
+      Configuration configuration, @Assisted Socket client) {
 
     super(THREAD_NAME);
 
@@ -69,6 +88,9 @@ public class ClientConnection extends Thread {
     this.watchdog = watchdog;
     this.monitor = monitor;
     this.xmlReader = gvsXmlReader;
+    this.streamIngest = !DOM_INGEST.equals(configuration.getIngest());
+    this.sampleRate = configuration.getValidationSampleRate();
+    this.validation = ValidationMode.load(configuration);
   }
 
   /**
@@ -87,15 +109,13 @@ public class ClientConnection extends Thread {
    */
   private void processInputStream() {
 
-    try (BufferedReader inputReader = new BufferedReader(
-        new InputStreamReader(socketClient.getInputStream()))) {
+    try (InputStream input = new BufferedInputStream(
+        socketClient.getInputStream())) {
 
       StringBuffer data = new StringBuffer();
       String line;
-      while ((line = inputReader.readLine()) != null) {
-        if (watchdog.isWatching()) {
-          watchdog.feed();
-        }
+      while ((line = readLine(input)) != null) {
+        feedWatchdog();
 
         int endCharIndex = line.indexOf(ProtocolCommand.DATA_END.toString());
 
@@ -107,10 +127,20 @@ public class ClientConnection extends Thread {
           watchdogThread.start();
         } else if (line.equals(ProtocolCommand.RELEASE_GVS.toString())) {
           logger.info("Release command detected.");
-          watchdog.stopWatching();
-          watchdogThread.join();
-          releaseService();
+          stopWatchdogAndRelease();
           break;
+        } else if (line.equals(ProtocolCommand.BINARY_GVS.toString())) {
+          logger.info("Binary protocol requested.");
+          sendMessage(OK);
+          processFrames(input);
+          break;
+        } else if (line.startsWith(VALIDATION_COMMAND)) {
+          changeValidation(line.substring(VALIDATION_COMMAND.length()));
+        } else if (streamIngest) {
+          if (!line.isEmpty()) {
+            logger.info("Data detected");
+            readModelIncrementally(line, input);
+          }
         } else if (endCharIndex != -1) {
           logger.info("End of data detected.");
           data.append(line.substring(0, endCharIndex));
@@ -128,6 +158,162 @@ public class ClientConnection extends Thread {
     }
   }
 
+  /**
+   * Read a line like a {@link java.io.BufferedReader}, but without reading
+   * ahead, so the following data can be parsed from the same input.
+   * 
+   * @return line without line break or null at the end of the input
+   */
+  private String readLine(InputStream input) throws IOException {
+    skipLineFeed(input);
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = input.read()) != -1 && b != '\n' && b != '\r') {
+      line.write(b);
+    }
+    if (b == -1 && line.size() == 0) {
+      return null;
+    }
+    skipLineFeed = b == '\r';
+    return line.toString();
+  }
+
+  /**
+   * Skip the \n of a \r\n line break. It is skipped when the next line is
+   * read, so a line ending with \r is not blocked until more input arrives.
+   */
+  private void skipLineFeed(InputStream input) throws IOException {
+    if (skipLineFeed) {
+      skipLineFeed = false;
+      input.mark(1);
+      if (input.read() != '\n') {
+        input.reset();
+      }
+    }
+  }
+
+  /**
+   * Read messages of the binary protocol until the client releases the
+   * service or closes the connection.
+   * 
+   * @param input
+   *          client input after the protocol switch
+   * @throws IOException
+   *           I/O error occurred or invalid frame received
+   * @throws InterruptedException
+   *           if the thread is interrupted while the watchdog stops
+   */
+  private void processFrames(InputStream input)
+      throws IOException, InterruptedException {
+
+    skipLineFeed(input);
+    DataInputStream frames = new DataInputStream(input);
+    while (true) {
+      int length;
+      try {
+        length = frames.readInt();
+      } catch (EOFException e) {
+        return;
+      }
+      if (length <= 0 || length > BinaryInput.MAX_FRAME_SIZE) {
+        throw new IOException("Invalid frame length " + length);
+      }
+
+      byte[] frame = new byte[length];
+      for (int offset = 0; offset < length;) {
+        int count = frames.read(frame, offset,
+            Math.min(length - offset, FRAME_CHUNK_SIZE));
+        if (count == -1) {
+          throw new EOFException("Frame ends unexpectedly");
+        }
+        offset += count;
+        feedWatchdog();
+      }
+
+      if (frame[0] == BinaryInput.RELEASE) {
+        logger.info("Release command detected.");
+        stopWatchdogAndRelease();
+        return;
+      }
+      try {
+        modelBuilder.buildModelFromBinary(ByteBuffer.wrap(frame));
+      } catch (IOException | RuntimeException e) {
+        logger.error("Cannot build model from received message", e);
+      }
+    }
+  }
+
+  private void stopWatchdogAndRelease() throws InterruptedException {
+    watchdog.stopWatching();
+    if (watchdogThread != null) {
+      watchdogThread.join();
+    }
+    releaseService();
+  }
+
+  /**
+   * Change the validation of the following documents of this client.
+   * 
+   * @param modeName
+   *          name of the validation mode
+   */
+  private void changeValidation(String modeName) {
+    try {
+      validation = ValidationMode.byName(modeName);
+      logger.info("Validation changed to {}", validation.getMode());
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation {} not supported", modeName);
+    }
+  }
+
+  private boolean validateNextDocument() {
+    return validation.validates(documentCount++, sampleRate);
+  }
+
+  private void feedWatchdog() {
+    if (watchdog.isWatching()) {
+      watchdog.feed();
+    }
+  }
+
+  /**
+   * Parse a document, which starts with the given line, directly from the
+   * client input and build the model.
+   * 
+   * @param firstLine
+   *          first line of the document
+   * @param input
+   *          client input after the first line
+   * @throws IOException
+   *           I/O error occurred while reading the document
+   */
+  private void readModelIncrementally(String firstLine, InputStream input)
+      throws IOException {
+
+    int endCharIndex = firstLine.indexOf(ProtocolCommand.DATA_END.toString());
+    DocumentInputStream rest = null;
+    InputStream document;
+    if (endCharIndex != -1) {
+      document = new ByteArrayInputStream(
+          firstLine.substring(0, endCharIndex).getBytes());
+    } else {
+      rest = new DocumentInputStream(input, this::feedWatchdog);
+      document = new SequenceInputStream(
+          new ByteArrayInputStream(firstLine.getBytes()), rest);
+    }
+
+    try {
+      modelBuilder.buildModelFromStream(
+          xmlReader.openStream(document, validateNextDocument()));
+    } catch (XMLStreamException | RuntimeException e) {
+      logger.error("Cannot build model from received xml", e);
+    } finally {
+      if (rest != null) {
+        rest.skipToEnd();
+      }
+    }
+  }
+
   /**
    * Try to get the monitor lock and send status message back to the client.
    * 
@@ -174,7 +360,7 @@ public class ClientConnection extends Thread {
    */
   private void readAndTransformModel(InputStream input) {
     logger.info("Build model from parsed xml");
-    Document document = xmlReader.read(input);
+    Document document = xmlReader.read(input, validateNextDocument());
     if (document != null) {
       modelBuilder.buildModelFromXML(document);
     } else {
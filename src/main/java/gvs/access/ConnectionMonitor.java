@@ -1,10 +1,14 @@
 package gvs.access;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.Singleton;
 
+import gvs.util.Action;
 import gvs.util.Configuration;
 
 /**
@@ -17,6 +21,8 @@ public class ConnectionMonitor {
 
   private String currentOwnerAddress;
 
+  private final List<Action> releaseListeners = new CopyOnWriteArrayList<>();
+
   private static final Logger logger = LoggerFactory
       .getLogger(ConnectionMonitor.class);
 
@@ -40,6 +46,35 @@ public class ConnectionMonitor {
     logger.info("{} reserved the service.", currentOwnerAddress);
   }
 
+  /**
+   * Reserves the service for a client address, if no other client owns it.
+   * Does not wait.
+   * 
+   * @param clientAddress
+   *          client address
+   * @return true if the client owns the service now
+   */
+  public synchronized boolean tryReserveService(String clientAddress) {
+    if (currentOwnerAddress != null) {
+      logger.info("Client {} waits for service", clientAddress);
+      return false;
+    }
+    currentOwnerAddress = clientAddress;
+    logger.info("{} reserved the service.", currentOwnerAddress);
+    return true;
+  }
+
+  /**
+   * Register a listener, which is executed whenever the service is released.
+   * The listener is called while the monitor is locked and must not block.
+   * 
+   * @param listener
+   *          release listener
+   */
+  public void addReleaseListener(Action listener) {
+    releaseListeners.add(listener);
+  }
+
   /**
    * Release the service. <br>
    * Only the current owner of the service can release it for other clients.
@@ -54,6 +89,7 @@ public class ConnectionMonitor {
         currentOwnerAddress = null;
         notifyAll();
         logger.info("Service released: " + clientAddress);
+        releaseListeners.forEach(Action::execute);
       }
     }
   }
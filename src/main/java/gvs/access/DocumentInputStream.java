@@ -0,0 +1,99 @@
+package gvs.access;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import gvs.util.Action;
+
+/**
+ * Data of a single document, read directly from the input of a client.
+ *
+ * The stream ends at the data end character of the protocol, the rest of
+ * that line is discarded. Line breaks are skipped like the line based reader
+ * of {@link ClientConnection} does. The client input itself stays open for
+ * the following protocol messages.
+ *
+ * @author mwieland
+ */
+final class DocumentInputStream extends InputStream {
+
+  private final InputStream input;
+  private final Action lineListener;
+  private boolean ended;
+
+  private static final int DATA_END = ProtocolCommand.DATA_END.toString()
+      .charAt(0);
+
+  /**
+   * Constructor.
+   *
+   * @param input
+   *          client input, positioned at the data
+   * @param lineListener
+   *          called for each line break within the data
+   */
+  DocumentInputStream(InputStream input, Action lineListener) {
+    this.input = input;
+    this.lineListener = lineListener;
+  }
+
+  @Override
+  public int read() throws IOException {
+    while (!ended) {
+      int b = input.read();
+      if (b == -1) {
+        ended = true;
+      } else if (b == '\n' || b == '\r') {
+        lineListener.execute();
+      } else if (b == DATA_END) {
+        ended = true;
+        skipLine();
+      } else {
+        return b;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    int count = 0;
+    int b;
+    while (count < length && (b = read()) != -1) {
+      buffer[offset + count++] = (byte) b;
+      if (input.available() == 0) {
+        break;
+      }
+    }
+    return count == 0 ? -1 : count;
+  }
+
+  /**
+   * Skip the remaining data, e.g. if the parser stopped early.
+   *
+   * @throws IOException
+   *           I/O error of the client input
+   */
+  void skipToEnd() throws IOException {
+    while (read() != -1) {
+      continue;
+    }
+  }
+
+  /**
+   * Never close the client input.
+   */
+  @Override
+  public void close() {
+  }
+
+  private void skipLine() throws IOException {
+    int b;
+    while ((b = input.read()) != -1 && b != '\n' && b != '\r') {
+      continue;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package gvs.access;
+
+import java.net.URL;
+
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import com.google.inject.Singleton;
+
+/**
+ * The GVS specific xml schema, compiled once at startup.
+ * 
+ * The compiled schema is immutable and thread-safe, so all readers share it.
+ * Each reader creates its own validators from it, because validators are
+ * not thread-safe.
+ * 
+ * @author mwieland
+ */
+@Singleton
+public class GvsSchema {
+
+  private final Schema schema;
+
+  private static final String SCHEMA = "gvs.xsd";
+  private static final Logger logger = LoggerFactory
+      .getLogger(GvsSchema.class);
+
+  public GvsSchema() {
+    this.schema = compile();
+  }
+
+  private Schema compile() {
+    URL schemaURL = getClass().getClassLoader().getResource(SCHEMA);
+    if (schemaURL == null) {
+      logger.error("Cannot find xml schema {}", SCHEMA);
+      return null;
+    }
+    try {
+      SchemaFactory factory = SchemaFactory
+          .newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+      return factory.newSchema(schemaURL);
+    } catch (SAXException e) {
+      logger.error("Cannot compile xml schema {}", SCHEMA, e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the compiled schema.
+   * 
+   * @return schema or null, if the schema could not be compiled
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+}
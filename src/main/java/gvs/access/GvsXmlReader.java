@@ -1,69 +1,142 @@
 package gvs.access;
 
 import java.io.InputStream;
-import java.net.URL;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
 
 import org.dom4j.Document;
 import org.dom4j.io.SAXReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
 
 import com.google.inject.Inject;
 
 /**
  * Reads input XML of a {@link XmlWriter} and passes the document to the
  * {@link ModelBuilder}.
- * 
- * Uses the GVS specific xml schema for custom tags.
- * 
+ *
+ * Uses the GVS specific xml schema for custom tags. The schema is compiled
+ * once by {@link GvsSchema}; each reader keeps its own parsers and validator,
+ * so a reader must only be used by one thread at a time.
+ *
  * @author mwieland
  */
 public class GvsXmlReader {
 
   private final SAXReader xmlReader;
+  private final SAXReader validatingReader;
+  private final ValidatorHandler validator;
+
+  // thread-safe once configured
+  private static final XMLInputFactory inputFactory = createInputFactory();
 
-  private static final String SCHEMA = "gvs.xsd";
-  private static final String VALIDATION_SCHEMA = "http://apache.org/"
-      + "xml/features/validation/schema";
-  private static final String NO_NAMESPACE_SCHEMA_LOCATION = "http://apache.org"
-      + "/xml/properties/schema/external-noNamespaceSchemaLocation";
   private static final Logger logger = LoggerFactory
       .getLogger(GvsXmlReader.class);
 
   @Inject
-  public GvsXmlReader(SAXReader reader) {
+  public GvsXmlReader(SAXReader reader, GvsSchema schema) {
     this.xmlReader = reader;
-    applySchema();
+    this.validatingReader = createValidatingReader(schema.getSchema());
+    this.validator = schema.getSchema() == null ? null
+        : schema.getSchema().newValidatorHandler();
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+        false);
+    return factory;
   }
 
   /**
-   * Apply the custom XML schema from classpath to the {@link SAXReader}.
+   * Create a {@link SAXReader}, which validates against the compiled schema
+   * and rejects invalid documents.
+   *
+   * @return validating reader or null, if there is no schema
    */
-  private void applySchema() {
-    URL schemaURL = getClass().getClassLoader().getResource(SCHEMA);
+  private SAXReader createValidatingReader(Schema schema) {
+    if (schema == null) {
+      return null;
+    }
     try {
-      String schemaString = schemaURL.toURI().toString();
-      xmlReader.setFeature(VALIDATION_SCHEMA, true);
-      xmlReader.setProperty(NO_NAMESPACE_SCHEMA_LOCATION, schemaString);
-      xmlReader.setValidation(true);
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setSchema(schema);
+      SAXReader reader = new SAXReader(
+          factory.newSAXParser().getXMLReader());
+      reader.setErrorHandler(new DefaultHandler() {
+        @Override
+        public void error(SAXParseException e) throws SAXParseException {
+          throw e;
+        }
+      });
+      return reader;
     } catch (Exception e) {
       logger.error("Cannot apply xml schema to SAX Reader", e);
+      return null;
     }
   }
 
   /**
    * Read the input file and pass the XML document to the {@link ModelBuilder}.
-   * 
+   *
    * @param input
-   * 
+   *
    * @return parsed document
    */
   public Document read(InputStream input) {
+    return read(input, true);
+  }
+
+  /**
+   * Read the input file into a XML document.
+   *
+   * @param input
+   *          xml input
+   * @param validate
+   *          whether the document is validated against the schema
+   * @return parsed document or null, if it is not well formed or invalid
+   */
+  public Document read(InputStream input, boolean validate) {
     try {
+      if (validate && validatingReader != null) {
+        return validatingReader.read(input);
+      }
       return xmlReader.read(input);
     } catch (Exception e) {
       logger.error("Cannot read input stream", e);
       return null;
     }
   }
+
+  /**
+   * Open a reader, which parses the input incrementally.
+   *
+   * @param input
+   *          xml input
+   * @param validate
+   *          whether the document is validated against the schema while it
+   *          is read
+   * @return stream reader positioned at the start of the document
+   * @throws XMLStreamException
+   *           if the reader cannot be created
+   */
+  public XMLStreamReader openStream(InputStream input, boolean validate)
+      throws XMLStreamException {
+
+    XMLStreamReader reader = inputFactory.createXMLStreamReader(input);
+    if (validate && validator != null) {
+      return new ValidatingStreamReader(reader, validator);
+    }
+    return reader;
+  }
 }
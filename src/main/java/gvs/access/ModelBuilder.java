@@ -1,5 +1,7 @@
 package gvs.access;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -9,6 +11,10 @@ import java.util.Map;
 import java.util.Observable;
 import java.util.stream.Collectors;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.dom4j.Document;
 import org.dom4j.Element;
 import org.slf4j.Logger;
@@ -21,6 +27,7 @@ import com.google.inject.Singleton;
 import gvs.model.ClientData;
 import gvs.model.Edge;
 import gvs.model.Graph;
+import gvs.model.GraphDelta;
 import gvs.model.GraphSessionType;
 import gvs.model.IEdge;
 import gvs.model.ISessionType;
@@ -118,6 +125,206 @@ public class ModelBuilder extends Observable {
     }
   }
 
+  /**
+   * Builds a model from XML, which is parsed incrementally by the given
+   * reader. Vertices and edges are built while their elements are read, so
+   * neither the raw document nor a document tree is held in memory.
+   * 
+   * @param reader
+   *          reader of a single XML document, see
+   *          {@link GvsXmlReader#openStream}. Closed when done
+   * @throws XMLStreamException
+   *           if the stream is not well formed or invalid XML
+   */
+  public void buildModelFromStream(XMLStreamReader reader)
+      throws XMLStreamException {
+
+    logger.info("Building model from XML stream...");
+    try {
+      // GVS root element, followed by the graph or tree element
+      reader.nextTag();
+      reader.nextTag();
+      if (reader.getLocalName().equals(GRAPH)) {
+        logger.info("Building graph model...");
+        streamGraph(reader);
+      } else if (reader.getLocalName().equals(TREE)) {
+        logger.info("Building tree model...");
+        streamTree(reader);
+      } else {
+        logger.info("Unknown structure detected. Import aborted.");
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Builds a model from a message of the binary protocol. The message
+   * carries the same content as the XML, see {@link BinaryInput} for its
+   * format.
+   * 
+   * @param frame
+   *          content of a frame, starting with the message type
+   * @throws IOException
+   *           if the message is malformed
+   */
+  public void buildModelFromBinary(ByteBuffer frame) throws IOException {
+    logger.info("Building model from binary message...");
+    BinaryInput input = new BinaryInput(frame);
+    int type = input.readByte();
+    if (type == BinaryInput.GRAPH) {
+      logger.info("Building graph model...");
+      decodeGraph(input);
+    } else if (type == BinaryInput.TREE) {
+      logger.info("Building tree model...");
+      decodeTree(input);
+    } else if (type == BinaryInput.DELTA) {
+      logger.info("Building graph delta...");
+      decodeDelta(input);
+    } else {
+      logger.info("Unknown message type {}. Import aborted.", type);
+    }
+  }
+
+  /**
+   * Graph Builder for binary messages.
+   * 
+   * @param input
+   *          message after its type
+   */
+  private void decodeGraph(BinaryInput input) throws IOException {
+    long sessionId = input.readId();
+    String sessionName = input.readString();
+
+    int vertexCount = input.readCount();
+    Map<Long, IVertex> vertices = new HashMap<>(2 * vertexCount);
+    for (int i = 0; i < vertexCount; i++) {
+      long vertexId = input.readId();
+      String label = input.readString();
+      GVSStyle style = input.readStyle();
+      int flags = input.readByte();
+      vertices.put(vertexId,
+          decodeVertex(input, vertexId, label, style, flags));
+    }
+
+    int edgeCount = input.readCount();
+    Collection<IEdge> edges = new HashSet<>(2 * edgeCount);
+    for (int i = 0; i < edgeCount; i++) {
+      String label = input.readString();
+      GVSStyle style = input.readStyle();
+      boolean isDirected = input.readByte() != 0;
+      IVertex fromVertex = vertices.get(input.readId());
+      IVertex toVertex = vertices.get(input.readId());
+      edges.add(new Edge(label, style, isDirected, fromVertex, toVertex));
+    }
+
+    publishGraph(sessionId, sessionName, vertices, edges);
+  }
+
+  /**
+   * Read the optional position and icon of a vertex.
+   */
+  private GraphVertex decodeVertex(BinaryInput input, long vertexId,
+      String label, GVSStyle style, int flags) throws IOException {
+
+    double xPos = 0;
+    double yPos = 0;
+    if ((flags & BinaryInput.RELATIVE_POSITION) != 0) {
+      xPos = input.readDouble() * Configuration.getWindowWidth() / 100;
+      yPos = input.readDouble() * Configuration.getContentPaneHeight() / 100;
+    }
+    Glyph icon = null;
+    if ((flags & BinaryInput.ICON) != 0) {
+      icon = Glyph.valueOf(input.readString());
+    }
+    return new GraphVertex(vertexId, label, style, xPos, yPos, icon);
+  }
+
+  /**
+   * Delta Builder for binary messages. The delta is applied to the last
+   * graph of the session by the observer.
+   * 
+   * @param input
+   *          message after its type
+   */
+  private void decodeDelta(BinaryInput input) throws IOException {
+    long sessionId = input.readId();
+    String sessionName = input.readString();
+
+    GraphDelta delta = new GraphDelta();
+    int changeCount = input.readCount();
+    for (int i = 0; i < changeCount; i++) {
+      int change = input.readByte();
+      switch (change) {
+      case BinaryInput.PUT_VERTEX:
+        long vertexId = input.readId();
+        String label = input.readString();
+        GVSStyle style = input.readStyle();
+        int flags = input.readByte();
+        delta.putVertex(decodeVertex(input, vertexId, label, style, flags),
+            (flags & BinaryInput.RELATIVE_POSITION) != 0);
+        break;
+      case BinaryInput.REMOVE_VERTEX:
+        delta.removeVertex(input.readId());
+        break;
+      case BinaryInput.RESTYLE_VERTEX:
+        delta.restyleVertex(input.readId(), input.readStyle());
+        break;
+      case BinaryInput.ADD_EDGE:
+        delta.addEdge(input.readString(), input.readStyle(),
+            input.readByte() != 0, input.readId(), input.readId());
+        break;
+      case BinaryInput.REMOVE_EDGE:
+        delta.removeEdge(input.readId(), input.readId());
+        break;
+      case BinaryInput.RESTYLE_EDGE:
+        delta.restyleEdge(input.readId(), input.readId(), input.readStyle());
+        break;
+      default:
+        throw new IOException("Unknown change " + change);
+      }
+    }
+
+    logger.debug("Finish build graph delta");
+    ISessionType type = graphSessionTypeProvider.get();
+
+    setChanged();
+    notifyObservers(new ClientData(sessionId, sessionName, type, delta));
+  }
+
+  /**
+   * TreeBuilder for binary messages.
+   * 
+   * @param input
+   *          message after its type
+   */
+  private void decodeTree(BinaryInput input) throws IOException {
+    long sessionId = input.readId();
+    String sessionName = input.readString();
+
+    int nodeCount = input.readCount();
+    Map<Long, IVertex> vertexMap = new HashMap<>(2 * nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      long vertexId = input.readId();
+      String label = input.readString();
+      GVSStyle style = input.readStyle();
+      TreeVertex newVertex = new TreeVertex(vertexId, label, style, false,
+          null);
+
+      int childCount = input.readCount();
+      for (int c = 0; c < childCount; c++) {
+        newVertex.addChildId(input.readId());
+      }
+      if (childCount == 0) {
+        // leads to creation of LeafVertex
+        newVertex.addChildId(-1L);
+      }
+      vertexMap.put(vertexId, newVertex);
+    }
+
+    publishTree(sessionId, sessionName, vertexMap);
+  }
+
   /**
    * Graph Builder.
    * 
@@ -132,20 +339,65 @@ public class ModelBuilder extends Observable {
     Map<Long, IVertex> vertices = new HashMap<>();
     Element verticesElement = pDocRoot.element(VERTIZES);
     verticesElement.elements().forEach(vertexElement -> {
-      IVertex newVertex = buildGraphVertex(vertexElement);
+      IVertex newVertex = buildGraphVertex(vertexElement.getName(),
+          readFields(vertexElement));
       vertices.put(newVertex.getId(), newVertex);
     });
 
     Collection<IEdge> edges = new HashSet<>();
     Element edgesElement = pDocRoot.element(EDGES);
     edgesElement.elements().forEach(edgeElement -> {
-      if (edgeElement.attributeValue(ISDIRECTED).equals("true")) {
-        edges.add(buildDirectedEdge(edgeElement, vertices));
-      } else if (edgeElement.attributeValue(ISDIRECTED).equals("false")) {
-        edges.add(buildUndirectedEdge(edgeElement, vertices));
+      IEdge edge = buildEdge(readFields(edgeElement), vertices);
+      if (edge != null) {
+        edges.add(edge);
       }
     });
 
+    long sessionId = Long.parseLong(graphElement.attributeValue(ATTRIBUTEID));
+    String sessionName = graphElement.element(LABEL).getText();
+    publishGraph(sessionId, sessionName, vertices, edges);
+  }
+
+  /**
+   * Graph Builder, which reads the vertices and edges from a stream.
+   * 
+   * @param reader
+   *          reader positioned at the graph element
+   */
+  private void streamGraph(XMLStreamReader reader) throws XMLStreamException {
+    logger.debug("Build graph from XML stream");
+
+    Fields graphFields = readFields(reader);
+    Map<Long, IVertex> vertices = new HashMap<>();
+    Collection<IEdge> edges = new HashSet<>();
+
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      String section = reader.getLocalName();
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        String name = reader.getLocalName();
+        Fields fields = readFields(reader);
+        if (section.equals(VERTIZES)) {
+          IVertex newVertex = buildGraphVertex(name, fields);
+          vertices.put(newVertex.getId(), newVertex);
+        } else if (section.equals(EDGES)) {
+          IEdge edge = buildEdge(fields, vertices);
+          if (edge != null) {
+            edges.add(edge);
+          }
+        }
+      }
+    }
+
+    long sessionId = Long.parseLong(graphFields.get(ATTRIBUTEID));
+    publishGraph(sessionId, graphFields.get(LABEL), vertices, edges);
+  }
+
+  /**
+   * Pass a built graph to the observers.
+   */
+  private void publishGraph(long sessionId, String sessionName,
+      Map<Long, IVertex> vertices, Collection<IEdge> edges) {
+
     // GVS 3.0 use snapshot description of input connection
     String snapshotDescription = new String();
     Graph newGraph = new Graph(snapshotDescription, vertices.values(), edges);
@@ -157,9 +409,6 @@ public class ModelBuilder extends Observable {
     }
 
     logger.debug("Finish build graph from XML");
-    long sessionId = Long.parseLong(graphElement.attributeValue(ATTRIBUTEID));
-    String sessionName = graphElement.element(LABEL).getText();
-
     ISessionType type = graphSessionTypeProvider.get();
 
     ClientData incommingData = new ClientData(sessionId, sessionName, type,
@@ -184,7 +433,43 @@ public class ModelBuilder extends Observable {
     String sessionName = treeElement.element(LABEL).getText();
 
     // uses a map for easy access to vertices over their id
-    Map<Long, IVertex> vertexMap = buildTreeVertices(eVertices);
+    Map<Long, IVertex> vertexMap = new HashMap<>();
+    eVertices.elements().forEach(e -> {
+      TreeVertex newVertex = buildTreeVertex(e.getName(), readFields(e));
+      vertexMap.put(newVertex.getId(), newVertex);
+    });
+    publishTree(sessionId, sessionName, vertexMap);
+  }
+
+  /**
+   * TreeBuilder, which reads the nodes from a stream.
+   * 
+   * @param reader
+   *          reader positioned at the tree element
+   */
+  private void streamTree(XMLStreamReader reader) throws XMLStreamException {
+    logger.info("Building tree from XML stream...");
+    Fields treeFields = readFields(reader);
+
+    Map<Long, IVertex> vertexMap = new HashMap<>();
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        String name = reader.getLocalName();
+        TreeVertex newVertex = buildTreeVertex(name, readFields(reader));
+        vertexMap.put(newVertex.getId(), newVertex);
+      }
+    }
+
+    long sessionId = Long.parseLong(treeFields.get(ATTRIBUTEID));
+    publishTree(sessionId, treeFields.get(LABEL), vertexMap);
+  }
+
+  /**
+   * Link the nodes of a tree and pass it to the observers.
+   */
+  private void publishTree(long sessionId, String sessionName,
+      Map<Long, IVertex> vertexMap) {
+
     Collection<IVertex> vertices = resolveChildReferences(vertexMap);
     findRoots(vertices);
 
@@ -204,20 +489,15 @@ public class ModelBuilder extends Observable {
     notifyObservers(incommingData);
   }
 
-  private Map<Long, IVertex> buildTreeVertices(Element eVertices) {
-    Map<Long, IVertex> vertexMap = new HashMap<>();
-    eVertices.elements().forEach(e -> {
-      TreeVertex newVertex = null;
-      if (e.getName().equals(DEFAULTNODE)) {
-        logger.info("Building default tree vertex...");
-        newVertex = buildDefaultTreeVertex(e);
-      } else if (e.getName().equals(BINARYNODE)) {
-        logger.info("Building binary tree vertex...");
-        newVertex = buildBinaryTreeVertex(e);
-      }
-      vertexMap.put(newVertex.getId(), newVertex);
-    });
-    return vertexMap;
+  private TreeVertex buildTreeVertex(String name, Fields fields) {
+    if (name.equals(DEFAULTNODE)) {
+      logger.info("Building default tree vertex...");
+      return buildDefaultTreeVertex(fields);
+    } else if (name.equals(BINARYNODE)) {
+      logger.info("Building binary tree vertex...");
+      return buildBinaryTreeVertex(fields);
+    }
+    throw new IllegalArgumentException("Unknown tree node " + name);
   }
 
   private void findRoots(Collection<IVertex> vertices) {
@@ -274,20 +554,18 @@ public class ModelBuilder extends Observable {
     return edges;
   }
 
-  private TreeVertex buildDefaultTreeVertex(Element pVertex) {
-    long vertexId = Long.parseLong(pVertex.attributeValue(ATTRIBUTEID));
-    Element eLabel = pVertex.element(LABEL);
-    String label = eLabel.getText();
+  private TreeVertex buildDefaultTreeVertex(Fields fields) {
+    long vertexId = Long.parseLong(fields.get(ATTRIBUTEID));
+    String label = fields.get(LABEL);
 
-    GVSStyle style = buildStyle(pVertex, true);
+    GVSStyle style = buildStyle(fields, true);
 
     TreeVertex newVertex = new TreeVertex(vertexId, label, style, false, null);
 
     List<Long> childIds = new ArrayList<>();
-    List<Element> eChildren = pVertex.elements(CHILD);
-    if (!eChildren.isEmpty()) {
-      eChildren.forEach(child -> {
-        childIds.add(Long.parseLong(child.getText()));
+    if (!fields.children.isEmpty()) {
+      fields.children.forEach(child -> {
+        childIds.add(Long.parseLong(child));
       });
     } else {
       // add -1 if vertex has no children -> leads to creation of LeafVertex
@@ -301,22 +579,21 @@ public class ModelBuilder extends Observable {
     return newVertex;
   }
 
-  private TreeVertex buildBinaryTreeVertex(Element pVertex) {
-    long vertexId = Long.parseLong(pVertex.attributeValue(ATTRIBUTEID));
-    Element eLabel = pVertex.element(LABEL);
-    String label = eLabel.getText();
+  private TreeVertex buildBinaryTreeVertex(Fields fields) {
+    long vertexId = Long.parseLong(fields.get(ATTRIBUTEID));
+    String label = fields.get(LABEL);
 
-    GVSStyle style = buildStyle(pVertex, true);
+    GVSStyle style = buildStyle(fields, true);
 
-    Element eRigthChild = pVertex.element(RIGTHCHILD);
-    Element eLeftChild = pVertex.element(LEFTCHILD);
+    String rigthChild = fields.get(RIGTHCHILD);
+    String leftChild = fields.get(LEFTCHILD);
     long leftchildId = -1;
     long rigthchildId = -1;
-    if (eLeftChild != null) {
-      leftchildId = Long.parseLong(eLeftChild.getText());
+    if (leftChild != null) {
+      leftchildId = Long.parseLong(leftChild);
     }
-    if (eRigthChild != null) {
-      rigthchildId = Long.parseLong(eRigthChild.getText());
+    if (rigthChild != null) {
+      rigthchildId = Long.parseLong(rigthChild);
     }
     logger.info("Finish build TreeVertex from XML.");
     TreeVertex newVertex = new TreeVertex(vertexId, label, style, false, null);
@@ -325,54 +602,64 @@ public class ModelBuilder extends Observable {
     return newVertex;
   }
 
-  private IVertex buildGraphVertex(Element vertexElement) {
+  private IVertex buildGraphVertex(String name, Fields fields) {
     logger.info("Build GraphVertex from XML");
 
     double xPos = 0;
     double yPos = 0;
-    if (vertexElement.getName().equals(RELATIVVERTEX)) {
-      Element xPositionElement = vertexElement.element(XPOS);
-      xPos = Double.parseDouble(xPositionElement.getText());
+    if (name.equals(RELATIVVERTEX)) {
+      xPos = Double.parseDouble(fields.get(XPOS));
       xPos = xPos * Configuration.getWindowWidth() / 100;
-      Element yPositionElement = vertexElement.element(YPOS);
-      yPos = Double.parseDouble(yPositionElement.getText());
+      yPos = Double.parseDouble(fields.get(YPOS));
       yPos = yPos * Configuration.getContentPaneHeight() / 100;
     }
 
-    Element labelElement = vertexElement.element(LABEL);
-    String label = labelElement.getText();
+    String label = fields.get(LABEL);
 
-    GVSStyle style = buildStyle(vertexElement, true);
+    GVSStyle style = buildStyle(fields, true);
 
-    Element iconElement = vertexElement.element(ICON);
+    String iconName = fields.get(ICON);
     Glyph icon = null;
-    if (iconElement != null) {
-      icon = Glyph.valueOf(iconElement.getText());
+    if (iconName != null) {
+      icon = Glyph.valueOf(iconName);
     }
 
-    long vertexId = Long.parseLong(vertexElement.attributeValue(ATTRIBUTEID));
+    long vertexId = Long.parseLong(fields.get(ATTRIBUTEID));
 
     logger.info("Finish building GraphVertex");
     return new GraphVertex(vertexId, label, style, xPos, yPos, icon);
   }
 
-  private GVSStyle buildStyle(Element e, boolean isVertex) {
-    Element lineColorElement = e.element(LINECOLOR);
-    String linecolor = lineColorElement.getText();
-    Element lineStyleElement = e.element(LINESTYLE);
-    String lineStyle = lineStyleElement.getText();
-    Element lineThicknessElement = e.element(LINETHICKNESS);
-    String lineThickness = lineThicknessElement.getText();
+  private GVSStyle buildStyle(Fields fields, boolean isVertex) {
+    String linecolor = fields.get(LINECOLOR);
+    String lineStyle = fields.get(LINESTYLE);
+    String lineThickness = fields.get(LINETHICKNESS);
     String fillcolor = null;
     if (isVertex) {
-      Element fillColorElement = e.element(FILLCOLOR);
-      if (fillColorElement != null) {
-        fillcolor = fillColorElement.getText();
-      }
+      fillcolor = fields.get(FILLCOLOR);
     }
     return new GVSStyle(linecolor, lineStyle, lineThickness, fillcolor);
   }
 
+  /**
+   * Edge Builder.
+   * 
+   * @param fields
+   *          edge
+   * @param pVertizes
+   *          vertices
+   * @return edge or null, if the edge is neither directed nor undirected
+   */
+  private IEdge buildEdge(Fields fields, Map<Long, IVertex> pVertizes) {
+    String isDirected = fields.get(ISDIRECTED);
+    if ("true".equals(isDirected)) {
+      return buildDirectedEdge(fields, pVertizes);
+    } else if ("false".equals(isDirected)) {
+      return buildUndirectedEdge(fields, pVertizes);
+    }
+    return null;
+  }
+
   /**
    * Directed Edge Builder.
    * 
@@ -382,17 +669,14 @@ public class ModelBuilder extends Observable {
    *          vertices
    * @return edge
    */
-  private IEdge buildDirectedEdge(Element pEdge, Map<Long, IVertex> pVertizes) {
+  private IEdge buildDirectedEdge(Fields pEdge, Map<Long, IVertex> pVertizes) {
     logger.debug("Build DirectedEdge XML");
-    Element eLabel = pEdge.element(LABEL);
-    String label = eLabel.getText();
+    String label = pEdge.get(LABEL);
 
     GVSStyle style = buildStyle(pEdge, false);
 
-    Element eFromVertex = pEdge.element(FROMVERTEX);
-    Element eToVertex = pEdge.element(TOVERTEX);
-    long fromVertexId = Long.parseLong(eFromVertex.getText());
-    long toVertexId = Long.parseLong(eToVertex.getText());
+    long fromVertexId = Long.parseLong(pEdge.get(FROMVERTEX));
+    long toVertexId = Long.parseLong(pEdge.get(TOVERTEX));
     IVertex fromVertex = null;
     IVertex toVertex = null;
 
@@ -412,18 +696,15 @@ public class ModelBuilder extends Observable {
    *          vertices
    * @return edge
    */
-  private IEdge buildUndirectedEdge(Element pEdge,
+  private IEdge buildUndirectedEdge(Fields pEdge,
       Map<Long, IVertex> pVertizes) {
     logger.debug("Build UndirectedEdge XML");
-    int arrowPos = Integer.parseInt(pEdge.attributeValue(ARROWPOS));
+    int arrowPos = Integer.parseInt(pEdge.get(ARROWPOS));
 
-    Element eLabel = pEdge.element(LABEL);
-    String label = eLabel.getText();
+    String label = pEdge.get(LABEL);
     GVSStyle style = buildStyle(pEdge, false);
-    Element eFromVertex = pEdge.element(FROMVERTEX);
-    Element eToVertex = pEdge.element(TOVERTEX);
-    long fromVertexId = Long.parseLong(eFromVertex.getText());
-    long toVertexId = Long.parseLong(eToVertex.getText());
+    long fromVertexId = Long.parseLong(pEdge.get(FROMVERTEX));
+    long toVertexId = Long.parseLong(pEdge.get(TOVERTEX));
     IVertex fromVertex = null;
     IVertex toVertex = null;
 
@@ -441,4 +722,57 @@ public class ModelBuilder extends Observable {
       return new Edge(label, style, false, fromVertex, toVertex);
     }
   }
+
+  /**
+   * Collect the attributes and child element texts of an element.
+   */
+  private Fields readFields(Element element) {
+    Fields fields = new Fields();
+    element.attributes().forEach(attribute -> fields.values
+        .put(attribute.getName(), attribute.getValue()));
+    element.elements().forEach(child -> fields.add(child.getName(),
+        child.getText()));
+    return fields;
+  }
+
+  /**
+   * Collect the attributes and child element texts of the current element.
+   * The reader is moved to the end of the element.
+   */
+  private Fields readFields(XMLStreamReader reader)
+      throws XMLStreamException {
+
+    Fields fields = new Fields();
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      fields.values.put(reader.getAttributeLocalName(i),
+          reader.getAttributeValue(i));
+    }
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      String name = reader.getLocalName();
+      fields.add(name, reader.getElementText());
+    }
+    return fields;
+  }
+
+  /**
+   * Attributes and child element texts of a vertex, edge or node. The texts
+   * of the child references of a node are kept in order.
+   */
+  private static final class Fields {
+
+    private final Map<String, String> values = new HashMap<>();
+    private final List<String> children = new ArrayList<>();
+
+    void add(String name, String text) {
+      if (name.equals(CHILD)) {
+        children.add(text);
+      } else {
+        values.put(name, text);
+      }
+    }
+
+    String get(String name) {
+      return values.get(name);
+    }
+  }
 }
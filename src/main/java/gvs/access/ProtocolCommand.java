@@ -1,7 +1,11 @@
 package gvs.access;
 
 public enum ProtocolCommand {
-  RELEASE_GVS("releaseGVS"), RESERVE_GVS("reserveGVS"), DATA_END(";");
+  RELEASE_GVS("releaseGVS"), RESERVE_GVS("reserveGVS"), DATA_END(";"),
+  // followed by a space and a validation mode, e.g. "validationGVS off"
+  VALIDATION_GVS("validationGVS"),
+  // switches the connection to the binary protocol, see BinaryInput
+  BINARY_GVS("binaryGVS");
 
   private final String commandName;
 
@@ -0,0 +1,703 @@
+package gvs.access;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.dom4j.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import gvs.util.Configuration;
+
+/**
+ * Non-blocking socket endpoint of GVS UI.
+ *
+ * A single event loop serves all client connections with a {@link Selector}.
+ * It splits the input into protocol lines and collects the raw bytes of each
+ * document in a single buffer. Complete documents are handed to a bounded
+ * pool of workers, which parse them and build the model. The
+ * documents of a connection are built in the order they were received. Idle
+ * or slow clients therefore only occupy their buffers, but no threads.
+ *
+ * The protocol is the same as the one of {@link ClientConnection}. A client
+ * which waits for the service is not read until it owns the service, and the
+ * owner loses the service, if it does not send anything for
+ * {@link Watchdog#WATCH_TIME} milliseconds.
+ *
+ * @author mwieland
+ */
+public class SelectorServer {
+
+  private final ConnectionMonitor monitor;
+  private final ModelBuilder modelBuilder;
+  private final ThreadLocal<GvsXmlReader> xmlReaders;
+  private final boolean streamIngest;
+  private final ValidationMode defaultValidation;
+  private final int sampleRate;
+  private final int workerCount;
+
+  private volatile Selector selector;
+  private volatile boolean running = true;
+  private ExecutorService workers;
+
+  // clients which requested the service, in order of their requests
+  private final Deque<Connection> waiting = new ArrayDeque<>();
+  // client which owns the service, watched by the event loop
+  private Connection owner;
+  // work of the workers which must be done on the event loop
+  private final Queue<Runnable> loopTasks = new ConcurrentLinkedQueue<>();
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int INITIAL_DOCUMENT_SIZE = 256;
+  // documents per client in the worker queue, before reading is paused
+  private static final int MAX_PENDING_DOCUMENTS = 4;
+  private static final long WATCH_INTERVAL = 100;
+
+  // protocol messages
+  private static final String OK = "OK";
+  private static final byte[] RESERVE_GVS = ProtocolCommand.RESERVE_GVS
+      .toString().getBytes();
+  private static final byte[] RELEASE_GVS = ProtocolCommand.RELEASE_GVS
+      .toString().getBytes();
+  private static final byte[] BINARY_GVS = ProtocolCommand.BINARY_GVS
+      .toString().getBytes();
+  private static final byte[] VALIDATION_GVS = (ProtocolCommand.VALIDATION_GVS
+      + " ").getBytes();
+  private static final byte DATA_END = (byte) ProtocolCommand.DATA_END
+      .toString().charAt(0);
+
+  private static final String DOM_INGEST = "dom";
+
+  private static final String WORKER_NAME = "Model Builder Thread ";
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(SelectorServer.class);
+
+  /**
+   * Default constructor.
+   *
+   * @param monitor
+   *          monitor to reserve the GVS service
+   * @param modelBuilder
+   *          modelbuilder which processes the parsed xml
+   * @param xmlReaderProvider
+   *          provides a xml reader for each worker
+   * @param configuration
+   *          configuration wrapper
+   */
+  @Inject
+  public SelectorServer(ConnectionMonitor monitor, ModelBuilder modelBuilder,
+      Provider<GvsXmlReader> xmlReaderProvider, Configuration configuration) {
+
+    this.monitor = monitor;
+    this.modelBuilder = modelBuilder;
+    this.xmlReaders = ThreadLocal.withInitial(xmlReaderProvider::get);
+    this.streamIngest = !DOM_INGEST.equals(configuration.getIngest());
+    this.defaultValidation = ValidationMode.load(configuration);
+    this.sampleRate = configuration.getValidationSampleRate();
+
+    int configuredWorkers = configuration.getWorkers();
+    this.workerCount = configuredWorkers > 0 ? configuredWorkers
+        : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Serve clients on the given port. Runs on the calling thread until the
+   * server is stopped.
+   *
+   * @param port
+   *          port to listen on
+   * @throws IOException
+   *           if the server socket cannot be opened
+   */
+  public void serve(int port) throws IOException {
+    try (Selector openedSelector = Selector.open();
+        ServerSocketChannel server = ServerSocketChannel.open()) {
+
+      selector = openedSelector;
+      server.bind(new InetSocketAddress(port));
+      server.configureBlocking(false);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+
+      workers = createWorkers();
+      monitor.addReleaseListener(selector::wakeup);
+
+      while (running) {
+        selector.select(WATCH_INTERVAL);
+        runLoopTasks();
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept(server);
+          } else {
+            ((Connection) key.attachment()).handle(key);
+          }
+        }
+
+        watchOwner();
+        grantWaitingClients();
+      }
+
+      for (SelectionKey key : selector.keys()) {
+        key.channel().close();
+      }
+      if (owner != null) {
+        monitor.releaseService(owner.remoteHost);
+      }
+    } finally {
+      if (workers != null) {
+        workers.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Stop serving. Open connections are closed, queued documents are still
+   * built.
+   */
+  void stop() {
+    running = false;
+    Selector openedSelector = selector;
+    if (openedSelector != null) {
+      openedSelector.wakeup();
+    }
+  }
+
+  private ExecutorService createWorkers() {
+    AtomicInteger threadNumber = new AtomicInteger();
+    return Executors.newFixedThreadPool(workerCount, task -> {
+      Thread thread = new Thread(task,
+          WORKER_NAME + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private void accept(ServerSocketChannel server) throws IOException {
+    SocketChannel channel = server.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+    key.attach(new Connection(channel, key));
+  }
+
+  /**
+   * Execute a task on the event loop.
+   */
+  private void runOnLoop(Runnable task) {
+    loopTasks.add(task);
+    selector.wakeup();
+  }
+
+  private void runLoopTasks() {
+    Runnable task;
+    while ((task = loopTasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Release the service, if its owner went stale. The owner keeps the service
+   * after closing its connection until it is released or went stale.
+   * 
+   * An owner with queued documents is not stale. Its input is not read while
+   * the workers fall behind, see {@link Connection#updateInterest()}.
+   */
+  private void watchOwner() {
+    long watchTime = TimeUnit.MILLISECONDS.toNanos(Watchdog.WATCH_TIME);
+    if (owner != null && owner.pendingDocuments == 0
+        && System.nanoTime() - owner.lastFed > watchTime) {
+      logger.info("Watchdog forcefully releases service");
+      owner = null;
+      monitor.releaseService(Configuration.getWatchdog());
+    }
+  }
+
+  /**
+   * Pass the service to the clients which wait for it.
+   */
+  private void grantWaitingClients() {
+    while (!waiting.isEmpty()) {
+      Connection next = waiting.peek();
+      if (next.channel.isOpen()
+          && !monitor.tryReserveService(next.remoteHost)) {
+        return;
+      }
+      waiting.poll();
+      if (next.channel.isOpen()) {
+        next.resume();
+      }
+    }
+  }
+
+  /**
+   * Parse a received document and build the model. Runs on a worker.
+   */
+  private void readAndTransformModel(InputStream fullGraph,
+      boolean validate) {
+
+    logger.info("Build model from parsed xml");
+    GvsXmlReader xmlReader = xmlReaders.get();
+    try {
+      if (streamIngest) {
+        modelBuilder.buildModelFromStream(
+            xmlReader.openStream(fullGraph, validate));
+        return;
+      }
+      Document document = xmlReader.read(fullGraph, validate);
+      if (document != null) {
+        modelBuilder.buildModelFromXML(document);
+      } else {
+        logger.warn("XmlReader could not read xml file.");
+      }
+    } catch (XMLStreamException | RuntimeException e) {
+      logger.error("Cannot build model from received xml", e);
+    }
+  }
+
+  /**
+   * Build the model from a message of the binary protocol. Runs on a worker.
+   */
+  private void readBinaryModel(ByteBuffer message) {
+    try {
+      modelBuilder.buildModelFromBinary(message);
+    } catch (IOException | RuntimeException e) {
+      logger.error("Cannot build model from received message", e);
+    }
+  }
+
+  /**
+   * State of a client connection. Only used on the event loop.
+   */
+  private final class Connection {
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final String remoteHost;
+
+    private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+    private DocumentBuffer document = new DocumentBuffer();
+    // incomplete frame of the binary protocol
+    private DocumentBuffer frame;
+    private ByteBuffer output;
+
+    // a \n directly after \r does not end another line
+    private boolean skipLineFeed;
+    private boolean binary;
+    private boolean waitingForService;
+    private boolean closing;
+    private int pendingDocuments;
+    private long lastFed;
+    private ValidationMode validation = defaultValidation;
+    private long documentCount;
+
+    // the last document of this client, which is parsed by a worker
+    private CompletableFuture<Void> lastDocument = CompletableFuture
+        .completedFuture(null);
+
+    Connection(SocketChannel channel, SelectionKey key) throws IOException {
+      this.channel = channel;
+      this.key = key;
+      this.remoteHost = channel.getRemoteAddress().toString();
+    }
+
+    void handle(SelectionKey selectedKey) {
+      try {
+        if (selectedKey.isWritable()) {
+          flush();
+        }
+        if (selectedKey.isValid() && selectedKey.isReadable()) {
+          read();
+        }
+      } catch (IOException e) {
+        logger.error("Unable to read incoming message of client {}",
+            remoteHost, e);
+        close();
+      }
+    }
+
+    private void read() throws IOException {
+      int count = channel.read(input);
+      if (count == -1) {
+        processInput();
+        if (document.hasLine() && !waitingForService && channel.isOpen()) {
+          processLine();
+        }
+        close();
+      } else if (count > 0) {
+        processInput();
+      }
+    }
+
+    /**
+     * Split the buffered input into lines, which are appended to the current
+     * document. Stops while the client waits for the service and keeps the
+     * remaining input.
+     */
+    private void processInput() throws IOException {
+      input.flip();
+      while (input.hasRemaining() && !waitingForService && !closing) {
+        if (skipLineFeed && input.get(input.position()) == '\n') {
+          input.get();
+        }
+        skipLineFeed = false;
+
+        if (!binary) {
+          readLine();
+        } else if (!readFrame()) {
+          break;
+        }
+      }
+      input.compact();
+    }
+
+    private void readLine() throws IOException {
+      int end = input.position();
+      while (end < input.limit() && input.get(end) != '\n'
+          && input.get(end) != '\r') {
+        end++;
+      }
+      document.append(input, end - input.position());
+      if (end < input.limit()) {
+        skipLineFeed = input.get() == '\r';
+        processLine();
+      }
+    }
+
+    /**
+     * Collect the bytes of a frame of the binary protocol and handle it once
+     * it is complete.
+     *
+     * @return false, if more input is required
+     */
+    private boolean readFrame() throws IOException {
+      if (frame == null) {
+        if (input.remaining() < Integer.BYTES) {
+          return false;
+        }
+        int length = input.getInt();
+        if (length <= 0 || length > BinaryInput.MAX_FRAME_SIZE) {
+          throw new IOException("Invalid frame length " + length);
+        }
+        frame = new DocumentBuffer(length);
+      }
+      frame.append(input, Math.min(input.remaining(), frame.missing()));
+      if (owner == this) {
+        lastFed = System.nanoTime();
+      }
+      if (frame.missing() > 0) {
+        return true;
+      }
+
+      DocumentBuffer message = frame;
+      frame = null;
+      if (message.firstByte() == BinaryInput.RELEASE) {
+        logger.info("Release command detected.");
+        release();
+      } else {
+        submit(() -> readBinaryModel(message.toByteBuffer()));
+      }
+      return true;
+    }
+
+    private void processLine() throws IOException {
+      if (owner == this) {
+        lastFed = System.nanoTime();
+      }
+
+      int endCharIndex = document.indexInLine(DATA_END);
+
+      if (document.lineEquals(RESERVE_GVS)) {
+        document.removeLine();
+        logger.info("Reserve command detected.");
+        if (monitor.tryReserveService(remoteHost)) {
+          granted();
+        } else {
+          waitingForService = true;
+          waiting.add(this);
+          updateInterest();
+        }
+      } else if (document.lineEquals(RELEASE_GVS)) {
+        document.removeLine();
+        logger.info("Release command detected.");
+        release();
+      } else if (document.lineEquals(BINARY_GVS)) {
+        document.removeLine();
+        logger.info("Binary protocol requested.");
+        binary = true;
+        send(OK);
+      } else if (document.lineStartsWith(VALIDATION_GVS)) {
+        String modeName = document.lineText(VALIDATION_GVS.length);
+        document.removeLine();
+        changeValidation(modeName);
+      } else if (endCharIndex != -1) {
+        logger.info("End of data detected.");
+        document.truncate(endCharIndex);
+        DocumentBuffer fullGraph = document;
+        boolean validate = validation.validates(documentCount++, sampleRate);
+        submit(() -> readAndTransformModel(fullGraph.toInputStream(),
+            validate));
+        document = new DocumentBuffer();
+      } else {
+        logger.info("Data detected");
+        document.endLine();
+      }
+    }
+
+    /**
+     * Change the validation of the following documents of this client.
+     */
+    private void changeValidation(String modeName) {
+      try {
+        validation = ValidationMode.byName(modeName);
+        logger.info("Validation changed to {}", validation.getMode());
+      } catch (IllegalArgumentException e) {
+        logger.warn("Validation {} not supported", modeName);
+      }
+    }
+
+    /**
+     * The client owns the service now.
+     */
+    private void granted() throws IOException {
+      logger.info("Service reserved.");
+      owner = this;
+      lastFed = System.nanoTime();
+      waitingForService = false;
+      send(OK);
+    }
+
+    /**
+     * The waiting client got the service. Continue with its remaining input.
+     */
+    void resume() {
+      try {
+        granted();
+        processInput();
+        updateInterest();
+      } catch (IOException e) {
+        logger.error("Unable to answer client {}", remoteHost, e);
+        close();
+      }
+    }
+
+    /**
+     * Release the service once the queued documents of this client are
+     * built. The documents of the next owner must not be built at the same
+     * time, because the model builder notifies its observers of one model at
+     * a time.
+     */
+    private void release() {
+      closing = true;
+      if (output == null) {
+        close();
+      }
+      lastDocument.whenComplete((result, error) -> runOnLoop(() -> {
+        if (owner == this) {
+          owner = null;
+        }
+        monitor.releaseService(remoteHost);
+      }));
+    }
+
+    /**
+     * Queue a document after the previous documents of this client. Reading
+     * is paused while too many documents are waiting for a worker.
+     */
+    private void submit(Runnable buildModel) {
+      pendingDocuments++;
+      updateInterest();
+      lastDocument = lastDocument.thenRunAsync(() -> {
+        try {
+          buildModel.run();
+        } finally {
+          runOnLoop(() -> {
+            pendingDocuments--;
+            if (owner == this) {
+              lastFed = System.nanoTime();
+            }
+            updateInterest();
+          });
+        }
+      }, workers);
+    }
+
+    private void send(String message) throws IOException {
+      byte[] bytes = (message + System.lineSeparator()).getBytes();
+      if (output == null) {
+        output = ByteBuffer.wrap(bytes);
+      } else {
+        ByteBuffer joined = ByteBuffer
+            .allocate(output.remaining() + bytes.length);
+        joined.put(output).put(bytes).flip();
+        output = joined;
+      }
+      flush();
+    }
+
+    private void flush() throws IOException {
+      channel.write(output);
+      if (!output.hasRemaining()) {
+        output = null;
+        if (closing) {
+          close();
+          return;
+        }
+      }
+      updateInterest();
+    }
+
+    private void updateInterest() {
+      if (!key.isValid()) {
+        return;
+      }
+      int operations = 0;
+      if (!waitingForService && !closing
+          && pendingDocuments < MAX_PENDING_DOCUMENTS) {
+        operations |= SelectionKey.OP_READ;
+      }
+      if (output != null) {
+        operations |= SelectionKey.OP_WRITE;
+      }
+      key.interestOps(operations);
+    }
+
+    private void close() {
+      closing = true;
+      waiting.remove(this);
+      key.cancel();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.warn("Cannot close connection of client {}", remoteHost, e);
+      }
+    }
+  }
+
+  /**
+   * Raw bytes of a received document without line breaks. The last line is
+   * kept apart until it is complete, because it may be a protocol command.
+   */
+  private static final class DocumentBuffer {
+
+    private byte[] bytes;
+    private int size;
+    private int lineStart;
+
+    DocumentBuffer() {
+      this(INITIAL_DOCUMENT_SIZE);
+    }
+
+    /**
+     * @param capacity
+     *          initial capacity, which is the full size of a binary frame
+     */
+    DocumentBuffer(int capacity) {
+      bytes = new byte[capacity];
+    }
+
+    /**
+     * @return bytes missing to fill the initial capacity
+     */
+    int missing() {
+      return bytes.length - size;
+    }
+
+    int firstByte() {
+      return bytes[0];
+    }
+
+    void append(ByteBuffer source, int length) {
+      if (size + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes,
+            Math.max(size + length, 2 * bytes.length));
+      }
+      source.get(bytes, size, length);
+      size += length;
+    }
+
+    boolean hasLine() {
+      return size > lineStart;
+    }
+
+    boolean lineEquals(byte[] text) {
+      return Arrays.equals(bytes, lineStart, size, text, 0, text.length);
+    }
+
+    boolean lineStartsWith(byte[] text) {
+      return size - lineStart >= text.length && Arrays.equals(bytes,
+          lineStart, lineStart + text.length, text, 0, text.length);
+    }
+
+    /**
+     * @return the last line from the given offset on
+     */
+    String lineText(int offset) {
+      return new String(bytes, lineStart + offset, size - lineStart - offset);
+    }
+
+    /**
+     * @return index of the first occurrence in the last line or -1
+     */
+    int indexInLine(byte b) {
+      for (int i = lineStart; i < size; i++) {
+        if (bytes[i] == b) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    void endLine() {
+      lineStart = size;
+    }
+
+    void removeLine() {
+      size = lineStart;
+    }
+
+    void truncate(int length) {
+      size = length;
+      lineStart = Math.min(lineStart, size);
+    }
+
+    InputStream toInputStream() {
+      return new ByteArrayInputStream(bytes, 0, size);
+    }
+
+    ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(bytes, 0, size);
+    }
+  }
+}
@@ -23,7 +23,9 @@ import gvs.util.Configuration;
 /**
  * Socket Endpoint of GVS UI. The server is running in its own thread.
  * 
- * For each incoming request, a new {@link ClientConnection} is created.
+ * In blocking mode, a new {@link ClientConnection} thread is created for each
+ * incoming request. In nio mode, all clients are served by a
+ * {@link SelectorServer} on this thread.
  * 
  * @author mwieland
  */
@@ -34,8 +36,10 @@ public class SocketServer extends Thread {
 
   private final Configuration configuration;
   private final ClientConnectionFactory connectionFactory;
+  private final SelectorServer selectorServer;
 
   private static final String THREAD_NAME = "Socket Server Thread";
+  private static final String BLOCKING_MODE = "blocking";
 
   private static final Logger logger = LoggerFactory
       .getLogger(SocketServer.class);;
@@ -45,15 +49,18 @@ public class SocketServer extends Thread {
    * 
    * @param factory
    *          factory for incomming client connection
+   * @param selectorServer
+   *          non-blocking server used in nio mode
    * @param configuration
    *          configuration wrapper
    */
   @Inject
   public SocketServer(ClientConnectionFactory factory,
-      Configuration configuration) {
+      SelectorServer selectorServer, Configuration configuration) {
 
     super(THREAD_NAME);
     this.connectionFactory = factory;
+    this.selectorServer = selectorServer;
     this.configuration = configuration;
 
     this.hostname = getLocalHostName();
@@ -65,6 +72,17 @@ public class SocketServer extends Thread {
    */
   @Override
   public void run() {
+    if (BLOCKING_MODE.equals(configuration.getServerMode())) {
+      runBlocking();
+    } else {
+      runSelector();
+    }
+  }
+
+  /**
+   * Serve each client on its own thread.
+   */
+  private void runBlocking() {
     try (ServerSocket javaSocket = new ServerSocket(port)) {
       logger.info("Server is running on {}:{}", hostname, port);
 
@@ -80,6 +98,19 @@ public class SocketServer extends Thread {
     }
   }
 
+  /**
+   * Serve all clients on this thread.
+   */
+  private void runSelector() {
+    try {
+      logger.info("Server is running on {}:{}", hostname, port);
+      selectorServer.serve(port);
+    } catch (IOException e) {
+      logger.error("Cannot open Server Socket. Service may already be running.",
+          e);
+    }
+  }
+
   private String getLocalHostName() {
     try {
       return InetAddress.getLocalHost().getHostName();
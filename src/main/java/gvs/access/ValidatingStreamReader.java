@@ -0,0 +1,138 @@
+package gvs.access;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Validates a document while it is read. Every event, which the consumer
+ * pulls from the reader, is passed to a {@link ValidatorHandler}, so the
+ * document is validated in the same pass as it is parsed.
+ *
+ * Validation errors are thrown as {@link XMLStreamException} by the call
+ * which reads the invalid part of the document.
+ *
+ * @author mwieland
+ */
+final class ValidatingStreamReader extends StreamReaderDelegate {
+
+  private final ValidatorHandler validator;
+  private final AttributesImpl attributes = new AttributesImpl();
+  private int depth;
+
+  /**
+   * Constructor.
+   *
+   * @param reader
+   *          reader positioned at the start of the document
+   * @param validator
+   *          validator of the document. Reused for the next document
+   * @throws XMLStreamException
+   *           if the validator cannot be started
+   */
+  ValidatingStreamReader(XMLStreamReader reader, ValidatorHandler validator)
+      throws XMLStreamException {
+
+    super(reader);
+    this.validator = validator;
+    try {
+      validator.startDocument();
+    } catch (SAXException e) {
+      throw new XMLStreamException(e.getMessage(), getLocation(), e);
+    }
+  }
+
+  @Override
+  public int next() throws XMLStreamException {
+    int event = super.next();
+    try {
+      switch (event) {
+      case XMLStreamConstants.START_ELEMENT:
+        depth++;
+        validator.startElement(namespace(), getLocalName(), getLocalName(),
+            collectAttributes());
+        break;
+      case XMLStreamConstants.END_ELEMENT:
+        validator.endElement(namespace(), getLocalName(), getLocalName());
+        if (--depth == 0) {
+          validator.endDocument();
+        }
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.CDATA:
+      case XMLStreamConstants.SPACE:
+        validator.characters(getTextCharacters(), getTextStart(),
+            getTextLength());
+        break;
+      default:
+        break;
+      }
+    } catch (SAXException e) {
+      throw new XMLStreamException(e.getMessage(), getLocation(), e);
+    }
+    return event;
+  }
+
+  /**
+   * Same as {@link XMLStreamReader#nextTag()}, but all events pass
+   * {@link #next()}.
+   */
+  @Override
+  public int nextTag() throws XMLStreamException {
+    int event = next();
+    while (event == XMLStreamConstants.SPACE
+        || event == XMLStreamConstants.COMMENT
+        || event == XMLStreamConstants.PROCESSING_INSTRUCTION
+        || (event == XMLStreamConstants.CHARACTERS && isWhiteSpace())) {
+      event = next();
+    }
+    if (event != XMLStreamConstants.START_ELEMENT
+        && event != XMLStreamConstants.END_ELEMENT) {
+      throw new XMLStreamException("Expected start or end tag", getLocation());
+    }
+    return event;
+  }
+
+  /**
+   * Same as {@link XMLStreamReader#getElementText()}, but all events pass
+   * {@link #next()}.
+   */
+  @Override
+  public String getElementText() throws XMLStreamException {
+    StringBuilder text = new StringBuilder();
+    int event = next();
+    while (event != XMLStreamConstants.END_ELEMENT) {
+      if (event == XMLStreamConstants.CHARACTERS
+          || event == XMLStreamConstants.CDATA
+          || event == XMLStreamConstants.SPACE) {
+        text.append(getTextCharacters(), getTextStart(), getTextLength());
+      } else if (event != XMLStreamConstants.COMMENT
+          && event != XMLStreamConstants.PROCESSING_INSTRUCTION) {
+        throw new XMLStreamException("Expected text only", getLocation());
+      }
+      event = next();
+    }
+    return text.toString();
+  }
+
+  private String namespace() {
+    String namespace = getNamespaceURI();
+    return namespace == null ? "" : namespace;
+  }
+
+  private AttributesImpl collectAttributes() {
+    attributes.clear();
+    for (int i = 0; i < getAttributeCount(); i++) {
+      String namespace = getAttributeNamespace(i);
+      attributes.addAttribute(namespace == null ? "" : namespace,
+          getAttributeLocalName(i), getAttributeLocalName(i), "CDATA",
+          getAttributeValue(i));
+    }
+    return attributes;
+  }
+}
@@ -0,0 +1,92 @@
+package gvs.access;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gvs.util.Configuration;
+
+/**
+ * Defines which received documents are validated against the
+ * {@link GvsSchema}. Invalid documents are rejected.
+ *
+ * @author mwieland
+ *
+ */
+public enum ValidationMode {
+
+  /**
+   * Every document is validated.
+   */
+  STRICT("strict"),
+
+  /**
+   * The first and then every n-th document of a connection is validated.
+   */
+  SAMPLED("sampled"),
+
+  /**
+   * No document is validated. For trusted clients with high data rates.
+   */
+  OFF("off");
+
+  private final String mode;
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(ValidationMode.class);
+
+  ValidationMode(String mode) {
+    this.mode = mode;
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  /**
+   * Decide whether a document of a connection is validated.
+   *
+   * @param documentIndex
+   *          index of the document within its connection, starting at 0
+   * @param sampleRate
+   *          every sampleRate-th document is validated in sampled mode
+   * @return true if the document is validated
+   */
+  public boolean validates(long documentIndex, int sampleRate) {
+    switch (this) {
+    case STRICT:
+      return true;
+    case SAMPLED:
+      return documentIndex % Math.max(1, sampleRate) == 0;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Resolve a validation mode by its configuration name.
+   *
+   * @param modeName
+   *          configured name, e.g. "sampled"
+   * @return validation mode
+   */
+  public static ValidationMode byName(String modeName) {
+    return valueOf(modeName.trim().toUpperCase());
+  }
+
+  /**
+   * Resolve the configured default validation mode of new connections.
+   *
+   * @param configuration
+   *          configuration wrapper
+   * @return configured mode or strict, if the mode is unknown
+   */
+  static ValidationMode load(Configuration configuration) {
+    try {
+      return byName(configuration.getValidation());
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation {} not supported. Use strict",
+          configuration.getValidation());
+      return STRICT;
+    }
+  }
+}
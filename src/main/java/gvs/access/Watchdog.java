@@ -26,7 +26,7 @@ public class Watchdog implements Runnable {
 
   private final ConnectionMonitor monitor;
 
-  private static final int WATCH_TIME = 1000;
+  static final int WATCH_TIME = 1000;
   private static final int INTERVAL = 100;
   private static final Logger logger = LoggerFactory.getLogger(Watchdog.class);
 
@@ -15,6 +15,7 @@ import gvs.access.Persistor;
 import gvs.business.logic.layouter.ILayouter;
 import gvs.model.ClientData;
 import gvs.model.Graph;
+import gvs.model.GraphDelta;
 import gvs.model.ISessionType;
 import gvs.model.Session;
 import gvs.model.SessionFactory;
@@ -135,7 +136,11 @@ public class ApplicationController implements Observer {
     ISessionType sessionType = data.getSessionType();
     Graph graph = data.getGraph();
 
-    addGraphToSession(graph, sessionId, sessionName, sessionType);
+    if (data.getDelta() != null) {
+      addDeltaToSession(data.getDelta(), sessionId);
+    } else {
+      addGraphToSession(graph, sessionId, sessionName, sessionType);
+    }
   }
 
   /**
@@ -156,14 +161,10 @@ public class ApplicationController implements Observer {
 
     logger.info("Received new graph");
 
-    Session session = null;
-    for (Session existingSession : sessionHolder.getSessions()) {
-      if (existingSession.getId() == sessionId) {
-        logger.info("Add graph to exsting session");
-        session = existingSession;
-      }
-    }
-    if (session == null) {
+    Session session = findSession(sessionId);
+    if (session != null) {
+      logger.info("Add graph to exsting session");
+    } else {
       logger.info("Create new session");
       session = sessionFactory.createSession(sessionType, sessionId,
           sessionName);
@@ -171,7 +172,51 @@ public class ApplicationController implements Observer {
     }
 
     session.addGraph(graph);
+    showNewGraph(session, graph);
+  }
+
+  /**
+   * Adds the next graph of an existing session, which is built from the last
+   * graph of the session and the received changes. A delta, which does not
+   * apply to the last graph, is logged and dropped.
+   * 
+   * @param delta
+   *          changes of the last graph
+   * @param sessionId
+   *          Id
+   */
+  public synchronized void addDeltaToSession(GraphDelta delta,
+      long sessionId) {
+
+    logger.info("Received delta with {} changes", delta.size());
+
+    Session session = findSession(sessionId);
+    if (session == null || session.getGraphs().isEmpty()) {
+      logger.warn("No graph in session {} to apply the delta to", sessionId);
+      return;
+    }
+
+    Graph graph;
+    try {
+      graph = session.applyDelta(delta);
+    } catch (IllegalArgumentException e) {
+      logger.error("Cannot apply delta to session {}", sessionId, e);
+      return;
+    }
+    showNewGraph(session, graph);
+  }
+
+  private Session findSession(long sessionId) {
+    Session session = null;
+    for (Session existingSession : sessionHolder.getSessions()) {
+      if (existingSession.getId() == sessionId) {
+        session = existingSession;
+      }
+    }
+    return session;
+  }
 
+  private void showNewGraph(Session session, Graph graph) {
     ILayouter layouter = session.getSessionType().getLayouter();
     layouter.layout(session);
 
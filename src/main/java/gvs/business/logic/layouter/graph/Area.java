@@ -1,12 +1,20 @@
 package gvs.business.logic.layouter.graph;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gvs.model.graph.GraphVertex;
+
 /**
  * Layout area where the elements are set to their positions.
  * 
@@ -17,22 +25,64 @@ public class Area extends Observable {
 
   private AreaDimension dimension;
   private RepulsiveForce repulsiveForce;
+  private RepulsionMode repulsionMode;
 
   private double viscosity;
-  private boolean isStable = false;
-
-  private final List<Particle> particles = new ArrayList<>();
+  private double theta;
+  private double cutoff;
+  private long seed;
+  private volatile boolean isStable = false;
+  // stable by its own, not stopped by the layout guard or a limit
+  private volatile boolean isConverged;
+
+  private final ParticleStore particles = new ParticleStore();
   private final List<Traction> tractions = new ArrayList<>();
+  private final Map<Long, Integer> slotsByVertexId = new HashMap<>();
+  private final QuadTree quadTree = new QuadTree();
+  private final SpatialGrid grid = new SpatialGrid();
+  private final List<ForceWorker> workers = new ArrayList<>();
+
+  private final double centerX;
+  private final double centerY;
+
+  private ForkJoinPool pool;
+
+  // adaptive step, see Hu: Efficient and high quality force-directed graph
+  // drawing
+  private double step;
+  private double previousEnergy;
+  private int progress;
+  private int calmIterations;
+  private int iterations;
 
   // how fast accelerated particles slow down
   private static final double DEFAULT_VISCOSITY = 0.15;
 
-  private static final int DIMENSIONS = 2;
+  // accuracy of the Barnes-Hut approximation. 0 = exact
+  private static final double DEFAULT_THETA = 0.8;
+
+  // particles further apart do not repel each other in grid mode
+  private static final double DEFAULT_CUTOFF = 600;
+
   private static final int DEFAULT_DISTANCE = 20;
+  private static final double CENTER_PULL = 2;
   private static final int OFFSET_Y = 10;
   private static final int OFFSET_X = 30;
   private static final double DEFAULT_PERCENTAGE = 0.9;
 
+  // below this size, parallel computation costs more than it saves
+  private static final int MIN_PARALLEL_PARTICLES = 256;
+
+  // the step shrinks by this factor if the energy does not decrease
+  private static final double COOLING = 0.95;
+  private static final double MAX_STEP = 1;
+  private static final double MIN_STEP = 0.01;
+  // the step grows again after this many iterations with decreasing energy
+  private static final int PROGRESS_ITERATIONS = 5;
+  // converged, if the relative energy change stays below the tolerance
+  private static final double ENERGY_TOLERANCE = 1e-3;
+  private static final int CALM_ITERATIONS = 10;
+
   private static final Logger logger = LoggerFactory.getLogger(Area.class);
 
   /**
@@ -45,7 +95,16 @@ public class Area extends Observable {
   public Area(AreaDimension dimension) {
     this.dimension = dimension;
     this.viscosity = DEFAULT_VISCOSITY;
+    this.theta = DEFAULT_THETA;
+    this.cutoff = DEFAULT_CUTOFF;
+    this.repulsionMode = RepulsionMode.EXACT;
     this.repulsiveForce = new RepulsiveForce();
+
+    AreaPoint center = dimension.getCenter();
+    this.centerX = center.getX();
+    this.centerY = center.getY();
+    this.workers.add(new ForceWorker(0, 1));
+    resetConvergence();
   }
 
   /**
@@ -69,13 +128,133 @@ public class Area extends Observable {
   }
 
   /**
-   * Places new particles in area, so their positions can be calculated.
+   * Sets the strategy used to compute repulsive forces.
+   * 
+   * @param mode
+   *          repulsion mode
+   */
+  public void setRepulsionMode(RepulsionMode mode) {
+    repulsionMode = mode;
+  }
+
+  /**
+   * Sets the accuracy of the Barnes-Hut approximation. A quadtree cell is
+   * approximated by its center of mass, if its size divided by its distance is
+   * smaller than theta. Lower values are more accurate but slower.
+   * 
+   * @param theta
+   *          accuracy threshold
+   */
+  public void setTheta(double theta) {
+    this.theta = theta;
+  }
+
+  /**
+   * Sets the radius within which particles repel each other in
+   * {@link RepulsionMode#GRID}.
+   * 
+   * @param cutoff
+   *          cutoff radius
+   */
+  public void setCutoff(double cutoff) {
+    this.cutoff = cutoff;
+  }
+
+  /**
+   * Sets the seed of the random initial positions, see {@link AreaLoader}.
+   * 
+   * @param seed
+   *          random seed
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns the grid of the last iteration in {@link RepulsionMode#GRID}. It
+   * answers neighbour queries on the current particle positions.
+   * 
+   * @return spatial grid
+   */
+  public SpatialGrid getSpatialGrid() {
+    return grid;
+  }
+
+  /**
+   * Compute the forces in parallel on the given pool. The work is split into
+   * one partition per thread of the pool. Each partition accumulates its
+   * forces in its own buffer and the buffers are always summed up in the same
+   * order, so the result only depends on the pool size.
+   * 
+   * @param forkJoinPool
+   *          pool used for the force computation or null for sequential
+   *          computation
+   */
+  public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+    this.pool = forkJoinPool;
+
+    int partitions = 1;
+    if (forkJoinPool != null) {
+      partitions = forkJoinPool.getParallelism();
+    }
+    workers.clear();
+    for (int i = 0; i < partitions; i++) {
+      workers.add(new ForceWorker(i, partitions));
+    }
+  }
+
+  /**
+   * Places a new particle in area, so its position can be calculated.
+   * 
+   * @param vertex
+   *          related vertex
+   * @param x
+   *          initial x position
+   * @param y
+   *          initial y position
+   * @param weight
+   *          particle weight
+   * @return slot of the particle
+   */
+  public int addParticle(GraphVertex vertex, double x, double y,
+      double weight) {
+    return addParticle(vertex, x, y, weight, vertex.isStable());
+  }
+
+  /**
+   * Places a new particle in area. A pinned particle keeps its position, but
+   * still attracts and repels the other particles.
    * 
-   * @param p
-   *          particle
+   * @param vertex
+   *          related vertex
+   * @param x
+   *          initial x position
+   * @param y
+   *          initial y position
+   * @param weight
+   *          particle weight
+   * @param pinned
+   *          true if the particle must not move
+   * @return slot of the particle
    */
-  public void addParticles(Particle p) {
-    particles.add(p);
+  public int addParticle(GraphVertex vertex, double x, double y,
+      double weight, boolean pinned) {
+    int slot = particles.add(vertex, x, y, weight, pinned);
+    slotsByVertexId.put(vertex.getId(), slot);
+    return slot;
+  }
+
+  /**
+   * Returns the state of all particles in this area.
+   * 
+   * @return particle store
+   */
+  public ParticleStore getParticles() {
+    return particles;
   }
 
   /**
@@ -84,6 +263,57 @@ public class Area extends Observable {
   public void resetArea() {
     tractions.clear();
     particles.clear();
+    slotsByVertexId.clear();
+    resetConvergence();
+  }
+
+  private void resetConvergence() {
+    step = MAX_STEP;
+    previousEnergy = Double.MAX_VALUE;
+    progress = 0;
+    calmIterations = 0;
+    iterations = 0;
+    isConverged = false;
+  }
+
+  /**
+   * Returns the number of iterations since the area was reset. Once the area
+   * is stable, this is the number of iterations it took to converge.
+   * 
+   * @return number of iterations
+   */
+  public int getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Returns the energy of the last iteration, the sum of the squared forces
+   * acting on moving particles.
+   * 
+   * @return system energy
+   */
+  public double getEnergy() {
+    return previousEnergy;
+  }
+
+  /**
+   * Returns the current step, which scales all forces.
+   * 
+   * @return adaptive step
+   */
+  public double getStep() {
+    return step;
+  }
+
+  /**
+   * Sets the step of the next iteration. A small initial step only refines
+   * the given positions. The step is reset with the area.
+   * 
+   * @param step
+   *          step between {@link #MIN_STEP} and 1
+   */
+  public void setStep(double step) {
+    this.step = Math.max(MIN_STEP, Math.min(MAX_STEP, step));
   }
 
   /**
@@ -106,19 +336,18 @@ public class Area extends Observable {
   }
 
   /**
-   * Returns particle with requested id.
+   * Returns the slot of the particle with requested vertex id.
    * 
    * @param vertexId
    *          vertex id
-   * @return Particle
+   * @return particle slot or -1
    */
-  public Particle getParticleByVertexId(long vertexId) {
-    for (Particle particle : particles) {
-      if (vertexId == particle.getRelatedVertex().getId()) {
-        return particle;
-      }
+  public int getSlotByVertexId(long vertexId) {
+    Integer slot = slotsByVertexId.get(vertexId);
+    if (slot == null) {
+      return -1;
     }
-    return null;
+    return slot;
   }
 
   /**
@@ -131,6 +360,17 @@ public class Area extends Observable {
     isStable = state;
   }
 
+  /**
+   * Return true if the area became stable by its own. An area, which the
+   * {@link GraphLayoutGuard} or an iteration limit stopped, is stable, but
+   * not converged.
+   * 
+   * @return is the layout converged
+   */
+  public boolean isConverged() {
+    return isConverged;
+  }
+
   /**
    * Return true if all available particles in area are stable.
    * 
@@ -143,91 +383,304 @@ public class Area extends Observable {
   /**
    * Each time the are ticker sends a pulse, updateAll method will be called. So
    * particles are accelerated into claimed direction until they are stable.
+   * 
+   * The area is stable as well, if the step is cooled down or the total energy
+   * did not change for several iterations. Oscillating particles do not keep
+   * the layout running this way.
    *
    */
   public void updateAll() {
-    logger.info("Update particle positions");
+    logger.debug("Update particle positions");
+
+    particles.resetAccelerations();
+    double energy = computeForces();
 
-    particles.forEach(p -> {
-      p.getAcceleration().resetAcc();
-    });
+    int size = particles.size();
+    for (int slot = 0; slot < size; slot++) {
+      accelerateToCenter(slot);
+      particles.scaleSpeed(slot, 1 - viscosity);
+      particles.update(slot);
+    }
 
-    tractions.forEach(t -> {
-      t.compute();
-    });
+    boolean areaStable = true;
+    for (int slot = 0; slot < size; slot++) {
+      particles.update(slot);
+      particles.limitSpeed(slot, DEFAULT_DISTANCE);
+      checkAreaBounds(slot);
+      areaStable &= particles.isStable(slot);
+    }
 
-    particles.forEach(p1 -> {
-      particles.forEach(p2 -> {
-        if (p1 != p2) {
-          repulsiveForce.compute(p1, p2);
-        }
-      });
-    });
-
-    particles.forEach(p -> {
-      AreaVector vectorToCentre = new AreaVector(p.getPointPosition(),
-          getAreaCenter());
-      vectorToCentre.scaleTo(2);
-
-      p.accelerate(vectorToCentre);
-      p.getSpeed().reduceMultiplicator(1 - viscosity);
-      p.update();
-    });
-
-    particles.forEach(p -> {
-      p.update();
-      if (p.getSpeed().getDistance() > DEFAULT_DISTANCE) {
-        p.getSpeed().scaleTo(DEFAULT_DISTANCE);
+    iterations++;
+    boolean cooledDown = updateStep(energy);
+
+    // never reset a stable flag set by the layout guard meanwhile
+    if (areaStable || cooledDown) {
+      isConverged = true;
+      setIsStable(true);
+    }
+  }
+
+  /**
+   * Propagate the current particle positions to the related vertices. The
+   * caller informs the view afterwards, see
+   * {@link gvs.model.Graph#notifyPositionListeners()}.
+   */
+  public void publishPositions() {
+    for (int slot = 0; slot < particles.size(); slot++) {
+      particles.updateRelatedVertex(slot);
+    }
+  }
+
+  /**
+   * Pull a particle towards the center of the area.
+   * 
+   * @param slot
+   *          particle slot
+   */
+  private void accelerateToCenter(int slot) {
+    double vectorX = particles.getX(slot) - centerX;
+    double vectorY = particles.getY(slot) - centerY;
+    double length = Math.sqrt(vectorX * vectorX + vectorY * vectorY);
+    if (length != 0) {
+      double scale = step * CENTER_PULL / length;
+      particles.accelerate(slot, vectorX * scale, vectorY * scale);
+    }
+  }
+
+  /**
+   * Adapt the step to the energy of the last iteration. The step shrinks if
+   * the energy did not decrease and grows again after some progress.
+   * 
+   * @param energy
+   *          energy of the last iteration
+   * @return true if the layout converged
+   */
+  private boolean updateStep(double energy) {
+    if (energy < previousEnergy) {
+      progress++;
+      if (progress >= PROGRESS_ITERATIONS) {
+        progress = 0;
+        step = Math.min(MAX_STEP, step / COOLING);
       }
-      checkAreaBounds(p);
-    });
+    } else {
+      progress = 0;
+      step *= COOLING;
+    }
 
-    // set is stable
-    boolean areaStable = particles.stream()
-        .allMatch(p -> p.getRelatedVertex().isStable());
-    setIsStable(areaStable);
+    if (Math.abs(energy - previousEnergy) <= ENERGY_TOLERANCE
+        * previousEnergy) {
+      calmIterations++;
+    } else {
+      calmIterations = 0;
+    }
+    previousEnergy = energy;
+
+    return step < MIN_STEP || calmIterations >= CALM_ITERATIONS;
   }
 
   /**
-   * Check if particles are leaving area boundaries. If true accelerate them in
-   * opposite direction.
+   * Compute the traction and repulsion forces of all particles and apply them
+   * as accelerations, scaled by the current step.
    * 
-   * @param p
-   *          particle
+   * @return energy of the moving particles
+   */
+  private double computeForces() {
+    int size = particles.size();
+    if (repulsionMode == RepulsionMode.BARNES_HUT) {
+      buildQuadTree();
+    } else if (repulsionMode == RepulsionMode.GRID) {
+      grid.build(particles, cutoff);
+    }
+
+    if (pool != null && size >= MIN_PARALLEL_PARTICLES) {
+      try {
+        for (Future<Void> result : pool.invokeAll(workers)) {
+          result.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return 0;
+      } catch (ExecutionException e) {
+        logger.error("Unable to compute forces", e);
+        return 0;
+      }
+    } else {
+      for (ForceWorker worker : workers) {
+        worker.call();
+      }
+    }
+
+    // reduce in partition order for reproducible results
+    double energy = 0;
+    for (int slot = 0; slot < size; slot++) {
+      double forceX = 0;
+      double forceY = 0;
+      for (int i = 0; i < workers.size(); i++) {
+        ForceBuffer forces = workers.get(i).forces;
+        forceX += forces.getX(slot);
+        forceY += forces.getY(slot);
+      }
+      if (!particles.isStable(slot)) {
+        energy += forceX * forceX + forceY * forceY;
+      }
+      particles.accelerate(slot, forceX * step, forceY * step);
+    }
+    return energy;
+  }
+
+  /**
+   * Insert all particles into the Barnes-Hut quadtree.
+   */
+  private void buildQuadTree() {
+    int size = particles.size();
+    if (size == 0) {
+      return;
+    }
+
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (int slot = 0; slot < size; slot++) {
+      minX = Math.min(minX, particles.getX(slot));
+      minY = Math.min(minY, particles.getY(slot));
+      maxX = Math.max(maxX, particles.getX(slot));
+      maxY = Math.max(maxY, particles.getY(slot));
+    }
+
+    quadTree.reset(minX, minY, Math.max(maxX - minX, maxY - minY));
+    for (int slot = 0; slot < size; slot++) {
+      quadTree.insert(slot, particles.getX(slot), particles.getY(slot),
+          particles.getWeight(slot));
+    }
+  }
+
+  /**
+   * Computes the forces of one partition of the tractions and particles.
    */
-  private void checkAreaBounds(Particle p) {
+  private class ForceWorker implements Callable<Void>,
+      QuadTree.ClusterVisitor, SpatialGrid.NeighbourVisitor {
 
-    AreaPoint pos = p.getPointPosition();
-    AreaVector vel = p.getSpeed();
+    private final int partition;
+    private final int partitions;
+    private final ForceBuffer forces = new ForceBuffer();
+    private final int[] stack = QuadTree.createStack();
 
-    int offx = OFFSET_X;
-    int offy = OFFSET_Y;
+    // slot of the particle whose Barnes-Hut or grid forces are computed
+    private int currentSlot;
 
-    for (int i = 0; i < DIMENSIONS; i++) {
-      int off = 0;
+    ForceWorker(int partition, int partitions) {
+      this.partition = partition;
+      this.partitions = partitions;
+    }
 
-      if (i == 0) {
-        off = offx;
-      } else if (i == 1) {
-        off = offy;
+    @Override
+    public Void call() {
+      int size = particles.size();
+      forces.clear(size);
+
+      int tractionCount = tractions.size();
+      int lastTraction = end(tractionCount);
+      for (int i = start(tractionCount); i < lastTraction; i++) {
+        Traction traction = tractions.get(i);
+        if (!particles.isStable(traction.getFrom())
+            || !particles.isStable(traction.getTo())) {
+          traction.compute(particles, forces);
+        }
       }
 
-      double ua = dimension.getStart(i) + off;
-      double uc = dimension.getEnd(i) - off;
-      double ub = pos.getField(i);
+      // stable particles ignore any force
+      int lastSlot = end(size);
+      for (int slot = start(size); slot < lastSlot; slot++) {
+        if (particles.isStable(slot)) {
+          continue;
+        }
+        currentSlot = slot;
+        if (repulsionMode == RepulsionMode.BARNES_HUT) {
+          quadTree.visit(slot, particles.getX(slot), particles.getY(slot),
+              particles.getWeight(slot), theta, this, stack);
+        } else if (repulsionMode == RepulsionMode.GRID) {
+          grid.visitNeighbours(particles.getX(slot), particles.getY(slot),
+              cutoff, this);
+        } else {
+          computePairwiseRepulsion(slot, size);
+        }
+      }
+      return null;
+    }
 
-      if (ua > uc) {
-        return;
+    /**
+     * Compute the repulsive force between a particle and every other one.
+     * Stable particles do not compute their own forces, so their part of the
+     * pair is computed here as well.
+     */
+    private void computePairwiseRepulsion(int slot, int size) {
+      for (int other = 0; other < size; other++) {
+        if (slot == other) {
+          continue;
+        }
+        if (particles.isStable(other)) {
+          visit(other);
+        } else {
+          repulsiveForce.compute(particles, forces, slot, other);
+        }
       }
+    }
+
+    @Override
+    public void visit(double x, double y, double weight, int size) {
+      repulsiveForce.compute(particles, forces, currentSlot, x, y, weight,
+          size);
+    }
 
-      if (ub < ua) {
-        pos.setField(i, ua);
-        vel.setField(i, -DEFAULT_PERCENTAGE * vel.getField(i));
-      } else if (ub > uc) {
-        pos.setField(i, uc);
-        vel.setField(i, -DEFAULT_PERCENTAGE * vel.getField(i));
+    @Override
+    public void visit(int slot) {
+      if (slot != currentSlot) {
+        repulsiveForce.compute(particles, forces, currentSlot,
+            particles.getX(slot), particles.getY(slot),
+            particles.getWeight(slot), 1);
       }
+    }
+
+    private int start(int count) {
+      return (int) ((long) count * partition / partitions);
+    }
+
+    private int end(int count) {
+      return (int) ((long) count * (partition + 1) / partitions);
+    }
+  }
+
+  /**
+   * Check if particles are leaving area boundaries. If true accelerate them in
+   * opposite direction.
+   * 
+   * @param slot
+   *          particle slot
+   */
+  private void checkAreaBounds(int slot) {
+    double minX = dimension.getStart(0) + OFFSET_X;
+    double maxX = dimension.getEnd(0) - OFFSET_X;
+    if (minX > maxX) {
+      return;
+    }
+    double x = particles.getX(slot);
+    if (x < minX || x > maxX) {
+      particles.setX(slot, Math.max(minX, Math.min(maxX, x)));
+      particles.setSpeedX(slot,
+          -DEFAULT_PERCENTAGE * particles.getSpeedX(slot));
+    }
 
+    double minY = dimension.getStart(1) + OFFSET_Y;
+    double maxY = dimension.getEnd(1) - OFFSET_Y;
+    if (minY > maxY) {
+      return;
+    }
+    double y = particles.getY(slot);
+    if (y < minY || y > maxY) {
+      particles.setY(slot, Math.max(minY, Math.min(maxY, y)));
+      particles.setSpeedY(slot,
+          -DEFAULT_PERCENTAGE * particles.getSpeedY(slot));
     }
   }
 }
@@ -0,0 +1,324 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import gvs.model.Graph;
+import gvs.model.IEdge;
+import gvs.model.IVertex;
+import gvs.model.graph.GraphVertex;
+
+/**
+ * Creates the particles and tractions of a graph in a layout area.
+ * 
+ * @author mwieland
+ *
+ */
+public final class AreaLoader {
+
+  static final int PARTICLE_WEIGHT = 50;
+  static final int TRACTION_IMPACT = 50;
+  static final int TRACTION_DISTANCE = 150;
+
+  // new vertices are placed within this distance of a known neighbour
+  private static final double NEIGHBOUR_OFFSET = TRACTION_DISTANCE / 2.0;
+  // the repulsion stretches edges well beyond the traction distance
+  static final double PLACEMENT_EDGE_LENGTH = 4 * TRACTION_DISTANCE;
+  // placed particles start with a small step, they only need to be refined
+  static final double PLACEMENT_STEP = 0.1;
+  // separates vertices which pivot MDS places at the same position
+  private static final double PLACEMENT_JITTER = 5;
+
+  private AreaLoader() {
+  }
+
+  /**
+   * Reset the area and create particles and tractions. Particles start at
+   * positions computed by {@link PivotMds}, centered in the area.
+   * 
+   * @param area
+   *          layout area
+   * @param graph
+   *          graph to layout
+   */
+  public static void load(Area area, Graph graph) {
+    load(area, graph, Collections.emptyMap());
+  }
+
+  /**
+   * Reset the area and create particles and tractions. Particles of vertices
+   * which exist in a former graph start at the former position, all others at
+   * random positions. Particles, which would start at the same position, are
+   * moved apart slightly, because coincident particles exert no forces on
+   * each other. Without a former graph, all particles start at positions
+   * computed by {@link PivotMds}.
+   * 
+   * @param area
+   *          layout area
+   * @param graph
+   *          graph to layout
+   * @param formerVertices
+   *          vertices of a former graph by id
+   */
+  public static void load(Area area, Graph graph,
+      Map<Long, IVertex> formerVertices) {
+
+    area.setIsStable(false);
+    area.resetArea();
+
+    Random random = createRandom(area, graph);
+    Map<Long, AreaPoint> initialPositions = Collections.emptyMap();
+    if (formerVertices.isEmpty()) {
+      initialPositions = computeInitialPositions(area, graph, random);
+      area.setStep(PLACEMENT_STEP);
+    }
+    createVertexParticles(area, graph.getVertices(), formerVertices,
+        initialPositions, random);
+    createEdgeTractions(area, graph.getEdges());
+  }
+
+  /**
+   * Place the vertices by pivot MDS around the center of the area.
+   * 
+   * @return initial position by vertex id
+   */
+  private static Map<Long, AreaPoint> computeInitialPositions(Area area,
+      Graph graph, Random random) {
+
+    List<IVertex> vertices = new ArrayList<>(graph.getVertices());
+    Map<Long, Integer> indices = new HashMap<>();
+    for (int i = 0; i < vertices.size(); i++) {
+      indices.put(vertices.get(i).getId(), i);
+    }
+
+    List<List<Integer>> neighbours = new ArrayList<>();
+    vertices.forEach(v -> neighbours.add(new ArrayList<>()));
+    graph.getEdges().forEach(e -> {
+      int from = indices.get(e.getStartVertex().getId());
+      int to = indices.get(e.getEndVertex().getId());
+      if (from != to) {
+        neighbours.get(from).add(to);
+        neighbours.get(to).add(from);
+      }
+    });
+    int[][] adjacency = new int[vertices.size()][];
+    for (int i = 0; i < adjacency.length; i++) {
+      adjacency[i] = neighbours.get(i).stream().mapToInt(Integer::intValue)
+          .toArray();
+    }
+
+    double[][] positions = PivotMds.computePositions(adjacency,
+        PLACEMENT_EDGE_LENGTH);
+    double centerX = area.getUniverseDimension().dimensionWidth() / 2;
+    double centerY = area.getUniverseDimension().dimensionHeight() / 2;
+    Map<Long, AreaPoint> initialPositions = new HashMap<>();
+    for (int i = 0; i < adjacency.length; i++) {
+      double x = centerX + positions[0][i]
+          + generateJitter(PLACEMENT_JITTER, random);
+      double y = centerY + positions[1][i]
+          + generateJitter(PLACEMENT_JITTER, random);
+      initialPositions.put(vertices.get(i).getId(), new AreaPoint(x, y));
+    }
+    return initialPositions;
+  }
+
+  /**
+   * Reset the area and prepare an incremental layout of a graph which differs
+   * only slightly from its former graph.
+   * 
+   * Vertices of the former graph keep their former positions and are pinned.
+   * Only new vertices and their direct neighbours are simulated. New vertices
+   * start next to a known neighbour, if there is one.
+   * 
+   * @param area
+   *          layout area
+   * @param graph
+   *          graph to layout
+   * @param formerVertices
+   *          vertices of the layouted former graph by id
+   */
+  public static void loadIncremental(Area area, Graph graph,
+      Map<Long, IVertex> formerVertices) {
+
+    area.setIsStable(false);
+    area.resetArea();
+
+    Random random = createRandom(area, graph);
+    Set<Long> activeIds = new HashSet<>();
+    Map<Long, IVertex> anchors = new HashMap<>();
+    graph.getVertices().forEach(v -> {
+      if (!formerVertices.containsKey(v.getId())) {
+        activeIds.add(v.getId());
+      }
+    });
+    graph.getEdges().forEach(e -> {
+      long fromId = e.getStartVertex().getId();
+      long toId = e.getEndVertex().getId();
+      if (activeIds.contains(fromId) || activeIds.contains(toId)) {
+        addAnchor(anchors, fromId, formerVertices.get(toId));
+        addAnchor(anchors, toId, formerVertices.get(fromId));
+        activeIds.add(fromId);
+        activeIds.add(toId);
+      }
+    });
+
+    graph.getVertices().forEach(vertex -> {
+      GraphVertex graphVertex = (GraphVertex) vertex;
+      IVertex formerVertex = formerVertices.get(vertex.getId());
+
+      AreaPoint position;
+      if (formerVertex != null) {
+        position = new AreaPoint(formerVertex.getXPosition(),
+            formerVertex.getYPosition());
+      } else if (graphVertex.isUserPositioned()) {
+        position = new AreaPoint(graphVertex.getXPosition(),
+            graphVertex.getYPosition());
+      } else if (anchors.containsKey(vertex.getId())) {
+        position = generatePointNear(anchors.get(vertex.getId()), random);
+      } else {
+        position = generateRandomPoint(area, random);
+      }
+
+      boolean pinned = graphVertex.isUserPositioned()
+          || !activeIds.contains(vertex.getId());
+      graphVertex.setStable(pinned);
+      area.addParticle(graphVertex, position.getX(), position.getY(),
+          PARTICLE_WEIGHT, pinned);
+    });
+
+    graph.getEdges().forEach(e -> {
+      int fromSlot = area.getSlotByVertexId(e.getStartVertex().getId());
+      int toSlot = area.getSlotByVertexId(e.getEndVertex().getId());
+      area.addTraction(new Traction(fromSlot, toSlot, TRACTION_IMPACT,
+          TRACTION_DISTANCE));
+    });
+  }
+
+  /**
+   * The random positions depend on the seed of the area and the structure of
+   * the graph only, so the same graph is always layouted the same way.
+   */
+  private static Random createRandom(Area area, Graph graph) {
+    return new Random(area.getSeed() ^ GraphHash.toSeed(
+        GraphHash.compute(graph)));
+  }
+
+  private static void addAnchor(Map<Long, IVertex> anchors, long vertexId,
+      IVertex neighbour) {
+    if (neighbour != null) {
+      anchors.putIfAbsent(vertexId, neighbour);
+    }
+  }
+
+  /**
+   * Creates a particle for each vertex.
+   */
+  private static void createVertexParticles(Area area,
+      Collection<IVertex> vertices, Map<Long, IVertex> formerVertices,
+      Map<Long, AreaPoint> initialPositions, Random random) {
+
+    Set<List<Double>> occupied = new HashSet<>();
+    vertices.forEach(vertex -> {
+
+      GraphVertex graphVertex = (GraphVertex) vertex;
+
+      if (!graphVertex.isUserPositioned() && !graphVertex.isStable()) {
+
+        IVertex formerVertex = formerVertices.get(vertex.getId());
+        AreaPoint position;
+        if (formerVertex != null) {
+          position = new AreaPoint(formerVertex.getXPosition(),
+              formerVertex.getYPosition());
+          while (!occupied
+              .add(Arrays.asList(position.getX(), position.getY()))) {
+            position = generatePointAround(area, position, random);
+          }
+        } else if (initialPositions.containsKey(vertex.getId())) {
+          position = initialPositions.get(vertex.getId());
+        } else {
+          position = generateRandomPoint(area, random);
+        }
+        area.addParticle(graphVertex, position.getX(), position.getY(),
+            PARTICLE_WEIGHT);
+      }
+    });
+  }
+
+  /**
+   * Create edge tractions between related vertices.
+   */
+  private static void createEdgeTractions(Area area, Collection<IEdge> edges) {
+    edges.forEach(e -> {
+      GraphVertex vertexFrom = (GraphVertex) e.getStartVertex();
+      GraphVertex vertexTo = (GraphVertex) e.getEndVertex();
+
+      if (!vertexFrom.isUserPositioned() && !vertexTo.isUserPositioned()
+          && !vertexFrom.isStable() && !vertexTo.isStable()) {
+
+        int fromSlot = area.getSlotByVertexId(vertexFrom.getId());
+        int toSlot = area.getSlotByVertexId(vertexTo.getId());
+
+        Traction traction = new Traction(fromSlot, toSlot, TRACTION_IMPACT,
+            TRACTION_DISTANCE);
+        area.addTraction(traction);
+      }
+    });
+  }
+
+  /**
+   * Random coordinates next to a vertex.
+   */
+  private static AreaPoint generatePointNear(IVertex vertex, Random random) {
+    double randomX = vertex.getXPosition()
+        + generateJitter(NEIGHBOUR_OFFSET, random);
+    double randomY = vertex.getYPosition()
+        + generateJitter(NEIGHBOUR_OFFSET, random);
+
+    return new AreaPoint(randomX, randomY);
+  }
+
+  /**
+   * Random coordinates next to a taken position. The coordinates stay within
+   * the area, where the area does not move them back onto the border.
+   */
+  private static AreaPoint generatePointAround(Area area, AreaPoint position,
+      Random random) {
+
+    double maxX = area.getUniverseDimension().dimensionWidth()
+        - NEIGHBOUR_OFFSET;
+    double maxY = area.getUniverseDimension().dimensionHeight()
+        - NEIGHBOUR_OFFSET;
+    double x = position.getX() + generateJitter(NEIGHBOUR_OFFSET, random);
+    double y = position.getY() + generateJitter(NEIGHBOUR_OFFSET, random);
+
+    return new AreaPoint(Math.max(NEIGHBOUR_OFFSET, Math.min(maxX, x)),
+        Math.max(NEIGHBOUR_OFFSET, Math.min(maxY, y)));
+  }
+
+  /**
+   * Random offset between -range and range.
+   */
+  private static double generateJitter(double range, Random random) {
+    return (random.nextDouble() * 2 - 1) * range;
+  }
+
+  /**
+   * Use random coordinates as input for engine.
+   */
+  private static AreaPoint generateRandomPoint(Area area, Random random) {
+    double randomX = area.getUniverseDimension().dimensionWidth()
+        * random.nextDouble();
+    double randomY = area.getUniverseDimension().dimensionHeight()
+        * random.nextDouble();
+
+    return new AreaPoint(randomX, randomY);
+  }
+}
@@ -0,0 +1,152 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import gvs.model.Graph;
+import gvs.model.IVertex;
+import gvs.model.Session;
+import gvs.util.Configuration;
+
+/**
+ * Layouts all graphs of a session, except the first one, in the background.
+ * 
+ * The graphs are processed in order on a single low priority thread. Each
+ * graph starts with the positions of its predecessor, so consecutive snapshots
+ * look alike. Hence the graphs wait until the animated layout of the first
+ * graph is completed. No frames are rendered meanwhile, so the iterations run
+ * as fast as possible and do not interfere with the animated layout of the
+ * {@link GraphLayouter}.
+ * 
+ * @author mwieland
+ *
+ */
+@Singleton
+public class BatchLayouter {
+
+  private final Area area;
+  private final LayoutCache layoutCache;
+  private final ExecutorService executor;
+  private final boolean incremental;
+
+  private static final String THREAD_NAME = "Batch Layouter Thread";
+  private static final int MAX_LAYOUT_DURATION_MS = 10_000;
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(BatchLayouter.class);
+
+  @Inject
+  public BatchLayouter(LayoutCache layoutCache, Configuration configuration) {
+    this.area = GraphLayouter.createArea(configuration);
+    this.layoutCache = layoutCache;
+    this.incremental = configuration.isIncremental();
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, THREAD_NAME);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Schedule the layout of all graphs of the session which are not layouted
+   * yet. The first graph is skipped, it is layouted by the
+   * {@link GraphLayouter}.
+   * 
+   * @param session
+   *          session to layout
+   */
+  public void layout(Session session) {
+    List<Graph> graphs = new ArrayList<>(session.getGraphs());
+    if (graphs.size() > 1) {
+      executor.execute(() -> layoutGraphs(graphs));
+    }
+  }
+
+  /**
+   * Layout the graphs in order. Stops at a graph whose former graph is not
+   * layouted, e.g. because the animated layout of the first graph still
+   * runs. Its positions are not final, and all following graphs depend on
+   * them. The {@link GraphLayouter} schedules the graphs again, once the
+   * first graph is layouted.
+   * 
+   * @param graphs
+   *          graphs of a session
+   */
+  private void layoutGraphs(List<Graph> graphs) {
+    for (int i = 1; i < graphs.size(); i++) {
+      Graph formerGraph = graphs.get(i - 1);
+      Graph graph = graphs.get(i);
+      if (formerGraph.isLayoutable()) {
+        logger.info("Graph {} waits for the layout of graph {}",
+            graph.getId(), formerGraph.getId());
+        return;
+      }
+      if (graph.isLayoutable()) {
+        layoutGraph(formerGraph, graph);
+      }
+    }
+  }
+
+  /**
+   * Layout a graph until it is stable, starting with the positions of the
+   * former graph.
+   * 
+   * If incremental layouts are enabled, only the vertices which were added
+   * and their neighbours move. Graphs which were layouted before get their
+   * layout from the {@link LayoutCache}. Vertices shared with the former
+   * graph are copied, unless the layout is incremental and does not move
+   * them.
+   * 
+   * @param formerGraph
+   *          layouted predecessor of the graph
+   * @param graph
+   *          graph to layout
+   */
+  private void layoutGraph(Graph formerGraph, Graph graph) {
+    boolean keepShared = incremental && graph.sharesVertices();
+    if (!keepShared) {
+      graph.copySharedVertices();
+      if (layoutCache.restore(graph)) {
+        graph.setLayouted(true);
+        return;
+      }
+    }
+    logger.info("Compute batch layout for graph {}", graph.getId());
+
+    Map<Long, IVertex> formerVertices = formerGraph.getVertices().stream()
+        .collect(Collectors.toMap(IVertex::getId, Function.identity()));
+    if (incremental) {
+      AreaLoader.loadIncremental(area, graph, formerVertices);
+    } else {
+      AreaLoader.load(area, graph, formerVertices);
+    }
+
+    long deadline = System.nanoTime()
+        + TimeUnit.MILLISECONDS.toNanos(MAX_LAYOUT_DURATION_MS);
+    do {
+      area.updateAll();
+    } while (!area.isStable() && System.nanoTime() < deadline);
+
+    logger.info("Batch layout of graph {} completed after {} iterations",
+        graph.getId(), area.getIterations());
+    area.publishPositions();
+    graph.notifyPositionListeners();
+    if (area.isConverged()) {
+      layoutCache.store(graph);
+    }
+    graph.setLayouted(true);
+  }
+}
@@ -0,0 +1,58 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the forces which act on each particle during one iteration.
+ *
+ * Every force worker of the {@link Area} writes into its own buffer. The
+ * buffers are summed up afterwards, so no worker has to synchronize with
+ * another one.
+ *
+ * @author mwieland
+ *
+ */
+public class ForceBuffer {
+
+  private double[] forceX = new double[0];
+  private double[] forceY = new double[0];
+
+  /**
+   * Set all forces of the first slots to zero. Grows the buffer if required.
+   *
+   * @param size
+   *          number of particles
+   */
+  public void clear(int size) {
+    if (forceX.length < size) {
+      forceX = new double[size];
+      forceY = new double[size];
+    } else {
+      Arrays.fill(forceX, 0, size, 0);
+      Arrays.fill(forceY, 0, size, 0);
+    }
+  }
+
+  /**
+   * Add a force to a particle.
+   *
+   * @param slot
+   *          particle slot
+   * @param x
+   *          x component of the force
+   * @param y
+   *          y component of the force
+   */
+  public void add(int slot, double x, double y) {
+    forceX[slot] += x;
+    forceY[slot] += y;
+  }
+
+  public double getX(int slot) {
+    return forceX[slot];
+  }
+
+  public double getY(int slot) {
+    return forceY[slot];
+  }
+}
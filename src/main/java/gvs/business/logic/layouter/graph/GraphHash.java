@@ -0,0 +1,91 @@
+package gvs.business.logic.layouter.graph;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import gvs.model.Graph;
+import gvs.model.IEdge;
+import gvs.model.IVertex;
+
+/**
+ * Canonical hash of the structure of a graph.
+ *
+ * Only the vertex ids and the edges between them are hashed. Labels, styles
+ * and the edge direction do not influence the layout, so they are ignored.
+ * The hash does not depend on the order of the vertices and edges.
+ *
+ * @author mwieland
+ *
+ */
+public final class GraphHash {
+
+  private static final String ALGORITHM = "SHA-256";
+  private static final int SEED_HEX_DIGITS = 16;
+  private static final int HEX_RADIX = 16;
+
+  private GraphHash() {
+  }
+
+  /**
+   * Compute the structural hash of a graph.
+   *
+   * @param graph
+   *          graph to hash
+   * @return hash as hexadecimal string
+   */
+  public static String compute(Graph graph) {
+    long[] vertexIds = graph.getVertices().stream().mapToLong(IVertex::getId)
+        .sorted().toArray();
+
+    long[][] edges = new long[graph.getEdges().size()][];
+    int index = 0;
+    for (IEdge edge : graph.getEdges()) {
+      long from = edge.getStartVertex().getId();
+      long to = edge.getEndVertex().getId();
+      edges[index++] = new long[] { Math.min(from, to), Math.max(from, to) };
+    }
+    Arrays.sort(edges, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+        : Long.compare(a[1], b[1]));
+
+    ByteBuffer buffer = ByteBuffer.allocate(
+        Long.BYTES * (2 + vertexIds.length + 2 * edges.length));
+    buffer.putLong(vertexIds.length);
+    for (long id : vertexIds) {
+      buffer.putLong(id);
+    }
+    buffer.putLong(edges.length);
+    for (long[] edge : edges) {
+      buffer.putLong(edge[0]);
+      buffer.putLong(edge[1]);
+    }
+
+    StringBuilder hash = new StringBuilder();
+    for (byte value : createDigest().digest(buffer.array())) {
+      hash.append(String.format("%02x", value));
+    }
+    return hash.toString();
+  }
+
+  /**
+   * Derive a random seed from a hash.
+   *
+   * @param hash
+   *          hash computed by {@link #compute(Graph)}
+   * @return seed
+   */
+  public static long toSeed(String hash) {
+    return Long.parseUnsignedLong(hash.substring(0, SEED_HEX_DIGITS),
+        HEX_RADIX);
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
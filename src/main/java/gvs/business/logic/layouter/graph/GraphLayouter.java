@@ -1,8 +1,9 @@
 package gvs.business.logic.layouter.graph;
 
-import java.util.Collection;
 import java.util.Map;
-import java.util.Timer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -14,42 +15,33 @@ import com.google.inject.Singleton;
 
 import gvs.business.logic.layouter.ILayouter;
 import gvs.model.Graph;
-import gvs.model.IEdge;
 import gvs.model.IVertex;
 import gvs.model.Session;
-import gvs.model.graph.GraphVertex;
 import gvs.util.Action;
 import gvs.util.Configuration;
 
 /**
  * Creates and prepares the elements which need to be layouted.
  * 
- * Executes a separate ticker thread which calls the LayoutController in a given
- * interval.
+ * Each graph is layouted by a {@link LayoutJob}, which executes a separate
+ * ticker thread. The {@link LayoutScheduler} limits the number of concurrent
+ * jobs.
  * 
  * @author mwieland
  *
  */
 @Singleton
-public class GraphLayouter implements Tickable, ILayouter {
-
-  private Action completionCallback;
-
-  private AreaTicker currentTicker;
-  private Timer guard;
-
-  private final AreaTickerFactory tickerFactory;
-  private final Area area;
-
-  private volatile Session currentSession;
-  private volatile Graph referenceGraph;
-
-  private static final int PARTICLE_WEIGHT = 50;
-  private static final int TRACTION_IMPACT = 50;
-  private static final int TRACTION_DISTANCE = 150;
-
-  private static final int TICK_RATE_PER_SEC = 26;
-  private static final int MAX_LAYOUT_DURATION_MS = 10_000;
+public class GraphLayouter implements ILayouter {
+
+  private final LayoutScheduler scheduler;
+  private final BatchLayouter batchLayouter;
+  private final MultilevelLayouter multilevelLayouter;
+  private final LayoutCache layoutCache;
+  private final Configuration configuration;
+  private final ForkJoinPool forcePool;
+  private final IterationMode iterationMode;
+  private final long frameBudgetNanos;
+  private final int multilevelThreshold;
 
   private static final int LAYOUT_AREA_FACTOR = 3;
 
@@ -57,39 +49,139 @@ public class GraphLayouter implements Tickable, ILayouter {
       .getLogger(GraphLayouter.class);
 
   @Inject
-  public GraphLayouter(AreaTickerFactory tickerFactory) {
-    this.tickerFactory = tickerFactory;
+  public GraphLayouter(LayoutScheduler scheduler, BatchLayouter batchLayouter,
+      MultilevelLayouter multilevelLayouter, LayoutCache layoutCache,
+      Configuration configuration) {
+    this.scheduler = scheduler;
+    this.batchLayouter = batchLayouter;
+    this.multilevelLayouter = multilevelLayouter;
+    this.layoutCache = layoutCache;
+    this.multilevelThreshold = configuration.getMultilevelThreshold();
+    this.configuration = configuration;
+    this.forcePool = createForcePool(configuration.getThreads());
+
+    this.iterationMode = loadIterationMode(configuration);
+    this.frameBudgetNanos = TimeUnit.MILLISECONDS
+        .toNanos(configuration.getFrameBudget());
+  }
 
+  /**
+   * Resolve the configured iteration mode.
+   * 
+   * @param configuration
+   *          configuration wrapper
+   * @return configured mode or {@link IterationMode#TICK}
+   */
+  private IterationMode loadIterationMode(Configuration configuration) {
+    try {
+      return IterationMode.byName(configuration.getIterations());
+    } catch (IllegalArgumentException e) {
+      logger.warn("Iteration mode {} not supported. Use tick",
+          configuration.getIterations());
+      return IterationMode.TICK;
+    }
+  }
+
+  /**
+   * Create the pool for the parallel force computation.
+   * 
+   * @param threads
+   *          configured number of threads. 0 = all available processors
+   * @return pool or null, if the forces are computed sequentially
+   */
+  private ForkJoinPool createForcePool(int threads) {
+    int parallelism = threads;
+    if (parallelism <= 0) {
+      parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    if (parallelism == 1) {
+      return null;
+    }
+    logger.info("Compute layout forces with {} threads", parallelism);
+    return new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * Create a layout area according to the configuration.
+   * 
+   * @param configuration
+   *          configuration wrapper
+   * @return sequential layout area
+   */
+  static Area createArea(Configuration configuration) {
     double layouterWidth = Configuration.getWindowWidth() * LAYOUT_AREA_FACTOR;
     double layouterHeight = Configuration.getContentPaneHeight()
         * LAYOUT_AREA_FACTOR;
-
-    AreaDimension dimension = new AreaDimension(layouterWidth, layouterHeight);
-    this.area = new Area(dimension);
+    return createArea(configuration, layouterWidth, layouterHeight);
   }
 
-  @Override
-  public synchronized void layout(Session session) {
-
-    this.currentSession = session;
-    this.referenceGraph = session.getGraphs().get(0);
+  /**
+   * Create a layout area of the given size according to the configuration.
+   * 
+   * @param configuration
+   *          configuration wrapper
+   * @param width
+   *          area width
+   * @param height
+   *          area height
+   * @return sequential layout area
+   */
+  static Area createArea(Configuration configuration, double width,
+      double height) {
+    Area area = new Area(new AreaDimension(width, height));
+    area.setRepulsionMode(loadRepulsionMode(configuration));
+    area.setTheta(configuration.getTheta());
+    area.setCutoff(configuration.getCutoff());
+    area.setSeed(configuration.getSeed());
+    return area;
+  }
 
-    if (referenceGraph != null) {
-      layout(referenceGraph, this::sessionLayoutCallback);
+  /**
+   * Resolve the configured repulsion strategy.
+   * 
+   * @param configuration
+   *          configuration wrapper
+   * @return configured mode or {@link RepulsionMode#EXACT}
+   */
+  private static RepulsionMode loadRepulsionMode(Configuration configuration) {
+    try {
+      return RepulsionMode.byName(configuration.getRepulsion());
+    } catch (IllegalArgumentException e) {
+      logger.warn("Repulsion {} not supported. Use exact",
+          configuration.getRepulsion());
+      return RepulsionMode.EXACT;
     }
   }
 
-  private void sessionLayoutCallback() {
-    referenceGraph.setLayouted(true);
+  /**
+   * Layout the first graph of the session animated. All other graphs are
+   * layouted incrementally by the {@link BatchLayouter} in the background,
+   * starting from the layout of the first graph once it is layouted.
+   * 
+   * @param session
+   *          session to layout
+   */
+  @Override
+  public void layout(Session session) {
+
+    Graph referenceGraph = session.getGraphs().get(0);
 
-    currentSession.getGraphs().stream().filter(g -> g.isLayoutable())
-        .forEach(g -> {
-          takeOverVertexPositions(referenceGraph, g);
-        });
+    if (referenceGraph != null && referenceGraph.isLayoutable()) {
+      layout(referenceGraph, () -> {
+        referenceGraph.setLayouted(true);
+        batchLayouter.layout(session);
+      });
+    } else {
+      batchLayouter.layout(session);
+    }
   }
 
   /**
-   * Layout the received vertices
+   * Layout the received vertices. Each graph is layouted by a separate
+   * {@link LayoutJob}, so layouts of different sessions do not wait for each
+   * other. Large graphs are passed on to the {@link MultilevelLayouter}.
+   * Graphs which were layouted before get their layout from the
+   * {@link LayoutCache}.
    * 
    * @param graph
    *          graph with vertices and edges
@@ -97,41 +189,58 @@ public class GraphLayouter implements Tickable, ILayouter {
    *          callback function
    */
   @Override
-  public synchronized void layout(Graph graph, Action callback) {
+  public void layout(Graph graph, Action callback) {
 
     if (graph.isLayoutable()) {
+      graph.copySharedVertices();
+    }
 
-      logger.info("Compute layout for graph {}", graph.getId());
-
-      while (currentTicker != null) {
-        try {
-          wait();
-        } catch (InterruptedException e) {
-          logger.error("Unable to passivate thread", e);
-        }
+    if (graph.isLayoutable() && layoutCache.restore(graph)) {
+      if (callback != null) {
+        callback.execute();
       }
 
-      this.completionCallback = callback;
+    } else if (graph.isLayoutable() && multilevelThreshold > 0
+        && graph.getVertices().size() >= multilevelThreshold) {
+      // the multilevel layout refines a fixed number of iterations
+      multilevelLayouter.layout(graph,
+          storeLayout(graph, () -> true, callback));
 
-      // reset
-      graph.getVertices().forEach(v -> {
-        GraphVertex graphVertex = (GraphVertex) v;
-        if (!graphVertex.isUserPositioned()) {
-          graphVertex.setStable(false);
-        }
-      });
-
-      calculateLayout(graph);
-
-      initializeLayoutGuard();
-
-      startTickerThread();
+    } else if (graph.isLayoutable()) {
+      Area area = createArea(configuration);
+      area.setForkJoinPool(forcePool);
+      scheduler.submit(new LayoutJob(graph, area, iterationMode,
+          frameBudgetNanos, storeLayout(graph, area::isConverged, callback)));
 
     } else if (callback != null) {
       callback.execute();
     }
   }
 
+  /**
+   * Put the layout into the cache before the callback is executed. Layouts
+   * which the layout guard stopped are not cached, they are not final.
+   * 
+   * @param graph
+   *          layouted graph
+   * @param converged
+   *          whether the layout converged
+   * @param callback
+   *          callback function. May be null
+   * @return completion callback
+   */
+  private Action storeLayout(Graph graph, BooleanSupplier converged,
+      Action callback) {
+    return () -> {
+      if (converged.getAsBoolean()) {
+        layoutCache.store(graph);
+      }
+      if (callback != null) {
+        callback.execute();
+      }
+    };
+  }
+
   /**
    * Reuse vertex coordinates of former graph.
    * 
@@ -146,7 +255,18 @@ public class GraphLayouter implements Tickable, ILayouter {
 
     logger.info("Take over vertex position from graph {} to {}",
         sourceGraph.getId(), targetGraph.getId());
+    takeOverPositions(sourceGraph, targetGraph);
+  }
 
+  /**
+   * Copy the positions of all vertices which exist in both graphs.
+   * 
+   * @param sourceGraph
+   *          source graph
+   * @param targetGraph
+   *          target graph
+   */
+  static void takeOverPositions(Graph sourceGraph, Graph targetGraph) {
     Map<Long, IVertex> formerVertices = sourceGraph.getVertices().stream()
         .collect(Collectors.toMap(IVertex::getId, Function.identity()));
 
@@ -159,130 +279,4 @@ public class GraphLayouter implements Tickable, ILayouter {
       }
     }
   }
-
-  /**
-   * Create particles and tractions.
-   * 
-   * @param graph
-   *          graph to layout
-   */
-  private void calculateLayout(Graph graph) {
-    // reset
-    area.setIsStable(false);
-    area.resetArea();
-
-    createVertexParticles(graph.getVertices());
-    createEdgeTractions(graph.getEdges());
-  }
-
-  /**
-   * Only one ticker thread is allowed to be active.
-   * 
-   * If the autolayout mechanism is executed, the ticker thread executes the
-   * tick method in a defined interval.
-   * 
-   * As soon as the area is stable, the ticker thread terminates.
-   */
-  private void startTickerThread() {
-    currentTicker = tickerFactory.create(this, TICK_RATE_PER_SEC);
-    logger.debug("Starting thread: {}", currentTicker.getName());
-    currentTicker.start();
-  }
-
-  /**
-   * The layoutguard will stop layouting process after 10s.
-   */
-  private void initializeLayoutGuard() {
-    GraphLayoutGuard layoutGuard = new GraphLayoutGuard(area);
-    guard = new Timer();
-    guard.schedule(layoutGuard, MAX_LAYOUT_DURATION_MS);
-  }
-
-  /**
-   * Check if particles in area are stable. If stable, stop ticking, otherwise
-   * update positions and continue with the next iteration.
-   */
-  public synchronized void tick() {
-    logger.info("Layout engine iteration completed.");
-
-    if (!area.isStable()) {
-      logger.info("Continue layouting...");
-      area.updateAll();
-
-    } else {
-      try {
-        logger
-            .info("Layouting completed. Graph is stable. Stop layout engine.");
-        guard.cancel();
-        guard = null;
-        currentTicker.terminate();
-        currentTicker = null;
-        notify();
-      } finally {
-        if (completionCallback != null) {
-          completionCallback.execute();
-        }
-      }
-    }
-  }
-
-  /**
-   * Creates a particle for each vertex.
-   *
-   * @param vertices
-   *          related vertices
-   */
-  private void createVertexParticles(Collection<IVertex> vertices) {
-
-    vertices.forEach(vertex -> {
-
-      GraphVertex graphVertex = (GraphVertex) vertex;
-
-      if (!graphVertex.isUserPositioned() && !graphVertex.isStable()) {
-
-        AreaPoint position = generateRandomPoints();
-        Particle newParticle = new Particle(position, graphVertex,
-            PARTICLE_WEIGHT);
-        area.addParticles(newParticle);
-      }
-    });
-  }
-
-  /**
-   * Create edge tractions between related vertices.
-   *
-   * @param edges
-   *          related edges
-   */
-  private void createEdgeTractions(Collection<IEdge> edges) {
-    edges.forEach(e -> {
-      GraphVertex vertexFrom = (GraphVertex) e.getStartVertex();
-      GraphVertex vertexTo = (GraphVertex) e.getEndVertex();
-
-      if (!vertexFrom.isUserPositioned() && !vertexTo.isUserPositioned()
-          && !vertexFrom.isStable() && !vertexTo.isStable()) {
-
-        Particle fromParticle = area.getParticleByVertexId(vertexFrom.getId());
-        Particle toParticle = area.getParticleByVertexId(vertexTo.getId());
-
-        Traction traction = new Traction(fromParticle, toParticle,
-            TRACTION_IMPACT, TRACTION_DISTANCE);
-        area.addTraction(traction);
-      }
-    });
-  }
-
-  /**
-   * Use random coordinates as input for engine.
-   * 
-   * @return random point
-   */
-  private AreaPoint generateRandomPoints() {
-    double randomX = area.getUniverseDimension().dimensionWidth()
-        * Math.random();
-    double randomY = area.getUniverseDimension().dimensionHeight()
-        * Math.random();
-
-    return new AreaPoint(randomX, randomY);
-  }
 }
@@ -0,0 +1,49 @@
+package gvs.business.logic.layouter.graph;
+
+/**
+ * Defines how many layout iterations the {@link GraphLayouter} executes per
+ * tick of the {@link AreaTicker}.
+ *
+ * @author mwieland
+ *
+ */
+public enum IterationMode {
+
+  /**
+   * One iteration per tick. The layout is animated at the tick rate.
+   */
+  TICK("tick"),
+
+  /**
+   * As many iterations as fit into the frame budget of a tick. Only the
+   * latest positions are published once per tick.
+   */
+  FRAME_BUDGET("frame-budget"),
+
+  /**
+   * All iterations are executed within the first tick. The final positions
+   * are published once the layout is stable.
+   */
+  HEADLESS("headless");
+
+  private final String mode;
+
+  IterationMode(String mode) {
+    this.mode = mode;
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  /**
+   * Resolve an iteration mode by its configuration name.
+   *
+   * @param modeName
+   *          configured name, e.g. "frame-budget"
+   * @return iteration mode
+   */
+  public static IterationMode byName(String modeName) {
+    return valueOf(modeName.toUpperCase().replace('-', '_'));
+  }
+}
@@ -0,0 +1,306 @@
+package gvs.business.logic.layouter.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import gvs.model.Graph;
+import gvs.model.IVertex;
+import gvs.model.graph.GraphVertex;
+import gvs.util.Configuration;
+
+/**
+ * Keeps the layouts of recently layouted graphs.
+ *
+ * Layouts are keyed by the {@link GraphHash} of the graph, so a graph which
+ * is received or loaded again gets its former layout without any simulation.
+ * The least recently used layout is dropped if the cache is full. Optionally,
+ * each layout is stored in a directory as well, so it survives a restart.
+ * The files are written on a background thread. The directory keeps as many
+ * layouts as the memory, the least recently used files are deleted.
+ *
+ * Graphs with user positioned vertices are neither restored nor stored,
+ * because their layout depends on more than their structure.
+ *
+ * @author mwieland
+ *
+ */
+@Singleton
+public class LayoutCache {
+
+  private final int capacity;
+  private final Path directory;
+  private final Map<String, CachedLayout> layouts;
+  private final ExecutorService writer;
+
+  private static final String THREAD_NAME = "Layout Cache Writer Thread";
+  private static final String FILE_EXTENSION = ".layout";
+  private static final String TEMP_EXTENSION = ".tmp";
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(LayoutCache.class);
+
+  @Inject
+  public LayoutCache(Configuration configuration) {
+    this(configuration.getLayoutCacheSize(),
+        createDirectory(configuration.getLayoutCacheDirectory()));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param capacity
+   *          maximum number of layouts in memory. 0 disables the cache
+   * @param directory
+   *          directory of the stored layouts. May be null
+   */
+  public LayoutCache(int capacity, Path directory) {
+    this.capacity = capacity;
+    this.directory = directory;
+    this.layouts = new LinkedHashMap<String, CachedLayout>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<String, CachedLayout> eldest) {
+        return size() > LayoutCache.this.capacity;
+      }
+    };
+    this.writer = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, THREAD_NAME);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Resolve the configured cache directory and create it if required.
+   *
+   * @param path
+   *          configured path
+   * @return directory or null, if layouts are kept in memory only
+   */
+  private static Path createDirectory(String path) {
+    if (path == null || path.isEmpty()) {
+      return null;
+    }
+    try {
+      return Files.createDirectories(Paths.get(path));
+    } catch (IOException e) {
+      logger.warn("Cannot create layout cache directory {}. Keep layouts "
+          + "in memory only", path, e);
+      return null;
+    }
+  }
+
+  /**
+   * Move the vertices to the cached positions, if the graph was layouted
+   * before. The vertices are marked as stable.
+   *
+   * @param graph
+   *          graph to restore
+   * @return true if a cached layout was found
+   */
+  public boolean restore(Graph graph) {
+    if (!isCacheable(graph)) {
+      return false;
+    }
+    String key = GraphHash.compute(graph);
+    CachedLayout layout = get(key);
+    if (layout == null || !layout.covers(graph)) {
+      return false;
+    }
+
+    logger.info("Restore cached layout of graph {}", graph.getId());
+    graph.getVertices().forEach(v -> {
+      double[] position = layout.positions.get(v.getId());
+      ((GraphVertex) v).setStable(true);
+      v.updateCoordinates(position[0], position[1]);
+    });
+    graph.notifyPositionListeners();
+    return true;
+  }
+
+  /**
+   * Remember the current positions of the vertices.
+   *
+   * @param graph
+   *          layouted graph
+   */
+  public void store(Graph graph) {
+    if (!isCacheable(graph)) {
+      return;
+    }
+    String key = GraphHash.compute(graph);
+    CachedLayout layout = new CachedLayout();
+    graph.getVertices().forEach(v -> layout.positions.put(v.getId(),
+        new double[] { v.getXPosition(), v.getYPosition() }));
+
+    synchronized (layouts) {
+      layouts.put(key, layout);
+    }
+    if (directory != null) {
+      // keep file access off the layout threads
+      writer.execute(() -> {
+        write(key, layout);
+        evictFiles();
+      });
+    }
+  }
+
+  /**
+   * Wait until all stored layouts are written to the directory.
+   */
+  void awaitWrites() throws InterruptedException, ExecutionException {
+    writer.submit(() -> {
+    }).get();
+  }
+
+  private boolean isCacheable(Graph graph) {
+    return capacity > 0
+        && graph.getVertices().stream().noneMatch(IVertex::isUserPositioned);
+  }
+
+  /**
+   * Look up a layout in memory, then on disk. A layout read from disk counts
+   * as recently used.
+   */
+  private CachedLayout get(String key) {
+    CachedLayout layout;
+    synchronized (layouts) {
+      layout = layouts.get(key);
+    }
+    if (layout == null && directory != null) {
+      layout = read(key);
+      if (layout != null) {
+        synchronized (layouts) {
+          layouts.put(key, layout);
+        }
+      }
+    }
+    return layout;
+  }
+
+  /**
+   * Store a layout as vertex count followed by id, x and y of each vertex.
+   * The file is replaced atomically, so readers never see a partial layout.
+   */
+  private void write(String key, CachedLayout layout) {
+    Path file = directory.resolve(key + FILE_EXTENSION);
+    Path temp = directory.resolve(key + TEMP_EXTENSION);
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(layout.positions.size());
+      for (Map.Entry<Long, double[]> entry : layout.positions.entrySet()) {
+        out.writeLong(entry.getKey());
+        out.writeDouble(entry.getValue()[0]);
+        out.writeDouble(entry.getValue()[1]);
+      }
+    } catch (IOException e) {
+      logger.warn("Cannot store layout {}", file, e);
+      return;
+    }
+    try {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Cannot store layout {}", file, e);
+    }
+  }
+
+  private CachedLayout read(String key) {
+    Path file = directory.resolve(key + FILE_EXTENSION);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      Files.setLastModifiedTime(file,
+          FileTime.fromMillis(System.currentTimeMillis()));
+      CachedLayout layout = new CachedLayout();
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        long id = in.readLong();
+        layout.positions.put(id,
+            new double[] { in.readDouble(), in.readDouble() });
+      }
+      return layout;
+    } catch (IOException e) {
+      logger.warn("Cannot read layout {}", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Delete the least recently modified layouts beyond the capacity.
+   */
+  private void evictFiles() {
+    List<Path> files = new ArrayList<>();
+    try (Stream<Path> paths = Files.list(directory)) {
+      paths.filter(p -> p.toString().endsWith(FILE_EXTENSION))
+          .forEach(files::add);
+    } catch (IOException e) {
+      logger.warn("Cannot list layouts in {}", directory, e);
+      return;
+    }
+    if (files.size() <= capacity) {
+      return;
+    }
+
+    Map<Path, FileTime> modified = new HashMap<>();
+    for (Path file : files) {
+      try {
+        modified.put(file, Files.getLastModifiedTime(file));
+      } catch (IOException e) {
+        // deleted meanwhile
+        modified.put(file, FileTime.fromMillis(0));
+      }
+    }
+    files.sort(Comparator.comparing(modified::get));
+    for (Path file : files.subList(0, files.size() - capacity)) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        logger.warn("Cannot delete layout {}", file, e);
+      }
+    }
+  }
+
+  /**
+   * Positions of all vertices of a graph by vertex id.
+   */
+  private static final class CachedLayout {
+
+    private final Map<Long, double[]> positions = new HashMap<>();
+
+    boolean covers(Graph graph) {
+      return positions.size() == graph.getVertices().size()
+          && graph.getVertices().stream()
+              .allMatch(v -> positions.containsKey(v.getId()));
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gvs.model.Graph;
+import gvs.model.graph.GraphVertex;
+import gvs.util.Action;
+
+/**
+ * Animated layout of a single graph.
+ * 
+ * Each job owns its area, ticker thread and layout guard, so several jobs can
+ * run independently of each other. Jobs are started by the
+ * {@link LayoutScheduler}.
+ * 
+ * @author mwieland
+ *
+ */
+public class LayoutJob implements Tickable {
+
+  private AreaTicker ticker;
+  private Timer guard;
+  private Action finishedCallback;
+
+  private final Graph graph;
+  private final Area area;
+  private final IterationMode iterationMode;
+  private final long frameBudgetNanos;
+  private final Action completionCallback;
+
+  private static final int MAX_LAYOUT_DURATION_MS = 10_000;
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(LayoutJob.class);
+
+  /**
+   * Constructor.
+   * 
+   * @param graph
+   *          graph to layout
+   * @param area
+   *          area used exclusively by this job
+   * @param iterationMode
+   *          iterations per tick
+   * @param frameBudgetNanos
+   *          time per tick spent on iterations
+   * @param completionCallback
+   *          executed once the graph is stable. May be null
+   */
+  public LayoutJob(Graph graph, Area area, IterationMode iterationMode,
+      long frameBudgetNanos, Action completionCallback) {
+    this.graph = graph;
+    this.area = area;
+    this.iterationMode = iterationMode;
+    this.frameBudgetNanos = frameBudgetNanos;
+    this.completionCallback = completionCallback;
+  }
+
+  public Graph getGraph() {
+    return graph;
+  }
+
+  /**
+   * Create the particles and start ticking.
+   * 
+   * A job may wait in the {@link LayoutScheduler} while another job layouts
+   * the same graph. If the graph is layouted meanwhile, the job completes
+   * without ticking.
+   * 
+   * @param areaTicker
+   *          ticker which calls this job
+   * @param finished
+   *          executed after the completion callback
+   */
+  public synchronized void start(AreaTicker areaTicker, Action finished) {
+    if (!graph.isLayoutable()) {
+      logger.info("Graph {} is already layouted", graph.getId());
+      try {
+        if (completionCallback != null) {
+          completionCallback.execute();
+        }
+      } finally {
+        finished.execute();
+      }
+      return;
+    }
+    logger.info("Compute layout for graph {}", graph.getId());
+
+    this.finishedCallback = finished;
+
+    // reset
+    graph.getVertices().forEach(v -> {
+      GraphVertex graphVertex = (GraphVertex) v;
+      if (!graphVertex.isUserPositioned()) {
+        graphVertex.setStable(false);
+      }
+    });
+    AreaLoader.load(area, graph);
+
+    // the layoutguard will stop layouting process after 10s
+    guard = new Timer();
+    guard.schedule(new GraphLayoutGuard(area), MAX_LAYOUT_DURATION_MS);
+
+    ticker = areaTicker;
+    logger.debug("Starting thread: {}", ticker.getName());
+    ticker.start();
+  }
+
+  /**
+   * Check if particles in area are stable. If stable, stop ticking, otherwise
+   * update positions and continue with the next iteration.
+   * 
+   * Depending on the {@link IterationMode}, several iterations are executed
+   * per tick. The positions are published to the vertices only once.
+   */
+  public synchronized void tick() {
+    logger.info("Layout engine iteration completed.");
+
+    if (ticker == null) {
+      return;
+    }
+
+    if (!area.isStable()) {
+      logger.info("Continue layouting...");
+      iterate();
+      area.publishPositions();
+      graph.notifyPositionListeners();
+
+    } else {
+      try {
+        logger.info("Layouting completed. Graph {} is stable after {} "
+            + "iterations. Stop layout engine.", graph.getId(),
+            area.getIterations());
+        guard.cancel();
+        guard = null;
+        ticker.terminate();
+        ticker = null;
+        if (completionCallback != null) {
+          completionCallback.execute();
+        }
+      } finally {
+        finishedCallback.execute();
+      }
+    }
+  }
+
+  /**
+   * Execute the layout iterations of one tick.
+   */
+  private void iterate() {
+    switch (iterationMode) {
+    case HEADLESS:
+      do {
+        area.updateAll();
+      } while (!area.isStable());
+      break;
+    case FRAME_BUDGET:
+      long deadline = System.nanoTime() + frameBudgetNanos;
+      do {
+        area.updateAll();
+      } while (!area.isStable() && System.nanoTime() < deadline);
+      break;
+    default:
+      area.updateAll();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import gvs.model.Graph;
+import gvs.util.Configuration;
+
+/**
+ * Runs layout jobs concurrently.
+ * 
+ * At most the configured number of jobs are running at the same time. Further
+ * jobs are queued and started in order as soon as a running job completes.
+ * Jobs of the same graph never run at the same time. A job, which waited for
+ * another job of its graph, is skipped once the graph is layouted.
+ * 
+ * @author mwieland
+ *
+ */
+@Singleton
+public class LayoutScheduler {
+
+  private final AreaTickerFactory tickerFactory;
+  private final int maxRunningJobs;
+
+  private final List<LayoutJob> runningJobs = new ArrayList<>();
+  private final Queue<LayoutJob> pendingJobs = new LinkedList<>();
+  private boolean starting;
+
+  private static final int TICK_RATE_PER_SEC = 26;
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(LayoutScheduler.class);
+
+  @Inject
+  public LayoutScheduler(AreaTickerFactory tickerFactory,
+      Configuration configuration) {
+    this.tickerFactory = tickerFactory;
+    this.maxRunningJobs = Math.max(1, configuration.getMaxLayouts());
+  }
+
+  /**
+   * Start the job or queue it, if too many jobs are running.
+   * 
+   * @param job
+   *          layout job
+   */
+  public synchronized void submit(LayoutJob job) {
+    pendingJobs.add(job);
+    startPendingJobs();
+  }
+
+  /**
+   * Remove a completed job and start pending ones.
+   * 
+   * @param job
+   *          completed job
+   */
+  private synchronized void finished(LayoutJob job) {
+    runningJobs.remove(job);
+    startPendingJobs();
+  }
+
+  private void startPendingJobs() {
+    // a job, which completes within start, calls back into the scheduler
+    if (starting) {
+      return;
+    }
+    starting = true;
+    try {
+      LayoutJob job;
+      while (runningJobs.size() < maxRunningJobs
+          && (job = nextStartableJob()) != null) {
+        LayoutJob startedJob = job;
+        pendingJobs.remove(startedJob);
+        runningJobs.add(startedJob);
+        logger.debug("Start layout job. {} running, {} pending",
+            runningJobs.size(), pendingJobs.size());
+        startedJob.start(tickerFactory.create(startedJob, TICK_RATE_PER_SEC),
+            () -> finished(startedJob));
+      }
+    } finally {
+      starting = false;
+    }
+  }
+
+  private LayoutJob nextStartableJob() {
+    for (LayoutJob job : pendingJobs) {
+      if (!isRunning(job.getGraph())) {
+        return job;
+      }
+    }
+    return null;
+  }
+
+  private boolean isRunning(Graph graph) {
+    return runningJobs.stream().anyMatch(j -> j.getGraph() == graph);
+  }
+}
@@ -0,0 +1,403 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import gvs.business.logic.layouter.ILayouter;
+import gvs.model.Graph;
+import gvs.model.IEdge;
+import gvs.model.IVertex;
+import gvs.model.Session;
+import gvs.model.graph.GraphVertex;
+import gvs.util.Action;
+import gvs.util.Configuration;
+
+/**
+ * Multilevel force directed layout for large graphs, similar to FM³ or sfdp.
+ * 
+ * The graph is coarsened repeatedly by merging matched neighbours, until it is
+ * small. The coarsest graph is placed by {@link PivotMds} and layouted. Then
+ * each level passes its positions on to the next finer level, where the force
+ * engine only has to refine the layout. Large structures are untangled on the
+ * small graphs, which is much cheaper than on the original one.
+ * 
+ * The layout is computed headless on a background thread. The positions are
+ * published once the finest level is stable.
+ * 
+ * @author mwieland
+ *
+ */
+@Singleton
+public class MultilevelLayouter implements ILayouter {
+
+  private final Configuration configuration;
+  private final ExecutorService executor;
+  private final Random random = new Random();
+
+  private static final String THREAD_NAME = "Multilevel Layouter Thread";
+
+  // stop coarsening below this size or if a level shrinks too little
+  private static final int MIN_LEVEL_SIZE = 50;
+  private static final double MIN_COARSENING = 0.75;
+  private static final int MAX_LEVELS = 30;
+
+  private static final int MAX_ITERATIONS_PER_LEVEL = 1000;
+  // width and height of the space reserved for a vertex
+  private static final double VERTEX_SPACING = 1.5
+      * AreaLoader.TRACTION_DISTANCE;
+  private static final double ASPECT_RATIO = 2;
+  // prolongated vertices of the same cluster are separated by this distance
+  private static final double JITTER = 10;
+  // prolongated levels are untangled already and only need to be refined
+  private static final int MAX_REFINEMENT_ITERATIONS = 60;
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(MultilevelLayouter.class);
+
+  @Inject
+  public MultilevelLayouter(Configuration configuration) {
+    this.configuration = configuration;
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, THREAD_NAME);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public void layout(Session session) {
+    session.getGraphs().forEach(g -> layout(g, () -> g.setLayouted(true)));
+  }
+
+  /**
+   * Schedule the multilevel layout of a graph.
+   * 
+   * Each snapshot of a session passes the first graph again. If the graph is
+   * layouted while its layout waits for the executor, it is not layouted
+   * again.
+   * 
+   * @param graph
+   *          graph with vertices and edges
+   * @param callback
+   *          executed once the positions are published. May be null
+   */
+  @Override
+  public void layout(Graph graph, Action callback) {
+    if (graph.isLayoutable()) {
+      executor.execute(() -> {
+        if (graph.isLayoutable()) {
+          computeLayout(graph);
+        } else {
+          logger.info("Graph {} is already layouted", graph.getId());
+        }
+        if (callback != null) {
+          callback.execute();
+        }
+      });
+    } else if (callback != null) {
+      callback.execute();
+    }
+  }
+
+  @Override
+  public void takeOverVertexPositions(Graph source, Graph target) {
+    GraphLayouter.takeOverPositions(source, target);
+  }
+
+  /**
+   * Coarsen, layout the coarsest level and refine level by level.
+   * 
+   * @param graph
+   *          graph to layout
+   */
+  void computeLayout(Graph graph) {
+    long start = System.currentTimeMillis();
+    graph.copySharedVertices();
+    // the same graph is always layouted the same way
+    random.setSeed(configuration.getSeed()
+        ^ GraphHash.toSeed(GraphHash.compute(graph)));
+
+    List<GraphVertex> vertices = new ArrayList<>();
+    Map<Long, Integer> indices = new HashMap<>();
+    graph.getVertices().forEach(v -> {
+      GraphVertex vertex = (GraphVertex) v;
+      if (!vertex.isUserPositioned()) {
+        vertex.setStable(false);
+      }
+      indices.put(v.getId(), vertices.size());
+      vertices.add(vertex);
+    });
+
+    List<Level> levels = new ArrayList<>();
+    levels.add(createFinestLevel(vertices, indices, graph));
+    Level coarsest = levels.get(0);
+    while (coarsest.size > MIN_LEVEL_SIZE && levels.size() < MAX_LEVELS) {
+      Level coarser = coarsen(coarsest);
+      if (coarser.size > MIN_COARSENING * coarsest.size) {
+        break;
+      }
+      levels.add(coarser);
+      coarsest = coarser;
+    }
+
+    Area area = createArea(vertices.size());
+    double[][] placement = PivotMds.computePositions(coarsest.adjacency(),
+        AreaLoader.PLACEMENT_EDGE_LENGTH);
+    double[] x = placement[0];
+    double[] y = placement[1];
+    for (int i = 0; i < coarsest.size; i++) {
+      x[i] += area.getUniverseDimension().dimensionWidth() / 2
+          + (random.nextDouble() * 2 - 1) * JITTER;
+      y[i] += area.getUniverseDimension().dimensionHeight() / 2
+          + (random.nextDouble() * 2 - 1) * JITTER;
+    }
+
+    for (int l = levels.size() - 1; l >= 0; l--) {
+      Level level = levels.get(l);
+      if (l < levels.size() - 1) {
+        double[][] prolongated = prolongate(levels.get(l + 1), level, x, y);
+        x = prolongated[0];
+        y = prolongated[1];
+      }
+      int maxIterations = MAX_REFINEMENT_ITERATIONS;
+      if (l == levels.size() - 1) {
+        maxIterations = MAX_ITERATIONS_PER_LEVEL;
+      }
+      refine(area, level, l == 0 ? vertices : null, x, y, maxIterations);
+    }
+    area.publishPositions();
+    graph.notifyPositionListeners();
+
+    logger.info("Multilevel layout of graph {} with {} levels took {} ms",
+        graph.getId(), levels.size(), System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Create an area which offers each vertex about the same space, regardless
+   * of the graph size. The view zooms to the content, so the area may exceed
+   * the window.
+   */
+  private Area createArea(int size) {
+    Area area = GraphLayouter.createArea(configuration);
+    double width = Math.sqrt(size * ASPECT_RATIO) * VERTEX_SPACING;
+    double defaultWidth = area.getUniverseDimension().dimensionWidth();
+    if (width <= defaultWidth) {
+      return area;
+    }
+    return GraphLayouter.createArea(configuration, width,
+        width / ASPECT_RATIO);
+  }
+
+  /**
+   * Create the level of the original graph. Self loops and duplicate edges
+   * are dropped.
+   */
+  private Level createFinestLevel(List<GraphVertex> vertices,
+      Map<Long, Integer> indices, Graph graph) {
+    Set<Long> edgeKeys = new HashSet<>();
+    int size = vertices.size();
+    int[] from = new int[graph.getEdges().size()];
+    int[] to = new int[graph.getEdges().size()];
+    int edgeCount = 0;
+    for (IEdge edge : graph.getEdges()) {
+      int a = indices.get(edge.getStartVertex().getId());
+      int b = indices.get(edge.getEndVertex().getId());
+      if (a != b && edgeKeys.add(edgeKey(a, b, size))) {
+        from[edgeCount] = a;
+        to[edgeCount] = b;
+        edgeCount++;
+      }
+    }
+    int[] mass = new int[size];
+    Arrays.fill(mass, 1);
+    return new Level(size, Arrays.copyOf(from, edgeCount),
+        Arrays.copyOf(to, edgeCount), mass, null);
+  }
+
+  /**
+   * Merge each vertex with an unmatched neighbour of small mass. Vertices are
+   * visited in random order, so the clusters do not depend on the ids.
+   */
+  private Level coarsen(Level fine) {
+    int[][] adjacency = fine.adjacency();
+    int[] coarseIndex = new int[fine.size];
+    Arrays.fill(coarseIndex, -1);
+
+    int[] order = new int[fine.size];
+    for (int i = 0; i < fine.size; i++) {
+      order[i] = i;
+    }
+    for (int i = fine.size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = order[i];
+      order[i] = order[j];
+      order[j] = swap;
+    }
+
+    int coarseSize = 0;
+    int[] coarseMass = new int[fine.size];
+    for (int v : order) {
+      if (coarseIndex[v] != -1) {
+        continue;
+      }
+      int partner = -1;
+      for (int u : adjacency[v]) {
+        if (coarseIndex[u] == -1
+            && (partner == -1 || fine.mass[u] < fine.mass[partner])) {
+          partner = u;
+        }
+      }
+      coarseIndex[v] = coarseSize;
+      coarseMass[coarseSize] = fine.mass[v];
+      if (partner != -1) {
+        coarseIndex[partner] = coarseSize;
+        coarseMass[coarseSize] += fine.mass[partner];
+      }
+      coarseSize++;
+    }
+
+    Set<Long> edgeKeys = new HashSet<>();
+    int[] from = new int[fine.from.length];
+    int[] to = new int[fine.from.length];
+    int edgeCount = 0;
+    for (int e = 0; e < fine.from.length; e++) {
+      int a = coarseIndex[fine.from[e]];
+      int b = coarseIndex[fine.to[e]];
+      if (a != b && edgeKeys.add(edgeKey(a, b, coarseSize))) {
+        from[edgeCount] = a;
+        to[edgeCount] = b;
+        edgeCount++;
+      }
+    }
+    return new Level(coarseSize, Arrays.copyOf(from, edgeCount),
+        Arrays.copyOf(to, edgeCount), Arrays.copyOf(coarseMass, coarseSize),
+        coarseIndex);
+  }
+
+  /**
+   * Place each vertex of the finer level next to its cluster.
+   */
+  private double[][] prolongate(Level coarse, Level fine, double[] coarseX,
+      double[] coarseY) {
+    double[] x = new double[fine.size];
+    double[] y = new double[fine.size];
+    for (int i = 0; i < fine.size; i++) {
+      int cluster = coarse.fineToCoarse[i];
+      x[i] = coarseX[cluster] + (random.nextDouble() * 2 - 1) * JITTER;
+      y[i] = coarseY[cluster] + (random.nextDouble() * 2 - 1) * JITTER;
+    }
+    return new double[][] { x, y };
+  }
+
+  /**
+   * Run the force engine on one level until it is stable. The positions are
+   * updated in place.
+   * 
+   * @param vertices
+   *          vertices of the original graph on the finest level, otherwise
+   *          null
+   * @param maxIterations
+   *          iteration limit. Lower for levels which only refine
+   */
+  private void refine(Area area, Level level, List<GraphVertex> vertices,
+      double[] x, double[] y, int maxIterations) {
+    area.setIsStable(false);
+    area.resetArea();
+    area.setStep(AreaLoader.PLACEMENT_STEP);
+
+    for (int i = 0; i < level.size; i++) {
+      if (vertices != null) {
+        GraphVertex vertex = vertices.get(i);
+        boolean pinned = vertex.isUserPositioned();
+        if (pinned) {
+          x[i] = vertex.getXPosition();
+          y[i] = vertex.getYPosition();
+        }
+        area.addParticle(vertex, x[i], y[i], AreaLoader.PARTICLE_WEIGHT,
+            pinned);
+      } else {
+        GraphVertex clusterVertex = new GraphVertex(i, "", null, x[i], y[i],
+            null);
+        area.addParticle(clusterVertex, x[i], y[i],
+            AreaLoader.PARTICLE_WEIGHT);
+      }
+    }
+    for (int e = 0; e < level.from.length; e++) {
+      area.addTraction(new Traction(level.from[e], level.to[e],
+          AreaLoader.TRACTION_IMPACT, AreaLoader.TRACTION_DISTANCE));
+    }
+
+    while (!area.isStable()
+        && area.getIterations() < maxIterations) {
+      area.updateAll();
+    }
+    logger.debug("Level with {} vertices refined in {} iterations",
+        level.size, area.getIterations());
+
+    ParticleStore particles = area.getParticles();
+    for (int i = 0; i < level.size; i++) {
+      x[i] = particles.getX(i);
+      y[i] = particles.getY(i);
+    }
+  }
+
+  private static long edgeKey(int a, int b, int size) {
+    return (long) Math.min(a, b) * size + Math.max(a, b);
+  }
+
+  /**
+   * One level of the coarsening hierarchy.
+   */
+  private static final class Level {
+
+    private final int size;
+    private final int[] from;
+    private final int[] to;
+    private final int[] mass;
+    // cluster of each vertex of the finer level
+    private final int[] fineToCoarse;
+
+    Level(int size, int[] from, int[] to, int[] mass, int[] fineToCoarse) {
+      this.size = size;
+      this.from = from;
+      this.to = to;
+      this.mass = mass;
+      this.fineToCoarse = fineToCoarse;
+    }
+
+    /**
+     * Neighbours of each vertex.
+     */
+    int[][] adjacency() {
+      int[] degree = new int[size];
+      for (int e = 0; e < from.length; e++) {
+        degree[from[e]]++;
+        degree[to[e]]++;
+      }
+      int[][] neighbours = new int[size][];
+      for (int v = 0; v < size; v++) {
+        neighbours[v] = new int[degree[v]];
+        degree[v] = 0;
+      }
+      for (int e = 0; e < from.length; e++) {
+        neighbours[from[e]][degree[from[e]]++] = to[e];
+        neighbours[to[e]][degree[to[e]]++] = from[e];
+      }
+      return neighbours;
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.Arrays;
+
+import gvs.model.graph.GraphVertex;
+
+/**
+ * Holds the state of all particles in the layouting area.
+ *
+ * Positions, speeds, accelerations and weights are kept in primitive arrays
+ * which are indexed by the particle slot. The force computations iterate over
+ * these arrays without creating any objects.
+ *
+ * @author mwieland
+ *
+ */
+public class ParticleStore {
+
+  private int size;
+
+  private double[] positionX;
+  private double[] positionY;
+  private double[] speedX;
+  private double[] speedY;
+  private double[] accelerationX;
+  private double[] accelerationY;
+  private double[] weight;
+  private boolean[] stable;
+  private GraphVertex[] vertices;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  // if the speed of a particle is lower, it is marked as stable
+  private static final double STABLE_SPEED = 0.2;
+
+  /**
+   * Creates an empty particle store.
+   */
+  public ParticleStore() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Adds a particle.
+   *
+   * @param vertex
+   *          related vertex
+   * @param x
+   *          initial x position
+   * @param y
+   *          initial y position
+   * @param particleWeight
+   *          particle weight
+   * @return slot of the new particle
+   */
+  public int add(GraphVertex vertex, double x, double y,
+      double particleWeight) {
+    return add(vertex, x, y, particleWeight, vertex.isStable());
+  }
+
+  /**
+   * Adds a particle.
+   *
+   * @param vertex
+   *          related vertex
+   * @param x
+   *          initial x position
+   * @param y
+   *          initial y position
+   * @param particleWeight
+   *          particle weight
+   * @param pinned
+   *          pinned particles are stable from the start. They act on other
+   *          particles, but never move
+   * @return slot of the new particle
+   */
+  public int add(GraphVertex vertex, double x, double y, double particleWeight,
+      boolean pinned) {
+    if (size == positionX.length) {
+      grow(size * 2);
+    }
+    int slot = size++;
+    positionX[slot] = x;
+    positionY[slot] = y;
+    speedX[slot] = 0;
+    speedY[slot] = 0;
+    accelerationX[slot] = 0;
+    accelerationY[slot] = 0;
+    weight[slot] = particleWeight;
+    stable[slot] = pinned;
+    vertices[slot] = vertex;
+    return slot;
+  }
+
+  /**
+   * Removes all particles.
+   */
+  public void clear() {
+    Arrays.fill(vertices, 0, size, null);
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Resets the acceleration of all particles.
+   */
+  public void resetAccelerations() {
+    Arrays.fill(accelerationX, 0, size, 0);
+    Arrays.fill(accelerationY, 0, size, 0);
+  }
+
+  /**
+   * Accelerates a particle. The force is divided by the particle weight and
+   * subtracted from the current acceleration.
+   *
+   * @param slot
+   *          particle slot
+   * @param forceX
+   *          x component of the force
+   * @param forceY
+   *          y component of the force
+   */
+  public void accelerate(int slot, double forceX, double forceY) {
+    if (!stable[slot]) {
+      double scale = 1;
+      if (weight[slot] >= 0) {
+        scale = 1.0 / weight[slot];
+      }
+      accelerationX[slot] -= forceX * scale;
+      accelerationY[slot] -= forceY * scale;
+    }
+  }
+
+  /**
+   * Each time a ticker impuls happens, the newly calculated acceleration and
+   * speed are updated and the new particle position will be set accordingly.
+   * If the speed of a particle is lower than a given value, its position is
+   * marked as is stable.
+   *
+   * The related vertex is not updated, see {@link #updateRelatedVertex(int)}.
+   *
+   * @param slot
+   *          particle slot
+   */
+  public void update(int slot) {
+    if (!stable[slot]) {
+      speedX[slot] += accelerationX[slot];
+      speedY[slot] += accelerationY[slot];
+      positionX[slot] += speedX[slot];
+      positionY[slot] += speedY[slot];
+      if (Math.abs(speedX[slot] + speedY[slot]) < STABLE_SPEED) {
+        stable[slot] = true;
+        vertices[slot].setStable(true);
+      }
+    }
+  }
+
+  /**
+   * Updates the X/Y positions of the business vertex with the calculated
+   * values.
+   *
+   * The view is not informed, see {@link Area#publishPositions()}.
+   *
+   * @param slot
+   *          particle slot
+   */
+  public void updateRelatedVertex(int slot) {
+    vertices[slot].updateCoordinates(positionX[slot], positionY[slot]);
+  }
+
+  /**
+   * Multiplies the speed of a particle.
+   *
+   * @param slot
+   *          particle slot
+   * @param factor
+   *          multiplicator
+   */
+  public void scaleSpeed(int slot, double factor) {
+    speedX[slot] *= factor;
+    speedY[slot] *= factor;
+  }
+
+  /**
+   * Limits the speed of a particle to the given length.
+   *
+   * @param slot
+   *          particle slot
+   * @param maxSpeed
+   *          maximum speed
+   */
+  public void limitSpeed(int slot, double maxSpeed) {
+    double speed = Math.sqrt(
+        speedX[slot] * speedX[slot] + speedY[slot] * speedY[slot]);
+    if (speed > maxSpeed) {
+      scaleSpeed(slot, maxSpeed / speed);
+    }
+  }
+
+  public double getX(int slot) {
+    return positionX[slot];
+  }
+
+  public double getY(int slot) {
+    return positionY[slot];
+  }
+
+  public void setX(int slot, double x) {
+    positionX[slot] = x;
+  }
+
+  public void setY(int slot, double y) {
+    positionY[slot] = y;
+  }
+
+  public double getSpeedX(int slot) {
+    return speedX[slot];
+  }
+
+  public double getSpeedY(int slot) {
+    return speedY[slot];
+  }
+
+  public void setSpeedX(int slot, double x) {
+    speedX[slot] = x;
+  }
+
+  public void setSpeedY(int slot, double y) {
+    speedY[slot] = y;
+  }
+
+  public double getAccelerationX(int slot) {
+    return accelerationX[slot];
+  }
+
+  public double getAccelerationY(int slot) {
+    return accelerationY[slot];
+  }
+
+  public double getWeight(int slot) {
+    return weight[slot];
+  }
+
+  public boolean isStable(int slot) {
+    return stable[slot];
+  }
+
+  public GraphVertex getVertex(int slot) {
+    return vertices[slot];
+  }
+
+  private void allocate(int capacity) {
+    positionX = new double[capacity];
+    positionY = new double[capacity];
+    speedX = new double[capacity];
+    speedY = new double[capacity];
+    accelerationX = new double[capacity];
+    accelerationY = new double[capacity];
+    weight = new double[capacity];
+    stable = new boolean[capacity];
+    vertices = new GraphVertex[capacity];
+  }
+
+  private void grow(int capacity) {
+    positionX = Arrays.copyOf(positionX, capacity);
+    positionY = Arrays.copyOf(positionY, capacity);
+    speedX = Arrays.copyOf(speedX, capacity);
+    speedY = Arrays.copyOf(speedY, capacity);
+    accelerationX = Arrays.copyOf(accelerationX, capacity);
+    accelerationY = Arrays.copyOf(accelerationY, capacity);
+    weight = Arrays.copyOf(weight, capacity);
+    stable = Arrays.copyOf(stable, capacity);
+    vertices = Arrays.copyOf(vertices, capacity);
+  }
+}
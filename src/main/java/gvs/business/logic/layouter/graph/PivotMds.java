@@ -0,0 +1,261 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.Arrays;
+
+/**
+ * Initial placement by pivot MDS, see Brandes and Pich: Eigensolver Methods
+ * for Progressive Multidimensional Scaling of Large Data.
+ *
+ * The graph theoretical distances from a few pivot vertices are computed by
+ * breadth first searches. Classical multidimensional scaling of these
+ * distances yields a placement in which the distance of two vertices roughly
+ * matches the length of the shortest path between them. The force engine
+ * only has to refine such a placement, instead of untangling random
+ * positions.
+ *
+ * The placement is deterministic, it only depends on the order of the
+ * vertices.
+ *
+ * @author mwieland
+ *
+ */
+public final class PivotMds {
+
+  private static final int MAX_PIVOTS = 50;
+  private static final int DIMENSIONS = 2;
+  private static final int MAX_POWER_ITERATIONS = 200;
+  private static final double POWER_TOLERANCE = 1e-9;
+
+  private PivotMds() {
+  }
+
+  /**
+   * Place the vertices of a graph. The positions are centered around the
+   * origin and the average edge is about as long as the given edge length.
+   *
+   * @param adjacency
+   *          neighbours of each vertex
+   * @param edgeLength
+   *          desired edge length
+   * @return x positions at index 0, y positions at index 1
+   */
+  public static double[][] computePositions(int[][] adjacency,
+      double edgeLength) {
+
+    int size = adjacency.length;
+    double[][] positions = new double[DIMENSIONS][size];
+    if (size < 2) {
+      return positions;
+    }
+
+    int pivotCount = Math.min(MAX_PIVOTS, size);
+    double[][] distances = computePivotDistances(adjacency, pivotCount);
+    doubleCenter(distances, size, pivotCount);
+
+    double[][] eigenvectors = computeEigenvectors(distances, size,
+        pivotCount);
+    for (int d = 0; d < DIMENSIONS; d++) {
+      for (int i = 0; i < size; i++) {
+        double sum = 0;
+        for (int p = 0; p < pivotCount; p++) {
+          sum += distances[p][i] * eigenvectors[d][p];
+        }
+        positions[d][i] = sum;
+      }
+    }
+
+    scale(positions, adjacency, edgeLength);
+    return positions;
+  }
+
+  /**
+   * Breadth first search from each pivot. The first pivot is the first
+   * vertex, each further pivot is the vertex farthest away from all pivots
+   * chosen so far. Unreachable vertices count as one step farther than the
+   * most distant reachable one.
+   *
+   * @return distance from each pivot to each vertex
+   */
+  private static double[][] computePivotDistances(int[][] adjacency,
+      int pivotCount) {
+
+    int size = adjacency.length;
+    double[][] distances = new double[pivotCount][];
+    int[] minDistance = new int[size];
+    Arrays.fill(minDistance, Integer.MAX_VALUE);
+    int[] hops = new int[size];
+    int[] queue = new int[size];
+
+    int pivot = 0;
+    for (int p = 0; p < pivotCount; p++) {
+      Arrays.fill(hops, -1);
+      hops[pivot] = 0;
+      queue[0] = pivot;
+      int head = 0;
+      int tail = 1;
+      int maxHops = 0;
+      while (head < tail) {
+        int vertex = queue[head++];
+        for (int neighbour : adjacency[vertex]) {
+          if (hops[neighbour] == -1) {
+            hops[neighbour] = hops[vertex] + 1;
+            maxHops = hops[neighbour];
+            queue[tail++] = neighbour;
+          }
+        }
+      }
+
+      distances[p] = new double[size];
+      for (int i = 0; i < size; i++) {
+        if (hops[i] == -1) {
+          hops[i] = maxHops + 1;
+        }
+        distances[p][i] = hops[i];
+        minDistance[i] = Math.min(minDistance[i], hops[i]);
+      }
+      for (int i = 0; i < size; i++) {
+        if (minDistance[i] > minDistance[pivot]) {
+          pivot = i;
+        }
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * Square the distances and center them, so the columns are the inner
+   * products of the vertex positions with the pivot positions.
+   */
+  private static void doubleCenter(double[][] distances, int size,
+      int pivotCount) {
+
+    double[] pivotMeans = new double[pivotCount];
+    double[] vertexMeans = new double[size];
+    double mean = 0;
+    for (int p = 0; p < pivotCount; p++) {
+      for (int i = 0; i < size; i++) {
+        double squared = distances[p][i] * distances[p][i];
+        distances[p][i] = squared;
+        pivotMeans[p] += squared / size;
+        vertexMeans[i] += squared / pivotCount;
+        mean += squared / ((double) size * pivotCount);
+      }
+    }
+    for (int p = 0; p < pivotCount; p++) {
+      for (int i = 0; i < size; i++) {
+        distances[p][i] = -0.5
+            * (distances[p][i] - pivotMeans[p] - vertexMeans[i] + mean);
+      }
+    }
+  }
+
+  /**
+   * The dominant eigenvectors of CᵀC, where C is the centered distance
+   * matrix, computed by power iteration with deflation.
+   */
+  private static double[][] computeEigenvectors(double[][] centered,
+      int size, int pivotCount) {
+
+    double[][] product = new double[pivotCount][pivotCount];
+    for (int p = 0; p < pivotCount; p++) {
+      for (int q = p; q < pivotCount; q++) {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+          sum += centered[p][i] * centered[q][i];
+        }
+        product[p][q] = sum;
+        product[q][p] = sum;
+      }
+    }
+
+    double[][] eigenvectors = new double[DIMENSIONS][pivotCount];
+    for (int d = 0; d < DIMENSIONS; d++) {
+      double[] vector = eigenvectors[d];
+      for (int p = 0; p < pivotCount; p++) {
+        // deterministic start, not parallel to the former eigenvectors
+        vector[p] = (p % (d + 2)) + 1;
+      }
+      orthonormalize(vector, eigenvectors, d);
+
+      double[] next = new double[pivotCount];
+      for (int i = 0; i < MAX_POWER_ITERATIONS; i++) {
+        for (int p = 0; p < pivotCount; p++) {
+          double sum = 0;
+          for (int q = 0; q < pivotCount; q++) {
+            sum += product[p][q] * vector[q];
+          }
+          next[p] = sum;
+        }
+        orthonormalize(next, eigenvectors, d);
+        double change = 0;
+        for (int p = 0; p < pivotCount; p++) {
+          change += Math.abs(next[p] - vector[p]);
+          vector[p] = next[p];
+        }
+        if (change < POWER_TOLERANCE) {
+          break;
+        }
+      }
+    }
+    return eigenvectors;
+  }
+
+  /**
+   * Remove the components of the former eigenvectors and normalize.
+   */
+  private static void orthonormalize(double[] vector, double[][] former,
+      int formerCount) {
+
+    for (int d = 0; d < formerCount; d++) {
+      double dot = 0;
+      for (int p = 0; p < vector.length; p++) {
+        dot += vector[p] * former[d][p];
+      }
+      for (int p = 0; p < vector.length; p++) {
+        vector[p] -= dot * former[d][p];
+      }
+    }
+    double length = 0;
+    for (double value : vector) {
+      length += value * value;
+    }
+    length = Math.sqrt(length);
+    if (length > 0) {
+      for (int p = 0; p < vector.length; p++) {
+        vector[p] /= length;
+      }
+    }
+  }
+
+  /**
+   * Center the positions and scale them to the desired average edge length.
+   */
+  private static void scale(double[][] positions, int[][] adjacency,
+      double edgeLength) {
+
+    int size = adjacency.length;
+    double totalLength = 0;
+    int edgeCount = 0;
+    for (int i = 0; i < size; i++) {
+      for (int neighbour : adjacency[i]) {
+        totalLength += Math.hypot(positions[0][i] - positions[0][neighbour],
+            positions[1][i] - positions[1][neighbour]);
+        edgeCount++;
+      }
+    }
+    double factor = 1;
+    if (totalLength > 0) {
+      factor = edgeLength * edgeCount / totalLength;
+    }
+
+    for (int d = 0; d < DIMENSIONS; d++) {
+      double mean = 0;
+      for (int i = 0; i < size; i++) {
+        mean += positions[d][i] / size;
+      }
+      for (int i = 0; i < size; i++) {
+        positions[d][i] = (positions[d][i] - mean) * factor;
+      }
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.Arrays;
+
+/**
+ * Barnes-Hut quadtree over the particles of an {@link Area}.
+ *
+ * Each cell stores the total weight and the weighted center of mass of the
+ * particles it contains. Cells which are small compared to their distance to a
+ * particle are treated as a single cluster, which reduces the repulsion
+ * computation from O(n²) to O(n log n).
+ *
+ * The nodes are kept in primitive arrays, so the tree can be rebuilt on every
+ * tick without allocating new objects.
+ *
+ * @author mwieland
+ *
+ */
+public class QuadTree {
+
+  private int nodeCount;
+
+  private double[] cellX;
+  private double[] cellY;
+  private double[] cellSize;
+
+  private double[] weightSum;
+  private double[] weightedX;
+  private double[] weightedY;
+
+  private double[] leafX;
+  private double[] leafY;
+  private int[] leafBody;
+  private int[] bodyCount;
+  private int[] firstChild;
+  private int[] depth;
+
+  private static final int CHILDREN = 4;
+  private static final int EMPTY = -1;
+  private static final int MAX_DEPTH = 24;
+  private static final int INITIAL_CAPACITY = 64;
+  private static final double ROOT_PADDING = 1.0;
+
+  /**
+   * Callback for each cluster which influences a particle.
+   */
+  @FunctionalInterface
+  public interface ClusterVisitor {
+
+    /**
+     * Visit a cluster of particles.
+     *
+     * @param x
+     *          x coordinate of the center of mass
+     * @param y
+     *          y coordinate of the center of mass
+     * @param weight
+     *          total weight of the cluster
+     * @param size
+     *          number of particles in the cluster
+     */
+    void visit(double x, double y, double weight, int size);
+  }
+
+  /**
+   * Creates an empty quadtree.
+   */
+  public QuadTree() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates a stack which is large enough to traverse any quadtree.
+   *
+   * @return traversal stack
+   */
+  public static int[] createStack() {
+    return new int[CHILDREN * (MAX_DEPTH + 1)];
+  }
+
+  /**
+   * Remove all particles and set the bounds of the root cell.
+   *
+   * @param minX
+   *          left border of the root cell
+   * @param minY
+   *          upper border of the root cell
+   * @param size
+   *          width and height of the root cell
+   */
+  public void reset(double minX, double minY, double size) {
+    nodeCount = 0;
+    // padding guarantees that particles on the border lie inside the root
+    createNode(minX, minY, size + ROOT_PADDING, 0);
+  }
+
+  /**
+   * Insert a particle.
+   *
+   * @param index
+   *          particle index
+   * @param x
+   *          x position
+   * @param y
+   *          y position
+   * @param weight
+   *          particle weight
+   */
+  public void insert(int index, double x, double y, double weight) {
+    int node = 0;
+    while (true) {
+      if (firstChild[node] == EMPTY) {
+        if (bodyCount[node] == 0) {
+          leafBody[node] = index;
+          leafX[node] = x;
+          leafY[node] = y;
+          addWeight(node, x, y, weight);
+          return;
+        }
+        if (depth[node] >= MAX_DEPTH) {
+          // (nearly) coincident particles share one leaf
+          addWeight(node, x, y, weight);
+          return;
+        }
+        split(node);
+      }
+      addWeight(node, x, y, weight);
+      node = childFor(node, x, y);
+    }
+  }
+
+  /**
+   * Visit all clusters which act on the given particle. A cell is treated as
+   * one cluster, if its size divided by the distance to its center of mass is
+   * smaller than theta. The particle itself is never visited.
+   *
+   * Multiple threads may visit the tree concurrently, as long as each one uses
+   * its own stack and no particle is inserted meanwhile.
+   *
+   * @param index
+   *          particle index
+   * @param x
+   *          x position of the particle
+   * @param y
+   *          y position of the particle
+   * @param weight
+   *          weight of the particle
+   * @param theta
+   *          accuracy threshold. 0 visits every single particle
+   * @param visitor
+   *          callback for each cluster
+   * @param stack
+   *          traversal stack, see {@link #createStack()}
+   */
+  public void visit(int index, double x, double y, double weight,
+      double theta, ClusterVisitor visitor, int[] stack) {
+
+    if (nodeCount == 0) {
+      return;
+    }
+
+    int top = 0;
+    stack[top++] = 0;
+    while (top > 0) {
+      int node = stack[--top];
+      int count = bodyCount[node];
+
+      if (firstChild[node] == EMPTY) {
+        if (count == 1) {
+          if (leafBody[node] != index) {
+            visitor.visit(leafX[node], leafY[node], weightSum[node], 1);
+          }
+        } else if (count > 1) {
+          visitCoincidentLeaf(node, x, y, weight, visitor);
+        }
+        continue;
+      }
+      if (weightSum[node] <= 0) {
+        continue;
+      }
+
+      double centerX = weightedX[node] / weightSum[node];
+      double centerY = weightedY[node] / weightSum[node];
+      double distance = Math.hypot(centerX - x, centerY - y);
+
+      if (distance > 0 && cellSize[node] < theta * distance
+          && !contains(node, x, y)) {
+        visitor.visit(centerX, centerY, weightSum[node], count);
+      } else {
+        int child = firstChild[node];
+        for (int i = 0; i < CHILDREN; i++) {
+          if (bodyCount[child + i] > 0) {
+            stack[top++] = child + i;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * A leaf at maximum depth holds several particles. If the visiting particle
+   * lies within this leaf, its own contribution is removed from the cluster.
+   */
+  private void visitCoincidentLeaf(int node, double x, double y,
+      double weight, ClusterVisitor visitor) {
+
+    double sum = weightSum[node];
+    double sumX = weightedX[node];
+    double sumY = weightedY[node];
+    int count = bodyCount[node];
+
+    if (contains(node, x, y)) {
+      sum -= weight;
+      sumX -= weight * x;
+      sumY -= weight * y;
+      count--;
+    }
+    if (count > 0 && sum > 0) {
+      visitor.visit(sumX / sum, sumY / sum, sum, count);
+    }
+  }
+
+  private boolean contains(int node, double x, double y) {
+    return x >= cellX[node] && x < cellX[node] + cellSize[node]
+        && y >= cellY[node] && y < cellY[node] + cellSize[node];
+  }
+
+  private void addWeight(int node, double x, double y, double weight) {
+    weightSum[node] += weight;
+    weightedX[node] += weight * x;
+    weightedY[node] += weight * y;
+    bodyCount[node]++;
+  }
+
+  /**
+   * Create four children and move the particle of the leaf into one of them.
+   */
+  private void split(int node) {
+    double half = cellSize[node] / 2;
+    double x = cellX[node];
+    double y = cellY[node];
+    int childDepth = depth[node] + 1;
+
+    int child = createNode(x, y, half, childDepth);
+    createNode(x + half, y, half, childDepth);
+    createNode(x, y + half, half, childDepth);
+    createNode(x + half, y + half, half, childDepth);
+    firstChild[node] = child;
+
+    int target = childFor(node, leafX[node], leafY[node]);
+    leafBody[target] = leafBody[node];
+    leafX[target] = leafX[node];
+    leafY[target] = leafY[node];
+    weightSum[target] = weightSum[node];
+    weightedX[target] = weightedX[node];
+    weightedY[target] = weightedY[node];
+    bodyCount[target] = bodyCount[node];
+    leafBody[node] = EMPTY;
+  }
+
+  private int childFor(int node, double x, double y) {
+    double half = cellSize[node] / 2;
+    int quadrant = 0;
+    if (x >= cellX[node] + half) {
+      quadrant += 1;
+    }
+    if (y >= cellY[node] + half) {
+      quadrant += 2;
+    }
+    return firstChild[node] + quadrant;
+  }
+
+  private int createNode(double x, double y, double size, int nodeDepth) {
+    if (nodeCount == cellX.length) {
+      grow();
+    }
+    int node = nodeCount++;
+    cellX[node] = x;
+    cellY[node] = y;
+    cellSize[node] = size;
+    weightSum[node] = 0;
+    weightedX[node] = 0;
+    weightedY[node] = 0;
+    leafBody[node] = EMPTY;
+    bodyCount[node] = 0;
+    firstChild[node] = EMPTY;
+    depth[node] = nodeDepth;
+    return node;
+  }
+
+  private void allocate(int capacity) {
+    cellX = new double[capacity];
+    cellY = new double[capacity];
+    cellSize = new double[capacity];
+    weightSum = new double[capacity];
+    weightedX = new double[capacity];
+    weightedY = new double[capacity];
+    leafX = new double[capacity];
+    leafY = new double[capacity];
+    leafBody = new int[capacity];
+    bodyCount = new int[capacity];
+    firstChild = new int[capacity];
+    depth = new int[capacity];
+  }
+
+  private void grow() {
+    int capacity = cellX.length * 2;
+    cellX = Arrays.copyOf(cellX, capacity);
+    cellY = Arrays.copyOf(cellY, capacity);
+    cellSize = Arrays.copyOf(cellSize, capacity);
+    weightSum = Arrays.copyOf(weightSum, capacity);
+    weightedX = Arrays.copyOf(weightedX, capacity);
+    weightedY = Arrays.copyOf(weightedY, capacity);
+    leafX = Arrays.copyOf(leafX, capacity);
+    leafY = Arrays.copyOf(leafY, capacity);
+    leafBody = Arrays.copyOf(leafBody, capacity);
+    bodyCount = Arrays.copyOf(bodyCount, capacity);
+    firstChild = Arrays.copyOf(firstChild, capacity);
+    depth = Arrays.copyOf(depth, capacity);
+  }
+}
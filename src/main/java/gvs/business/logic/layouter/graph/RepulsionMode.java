@@ -0,0 +1,50 @@
+package gvs.business.logic.layouter.graph;
+
+/**
+ * Strategy used by the {@link Area} to compute the repulsive forces between
+ * particles.
+ *
+ * @author mwieland
+ *
+ */
+public enum RepulsionMode {
+
+  /**
+   * Every particle is compared with every other particle. O(n²) per tick.
+   */
+  EXACT("exact"),
+
+  /**
+   * Distant particle groups are approximated by their center of mass using a
+   * {@link QuadTree}. O(n log n) per tick.
+   */
+  BARNES_HUT("barnes-hut"),
+
+  /**
+   * Only particles within a cutoff radius repel each other. The neighbours
+   * are found with a {@link SpatialGrid}. O(n) per tick for evenly spread
+   * particles.
+   */
+  GRID("grid");
+
+  private final String mode;
+
+  RepulsionMode(String mode) {
+    this.mode = mode;
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  /**
+   * Resolve a repulsion mode by its configuration name.
+   *
+   * @param modeName
+   *          configured name, e.g. "barnes-hut"
+   * @return repulsion mode
+   */
+  public static RepulsionMode byName(String modeName) {
+    return valueOf(modeName.toUpperCase().replace('-', '_'));
+  }
+}
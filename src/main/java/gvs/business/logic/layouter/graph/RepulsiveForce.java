@@ -11,6 +11,9 @@ public class RepulsiveForce {
   private double linearity = 3;
   private double impact = 1500;
 
+  // the pairwise computation visits every pair in both directions
+  private static final int PAIR_VISITS = 2;
+
   /**
    * Builds an instance of a repulsive force
    *
@@ -22,30 +25,91 @@ public class RepulsiveForce {
   /**
    * Calculates the repulsive force between particles
    * 
+   * @param store
+   *          particle store
+   * @param forces
+   *          buffer which collects the forces
    * @param refP
+   *          slot of the reference particle
    * @param relationP
+   *          slot of the related particle
+   */
+  public void compute(ParticleStore store, ForceBuffer forces, int refP,
+      int relationP) {
+    double forceX = store.getX(refP) - store.getX(relationP);
+    double forceY = store.getY(refP) - store.getY(relationP);
+    double length = Math.sqrt(forceX * forceX + forceY * forceY);
+
+    if (length != 0) {
+      double nDist = length;
+      if (nDist <= 1.0) {
+        nDist = 1.0;
+      }
+
+      nDist = Math.pow(nDist, linearity);
+
+      double dev = -store.getWeight(refP) * store.getWeight(relationP) / nDist;
+      double scale = dev * impact;
+
+      if (length * Math.abs(scale) > impact) {
+        scale = Math.signum(scale) * impact / length;
+      }
+      forceX *= scale;
+      forceY *= scale;
+
+      forces.add(refP, forceX, forceY);
+      forces.add(relationP, -forceX, -forceY);
+    }
+  }
+
+  /**
+   * Calculates the repulsive force of a cluster of particles onto a single
+   * particle. Used by the Barnes-Hut approximation, where distant particles are
+   * combined to their center of mass.
+   * 
+   * Only the reference particle is accelerated. Since the pairwise computation
+   * visits every pair twice, the cluster force is applied twice as well.
+   * 
+   * @param store
+   *          particle store
+   * @param forces
+   *          buffer which collects the forces
+   * @param refP
+   *          slot of the accelerated particle
+   * @param clusterX
+   *          x coordinate of the cluster's center of mass
+   * @param clusterY
+   *          y coordinate of the cluster's center of mass
+   * @param clusterWeight
+   *          total weight of the cluster
+   * @param clusterSize
+   *          number of particles in the cluster
    */
-  public void compute(Particle refP, Particle relationP) {
-    AreaVector force = new AreaVector(refP.getPointPosition(),
-        relationP.getPointPosition());
+  public void compute(ParticleStore store, ForceBuffer forces, int refP,
+      double clusterX, double clusterY, double clusterWeight,
+      int clusterSize) {
+    double forceX = store.getX(refP) - clusterX;
+    double forceY = store.getY(refP) - clusterY;
+    double length = Math.sqrt(forceX * forceX + forceY * forceY);
 
-    if (force.getLength() != 0) {
-      double nDist = force.getLength();
+    if (length != 0) {
+      double nDist = length;
       if (nDist <= 1.0) {
         nDist = 1.0;
       }
 
       nDist = Math.pow(nDist, linearity);
 
-      double dev = -refP.getWeight() * relationP.getWeight() / nDist;
-      force.reduceMultiplicator(dev * impact);
+      double dev = -store.getWeight(refP) * clusterWeight / nDist;
+      double scale = dev * impact;
 
-      if (force.getLength() > impact) {
-        force.scaleTo(impact);
+      double maxForce = impact * clusterSize;
+      if (length * Math.abs(scale) > maxForce) {
+        scale = Math.signum(scale) * maxForce / length;
       }
-      refP.accelerate(force);
-      force.invertXYCoordinates();
-      relationP.accelerate(force);
+      scale *= PAIR_VISITS;
+
+      forces.add(refP, forceX * scale, forceY * scale);
     }
   }
 }
@@ -0,0 +1,170 @@
+package gvs.business.logic.layouter.graph;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the particles of an {@link Area}.
+ *
+ * The particles are bucketed by cell, so all particles within a radius around
+ * a point are found by looking at the surrounding cells only. The buckets are
+ * kept in primitive arrays, sorted by cell, and are rebuilt on every tick
+ * without allocating new objects.
+ *
+ * @author mwieland
+ *
+ */
+public class SpatialGrid {
+
+  private ParticleStore store;
+
+  private double minX;
+  private double minY;
+  private double cellSize;
+  private int columns;
+  private int rows;
+
+  private int[] cellStart = new int[1];
+  private int[] cellSlots = new int[0];
+  private int[] slotCell = new int[0];
+
+  // limits the number of cells if particles are spread widely
+  private static final int CELLS_PER_PARTICLE = 4;
+  private static final int MIN_CELLS = 64;
+
+  /**
+   * Callback for each particle found by a neighbour query.
+   */
+  @FunctionalInterface
+  public interface NeighbourVisitor {
+
+    /**
+     * Visit a neighbour.
+     *
+     * @param slot
+     *          particle slot
+     */
+    void visit(int slot);
+  }
+
+  /**
+   * Bucket all particles of the store.
+   *
+   * @param particles
+   *          particle store
+   * @param desiredCellSize
+   *          width and height of a cell. Usually the query radius
+   */
+  public void build(ParticleStore particles, double desiredCellSize) {
+    this.store = particles;
+    int size = particles.size();
+
+    minX = Double.MAX_VALUE;
+    minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (int slot = 0; slot < size; slot++) {
+      minX = Math.min(minX, particles.getX(slot));
+      minY = Math.min(minY, particles.getY(slot));
+      maxX = Math.max(maxX, particles.getX(slot));
+      maxY = Math.max(maxY, particles.getY(slot));
+    }
+    if (size == 0) {
+      minX = 0;
+      minY = 0;
+      maxX = 0;
+      maxY = 0;
+    }
+
+    cellSize = desiredCellSize;
+    long maxCells = Math.max(MIN_CELLS, (long) size * CELLS_PER_PARTICLE);
+    while (countCells(maxX, maxY) > maxCells) {
+      cellSize *= 2;
+    }
+    columns = (int) ((maxX - minX) / cellSize) + 1;
+    rows = (int) ((maxY - minY) / cellSize) + 1;
+    int cells = columns * rows;
+
+    if (cellStart.length < cells + 1) {
+      cellStart = new int[cells + 1];
+    } else {
+      Arrays.fill(cellStart, 0, cells + 1, 0);
+    }
+    if (cellSlots.length < size) {
+      cellSlots = new int[size];
+      slotCell = new int[size];
+    }
+
+    // counting sort of the slots by cell
+    for (int slot = 0; slot < size; slot++) {
+      int cell = cellOf(particles.getX(slot), particles.getY(slot));
+      slotCell[slot] = cell;
+      cellStart[cell + 1]++;
+    }
+    for (int cell = 0; cell < cells; cell++) {
+      cellStart[cell + 1] += cellStart[cell];
+    }
+    for (int slot = size - 1; slot >= 0; slot--) {
+      cellSlots[--cellStart[slotCell[slot] + 1]] = slot;
+    }
+    // cellStart[cell + 1] now points to the first slot of the cell
+    System.arraycopy(cellStart, 1, cellStart, 0, cells);
+    cellStart[cells] = size;
+  }
+
+  /**
+   * Visit all particles within the radius around a point. The radius should
+   * not exceed the cell size used to build the grid, otherwise the query
+   * looks at many cells.
+   *
+   * @param x
+   *          x coordinate
+   * @param y
+   *          y coordinate
+   * @param radius
+   *          query radius
+   * @param visitor
+   *          callback for each particle within the radius
+   */
+  public void visitNeighbours(double x, double y, double radius,
+      NeighbourVisitor visitor) {
+    if (store == null) {
+      return;
+    }
+
+    int firstColumn = Math.max(0, (int) Math.floor((x - radius - minX)
+        / cellSize));
+    int lastColumn = Math.min(columns - 1, (int) Math.floor((x + radius
+        - minX) / cellSize));
+    int firstRow = Math.max(0, (int) Math.floor((y - radius - minY)
+        / cellSize));
+    int lastRow = Math.min(rows - 1, (int) Math.floor((y + radius - minY)
+        / cellSize));
+    double radiusSquare = radius * radius;
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        int cell = row * columns + column;
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+          int slot = cellSlots[i];
+          double dx = store.getX(slot) - x;
+          double dy = store.getY(slot) - y;
+          if (dx * dx + dy * dy <= radiusSquare) {
+            visitor.visit(slot);
+          }
+        }
+      }
+    }
+  }
+
+  private long countCells(double maxX, double maxY) {
+    long cellColumns = (long) ((maxX - minX) / cellSize) + 1;
+    long cellRows = (long) ((maxY - minY) / cellSize) + 1;
+    return cellColumns * cellRows;
+  }
+
+  private int cellOf(double x, double y) {
+    int column = (int) ((x - minX) / cellSize);
+    int row = (int) ((y - minY) / cellSize);
+    return row * columns + column;
+  }
+}
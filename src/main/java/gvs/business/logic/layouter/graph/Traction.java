@@ -10,18 +10,20 @@ public class Traction {
 
   private double impact;
   private double distance;
-  private Particle from;
-  private Particle to;
+  private int from;
+  private int to;
 
   /**
    * Creates traction instance. Representing edges
    * 
    * @param from
+   *          slot of the start particle
    * @param to
+   *          slot of the end particle
    * @param impact
    * @param distance
    */
-  public Traction(Particle from, Particle to, double impact, double distance) {
+  public Traction(int from, int to, double impact, double distance) {
     this.from = from;
     this.to = to;
     this.impact = impact;
@@ -31,18 +33,31 @@ public class Traction {
   /**
    * Computes traction forces between given particles
    *
+   * @param store
+   *          particle store
+   * @param forces
+   *          buffer which collects the forces
    */
-  public void compute() {
-    AreaVector force = new AreaVector(from.getPointPosition(),
-        to.getPointPosition());
+  public void compute(ParticleStore store, ForceBuffer forces) {
+    double forceX = store.getX(from) - store.getX(to);
+    double forceY = store.getY(from) - store.getY(to);
+    double length = Math.sqrt(forceX * forceX + forceY * forceY);
 
-    if (force.getLength() != 0) {
-      double dev = (force.getDistance() - distance) / distance;
-      force.scaleTo(dev * impact);
-      from.accelerate(force);
-      force.invertXYCoordinates();
-      to.accelerate(force);
+    if (length != 0) {
+      double dev = (length - distance) / distance;
+      double scale = dev * impact / length;
+      forceX *= scale;
+      forceY *= scale;
+      forces.add(from, forceX, forceY);
+      forces.add(to, -forceX, -forceY);
     }
   }
 
+  public int getFrom() {
+    return from;
+  }
+
+  public int getTo() {
+    return to;
+  }
 }
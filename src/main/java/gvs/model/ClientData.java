@@ -12,6 +12,7 @@ public class ClientData {
   private final String sessionName;
   private final ISessionType sessionType;
   private final Graph graph;
+  private final GraphDelta delta;
 
   /**
    * Client data
@@ -31,6 +32,28 @@ public class ClientData {
     this.sessionName = sessionName;
     this.sessionType = sessionType;
     this.graph = newGraph;
+    this.delta = null;
+  }
+
+  /**
+   * Client data, which changes the last graph of an existing session.
+   * 
+   * @param sessionId
+   *          id of the session
+   * @param sessionName
+   *          name of the session
+   * @param sessionType
+   *          type of the session
+   * @param delta
+   *          changes of the last graph in the session
+   */
+  public ClientData(long sessionId, String sessionName,
+      ISessionType sessionType, GraphDelta delta) {
+    this.sessionId = sessionId;
+    this.sessionName = sessionName;
+    this.sessionType = sessionType;
+    this.graph = null;
+    this.delta = delta;
   }
 
   public long getSessionId() {
@@ -45,7 +68,17 @@ public class ClientData {
     return sessionType;
   }
 
+  /**
+   * @return graph or null, if the data is a delta
+   */
   public Graph getGraph() {
     return graph;
   }
+
+  /**
+   * @return delta or null, if the data is a full graph
+   */
+  public GraphDelta getDelta() {
+    return delta;
+  }
 }
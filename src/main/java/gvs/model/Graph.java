@@ -1,11 +1,18 @@
 package gvs.model;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gvs.util.Action;
+
 /**
  * Represents a graph
  * 
@@ -15,10 +22,14 @@ import org.slf4j.LoggerFactory;
 public class Graph {
 
   private int id;
-  private boolean isLayouted;
+  private volatile boolean isLayouted;
   private String snapshotDescription;
-  private Collection<IVertex> vertices;
-  private Collection<IEdge> edges;
+  private volatile Collection<IVertex> vertices;
+  private volatile Collection<IEdge> edges;
+  // vertices and edges belong to other graphs of a delta as well
+  private volatile boolean sharesVertices;
+
+  private final List<Action> positionListeners = new CopyOnWriteArrayList<>();
 
   private static final Logger logger = LoggerFactory.getLogger(Graph.class);
 
@@ -84,6 +95,71 @@ public class Graph {
         verticesString, edgesString);
   }
 
+  /**
+   * Register a listener which is informed after the layouter updated the
+   * positions of the vertices.
+   * 
+   * @param listener
+   *          position listener
+   */
+  public void addPositionListener(Action listener) {
+    positionListeners.add(listener);
+  }
+
+  public void removePositionListener(Action listener) {
+    positionListeners.remove(listener);
+  }
+
+  /**
+   * Inform the position listeners, once all vertex positions of a layout
+   * iteration are updated. Called by the layouter once per frame, instead of
+   * once per vertex.
+   */
+  public void notifyPositionListeners() {
+    positionListeners.forEach(Action::execute);
+  }
+
+  /**
+   * Mark the vertices and edges as shared with another graph, see
+   * {@link GraphDelta#applyTo(Graph)}.
+   */
+  void shareVertices() {
+    sharesVertices = true;
+  }
+
+  /**
+   * @return whether vertices and edges are shared with other graphs
+   */
+  public boolean sharesVertices() {
+    return sharesVertices;
+  }
+
+  /**
+   * Replace shared vertices and edges by own copies.
+   * 
+   * A graph of a delta shares the vertices and edges, which the delta does
+   * not touch, with the previous graph. The vertices keep the same position
+   * in both graphs, like the pinned vertices of an incremental layout or a
+   * vertex which is dragged and then taken over to the next graph. A layout,
+   * which may move shared vertices, must copy them first. Observers of the
+   * graph get the copies with the next position update.
+   * 
+   * @return true, if the vertices were replaced
+   */
+  public synchronized boolean copySharedVertices() {
+    if (!sharesVertices) {
+      return false;
+    }
+    logger.info("Copy shared vertices of graph {}", id);
+    Map<Long, IVertex> copies = new LinkedHashMap<>();
+    vertices.forEach(v -> copies.put(v.getId(),
+        GraphDelta.copy(v, v.getStyle())));
+    edges = GraphDelta.reconnect(edges, copies);
+    vertices = new ArrayList<>(copies.values());
+    sharesVertices = false;
+    return true;
+  }
+
   public boolean isLayoutable() {
     return !isLayouted;
   }
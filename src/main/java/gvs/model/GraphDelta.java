@@ -0,0 +1,267 @@
+package gvs.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import gvs.model.graph.GraphVertex;
+import gvs.model.styles.GVSStyle;
+
+/**
+ * Changes from one graph of a session to the next. Clients, which change only
+ * a few vertices or edges per step, send a delta instead of the full graph.
+ *
+ * The changes are applied in order of their arrival by
+ * {@link #applyTo(Graph)}. Edges are identified by their start and end
+ * vertex, undirected edges in both directions. The new graph shares all
+ * vertices and edges, which the changes do not touch, with the previous
+ * graph.
+ *
+ * @author mwieland
+ */
+public class GraphDelta {
+
+  private final List<Change> changes = new ArrayList<>();
+
+  /**
+   * Change of the vertices and edges of a graph. The ids of the vertices,
+   * which are not shared with the previous graph, are added to copied.
+   */
+  private interface Change {
+    void apply(Map<Long, IVertex> vertices, List<IEdge> edges,
+        Set<Long> copied);
+  }
+
+  /**
+   * Add a vertex or replace the vertex with the same id.
+   *
+   * @param vertex
+   *          new vertex
+   * @param positioned
+   *          whether the vertex has a position. Otherwise, a replaced vertex
+   *          keeps its position
+   */
+  public void putVertex(IVertex vertex, boolean positioned) {
+    changes.add((vertices, edges, copied) -> {
+      // the delta may be applied more than once
+      IVertex added = copy(vertex, vertex.getStyle());
+      IVertex former = vertices.put(vertex.getId(), added);
+      copied.add(vertex.getId());
+      if (former != null && !positioned) {
+        added.updateCoordinates(former.getXPosition(),
+            former.getYPosition());
+        added.setUserPositioned(former.isUserPositioned());
+      }
+    });
+  }
+
+  /**
+   * Remove a vertex and its edges. Unknown vertices are ignored.
+   *
+   * @param vertexId
+   *          id of the vertex
+   */
+  public void removeVertex(long vertexId) {
+    changes.add((vertices, edges, copied) -> {
+      if (vertices.remove(vertexId) != null) {
+        edges.removeIf(e -> e.getStartVertex().getId() == vertexId
+            || e.getEndVertex().getId() == vertexId);
+      }
+    });
+  }
+
+  /**
+   * Change the style of a vertex.
+   *
+   * @param vertexId
+   *          id of the vertex
+   * @param style
+   *          new style
+   */
+  public void restyleVertex(long vertexId, GVSStyle style) {
+    changes.add((vertices, edges, copied) -> {
+      vertices.put(vertexId, copy(getVertex(vertices, vertexId), style));
+      copied.add(vertexId);
+    });
+  }
+
+  /**
+   * Add an edge between two vertices, which exist at this point.
+   *
+   * @param label
+   *          label
+   * @param style
+   *          style
+   * @param isDirected
+   *          whether the edge is directed
+   * @param fromId
+   *          id of the start vertex
+   * @param toId
+   *          id of the end vertex
+   */
+  public void addEdge(String label, GVSStyle style, boolean isDirected,
+      long fromId, long toId) {
+
+    changes.add((vertices, edges, copied) -> {
+      // an incremental layout moves the vertices of added edges
+      edges.add(new Edge(label, style, isDirected,
+          getOwnVertex(vertices, copied, fromId),
+          getOwnVertex(vertices, copied, toId)));
+    });
+  }
+
+  /**
+   * Remove all edges between two vertices.
+   *
+   * @param fromId
+   *          id of the start vertex
+   * @param toId
+   *          id of the end vertex
+   */
+  public void removeEdge(long fromId, long toId) {
+    changes.add((vertices, edges, copied) -> {
+      edges.removeIf(e -> connects(e, fromId, toId));
+    });
+  }
+
+  /**
+   * Change the style of all edges between two vertices.
+   *
+   * @param fromId
+   *          id of the start vertex
+   * @param toId
+   *          id of the end vertex
+   * @param style
+   *          new style
+   */
+  public void restyleEdge(long fromId, long toId, GVSStyle style) {
+    changes.add((vertices, edges, copied) -> {
+      edges.replaceAll(e -> {
+        if (!connects(e, fromId, toId)) {
+          return e;
+        }
+        return new Edge(e.getLabel(), style, e.isDirected(),
+            e.getStartVertex(), e.getEndVertex());
+      });
+    });
+  }
+
+  /**
+   * @return number of changes
+   */
+  public int size() {
+    return changes.size();
+  }
+
+  /**
+   * Create the next graph of a session.
+   *
+   * The new graph shares the vertices and edges, which the changes do not
+   * touch, with the previous graph. Only changed vertices, the vertices of
+   * added edges and the edges of changed vertices are new objects. Shared
+   * vertices have the same position in both graphs, see
+   * {@link Graph#copySharedVertices()}. The structure of the previous graph
+   * is not changed.
+   *
+   * @param previous
+   *          last graph of the session
+   * @return new graph
+   * @throws IllegalArgumentException
+   *           if the previous graph is a tree or a change refers to an
+   *           unknown vertex
+   */
+  public Graph applyTo(Graph previous) {
+    Collection<IVertex> previousVertices;
+    Collection<IEdge> previousEdges;
+    // the previous graph may copy its vertices meanwhile
+    synchronized (previous) {
+      previousVertices = previous.getVertices();
+      previousEdges = previous.getEdges();
+      previous.shareVertices();
+    }
+
+    Map<Long, IVertex> vertices = new LinkedHashMap<>();
+    previousVertices.forEach(v -> {
+      if (v.isTreeVertex()) {
+        throw new IllegalArgumentException("Deltas only apply to graphs");
+      }
+      vertices.put(v.getId(), v);
+    });
+    List<IEdge> edges = new ArrayList<>(previousEdges);
+    Set<Long> copied = new HashSet<>();
+
+    changes.forEach(change -> change.apply(vertices, edges, copied));
+
+    Graph graph = new Graph(previous.getSnapshotDescription(),
+        new ArrayList<>(vertices.values()), reconnect(edges, vertices));
+    graph.shareVertices();
+    return graph;
+  }
+
+  /**
+   * Connect the edges to the vertices of the new graph. Edges between
+   * shared vertices are shared as well.
+   */
+  static List<IEdge> reconnect(Collection<IEdge> edges,
+      Map<Long, IVertex> vertices) {
+
+    List<IEdge> reconnected = new ArrayList<>(edges.size());
+    edges.forEach(e -> {
+      IVertex start = vertices.get(e.getStartVertex().getId());
+      IVertex end = vertices.get(e.getEndVertex().getId());
+      if (start == e.getStartVertex() && end == e.getEndVertex()) {
+        reconnected.add(e);
+      } else {
+        reconnected.add(new Edge(e.getLabel(), e.getStyle(), e.isDirected(),
+            start, end));
+      }
+    });
+    return reconnected;
+  }
+
+  private static IVertex getVertex(Map<Long, IVertex> vertices,
+      long vertexId) {
+
+    IVertex vertex = vertices.get(vertexId);
+    if (vertex == null) {
+      throw new IllegalArgumentException("Unknown vertex " + vertexId);
+    }
+    return vertex;
+  }
+
+  /**
+   * Returns a vertex, which is not shared with the previous graph.
+   */
+  private static IVertex getOwnVertex(Map<Long, IVertex> vertices,
+      Set<Long> copied, long vertexId) {
+
+    IVertex vertex = getVertex(vertices, vertexId);
+    if (copied.add(vertexId)) {
+      vertex = copy(vertex, vertex.getStyle());
+      vertices.put(vertexId, vertex);
+    }
+    return vertex;
+  }
+
+  static IVertex copy(IVertex vertex, GVSStyle style) {
+    if (vertex.isTreeVertex()) {
+      throw new IllegalArgumentException("Deltas only apply to graphs");
+    }
+    GraphVertex copy = new GraphVertex(vertex.getId(), vertex.getLabel(),
+        style, vertex.getXPosition(), vertex.getYPosition(),
+        vertex.getIcon());
+    copy.setUserPositioned(vertex.isUserPositioned());
+    return copy;
+  }
+
+  private static boolean connects(IEdge edge, long fromId, long toId) {
+    long startId = edge.getStartVertex().getId();
+    long endId = edge.getEndVertex().getId();
+    return (startId == fromId && endId == toId)
+        || (!edge.isDirected() && startId == toId && endId == fromId);
+  }
+}
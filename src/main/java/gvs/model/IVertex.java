@@ -1,7 +1,5 @@
 package gvs.model;
 
-import java.util.Observer;
-
 import gvs.model.styles.GVSStyle;
 import gvs.util.FontAwesome.Glyph;
 
@@ -31,8 +29,6 @@ public interface IVertex {
 
   GVSStyle getStyle();
 
-  void addObserver(Observer o);
-
   boolean isTreeVertex();
 
 }
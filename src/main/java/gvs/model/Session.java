@@ -70,6 +70,27 @@ public class Session {
     graphs.add(graph);
   }
 
+  /**
+   * Adds the next graph, which is the last graph of the session with the
+   * changes of a delta applied. The last graph itself is not changed.
+   * 
+   * @param delta
+   *          changes of the last graph
+   * @return new graph
+   * @throws IllegalStateException
+   *           if the session has no graph yet
+   * @throws IllegalArgumentException
+   *           if the delta does not apply to the last graph
+   */
+  public Graph applyDelta(GraphDelta delta) {
+    if (graphs.isEmpty()) {
+      throw new IllegalStateException("No graph to apply the delta to");
+    }
+    Graph graph = delta.applyTo(graphs.get(graphs.size() - 1));
+    addGraph(graph);
+    return graph;
+  }
+
   /**
    * Displays requested model.
    */
@@ -1,7 +1,5 @@
 package gvs.model.graph;
 
-import java.util.Observable;
-
 import gvs.model.IVertex;
 import gvs.model.styles.GVSStyle;
 import gvs.util.Configuration;
@@ -13,7 +11,7 @@ import gvs.util.FontAwesome.Glyph;
  * @author aegli
  *
  */
-public class GraphVertex extends Observable implements IVertex {
+public class GraphVertex implements IVertex {
 
   private long id;
   private String label;
@@ -44,7 +42,8 @@ public class GraphVertex extends Observable implements IVertex {
   }
 
   /**
-   * Update x and y coordinate of vertex
+   * Update x and y coordinate of vertex. The view is informed per graph, see
+   * {@link gvs.model.Graph#notifyPositionListeners()}.
    * 
    * @param xPos
    *          X coordinate
@@ -54,8 +53,6 @@ public class GraphVertex extends Observable implements IVertex {
   public void updateCoordinates(double xPos, double yPos) {
     xPosition = xPos;
     yPosition = yPos;
-    setChanged();
-    notifyObservers();
   }
 
   public void setXPosition(double position) {
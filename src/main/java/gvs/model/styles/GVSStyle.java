@@ -1,5 +1,7 @@
 package gvs.model.styles;
 
+import java.util.Objects;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,4 +82,23 @@ public class GVSStyle {
   public void setLineThickness(GVSLineThickness lineThickness) {
     this.lineThickness = lineThickness;
   }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof GVSStyle)) {
+      return false;
+    }
+    GVSStyle other = (GVSStyle) obj;
+    return lineColor == other.lineColor && lineStyle == other.lineStyle
+        && lineThickness == other.lineThickness
+        && fillColor == other.fillColor;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(lineColor, lineStyle, lineThickness, fillColor);
+  }
 }
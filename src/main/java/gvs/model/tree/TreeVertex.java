@@ -2,7 +2,6 @@ package gvs.model.tree;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Observable;
 
 import gvs.model.IVertex;
 import gvs.model.styles.GVSStyle;
@@ -17,7 +16,7 @@ import gvs.util.FontAwesome.Glyph;
  *
  */
 
-public class TreeVertex extends Observable implements IVertex {
+public class TreeVertex implements IVertex {
   private long id;
   private String label;
   private GVSStyle style;
@@ -86,8 +85,6 @@ public class TreeVertex extends Observable implements IVertex {
   public void updateCoordinates(double xPos, double yPos) {
     this.xPosition = xPos;
     this.yPosition = yPos;
-    setChanged();
-    notifyObservers();
   }
 
   @Override
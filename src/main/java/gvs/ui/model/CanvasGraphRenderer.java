@@ -0,0 +1,795 @@
+package gvs.ui.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gvs.model.Graph;
+import gvs.model.IEdge;
+import gvs.model.IVertex;
+import gvs.model.styles.GVSStyle;
+import gvs.ui.view.ScalableScrollPane;
+import gvs.util.Configuration;
+import gvs.util.ContrastColor;
+import gvs.util.FontAwesome;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Paints a whole graph onto a single {@link Canvas}.
+ *
+ * {@link VertexViewModel} and {@link EdgeViewModel} create several scene graph
+ * nodes per element, which does not scale to graphs with thousands of
+ * vertices. This renderer keeps positions and styles in primitive arrays and
+ * repaints the canvas instead. It looks like the scene graph rendering: the
+ * colors, strokes and fonts are resolved once through the session style
+ * sheet, by invisible shapes and labels with the style classes of the view
+ * models.
+ *
+ * The canvas covers the viewport and zooms out to the content by itself.
+ * The view can be zoomed with the mouse wheel and moved by dragging the
+ * background. A double click zooms to the content again. Only the elements
+ * within the viewport are painted, they are found by a {@link SpatialIndex}.
+ * Below the detail zoom, labels, icons, dashes and arrow heads are left out,
+ * and vertices smaller than a pixel are painted as dots.
+ *
+ * Vertices are dragged by hit testing the mouse position against the
+ * ellipses.
+ *
+ * @author mwieland
+ */
+public class CanvasGraphRenderer {
+
+  private final Canvas canvas;
+
+  // vertices, by index
+  private IVertex[] vertices = new IVertex[0];
+  private double[] x;
+  private double[] y;
+  private double[] radiusX;
+  private double[] radiusY;
+  private Color[] fill;
+  private LineStyle[] border;
+  private String[] labels;
+  private double[] labelWidth;
+  private Color[] labelColor;
+  private char[] icons;
+  private double[] iconWidth;
+
+  // edges, by index
+  private int[] edgeStart = new int[0];
+  private int[] edgeEnd;
+  private boolean[] directed;
+  private LineStyle[] edgeLine;
+  private String[] edgeLabels;
+  private Color[] edgeLabelColor;
+
+  // view transformation, graph to canvas coordinates
+  private double scale = 1;
+  private double offsetX;
+  private double offsetY;
+
+  // the user zoomed or moved the view
+  private boolean userView;
+  private boolean panning;
+  private int draggedVertex = -1;
+  private double dragX;
+  private double dragY;
+
+  // vertex i is item i, edge j is item vertices.length + j
+  private final SpatialIndex index = new SpatialIndex();
+  private boolean indexValid;
+  private double[] boundsMinX = new double[0];
+  private double[] boundsMinY = new double[0];
+  private double[] boundsMaxX = new double[0];
+  private double[] boundsMaxY = new double[0];
+
+  private final double detailZoom;
+
+  private Font iconFont;
+
+  // styled like the nodes of the view models, never shown
+  private final Ellipse shapeProbe = new Ellipse();
+  private final Label vertexProbe = new Label();
+  private final Label edgeProbe = new Label();
+  private final Map<String, LineStyle> lineStyles = new HashMap<>();
+  private Font vertexFont;
+  private Font edgeFont;
+  private double vertexPadding;
+
+  private static final String VERTEX_FONT_CLASS = "vertex";
+  private static final String EDGE_FONT_CLASS = "edge-label";
+  private static final double ICON_GAP = 4;
+  private static final String ELLIPSIS = "...";
+
+  private static final double SELF_REFERENCE_LENGTH = 40;
+  private static final double ARROW_LENGTH = 20;
+  private static final double ARROW_WIDTH = 8;
+
+  private static final double MAX_SCALE = 1;
+  private static final double MAX_USER_SCALE = 4;
+  private static final double ZOOM_FACTOR = 1.1;
+  private static final double MIN_VERTEX_PIXELS = 2;
+  private static final double SNAP_DISTANCE = 0.5;
+
+  private static final Logger logger = LoggerFactory
+      .getLogger(CanvasGraphRenderer.class);
+
+  /**
+   * Constructor.
+   *
+   * @param detailZoom
+   *          zoom factor below which details are left out
+   */
+  public CanvasGraphRenderer(double detailZoom) {
+    this.detailZoom = detailZoom;
+    this.canvas = new Canvas();
+    vertexProbe.getStyleClass().add(VERTEX_FONT_CLASS);
+    edgeProbe.getStyleClass().add(EDGE_FONT_CLASS);
+    canvas.widthProperty().addListener((o, oldValue, newValue) -> redraw());
+    canvas.heightProperty().addListener((o, oldValue, newValue) -> redraw());
+
+    canvas.setOnMousePressed(this::mousePressed);
+    canvas.setOnMouseDragged(this::mouseDragged);
+    canvas.setOnMouseReleased(this::mouseReleased);
+    canvas.setOnMouseMoved(this::mouseMoved);
+    canvas.setOnMouseClicked(this::mouseClicked);
+    canvas.setOnScroll(this::scrolled);
+  }
+
+  /**
+   * Take over the vertices and edges of a graph and show them on the given
+   * pane.
+   *
+   * @param graph
+   *          graph to draw
+   * @param graphPane
+   *          pane which shows the canvas
+   * @param resetView
+   *          whether to zoom to the content again. Otherwise, a view zoomed
+   *          or panned by the user is kept
+   */
+  public void draw(Graph graph, ScalableScrollPane graphPane,
+      boolean resetView) {
+
+    logger.info("Drawing graph on canvas...");
+    draggedVertex = -1;
+    panning = false;
+    if (resetView) {
+      userView = false;
+    }
+    // the probes must be part of the scene to be styled
+    graphPane.showCanvas(canvas, shapeProbe, vertexProbe, edgeProbe);
+    resolveFonts();
+    loadVertices(graph.getVertices().toArray(new IVertex[0]));
+    loadEdges(graph.getEdges());
+    indexValid = false;
+    redraw();
+  }
+
+  private void resolveFonts() {
+    if (vertexFont == null) {
+      vertexProbe.applyCss();
+      edgeProbe.applyCss();
+      vertexFont = vertexProbe.getFont();
+      vertexPadding = vertexProbe.getPadding().getLeft();
+      edgeFont = edgeProbe.getFont();
+    }
+  }
+
+  private Color resolveFill(GVSStyle style) {
+    String fillClass = "fill-" + style.getFillColor().getColor();
+    shapeProbe.getStyleClass().setAll(fillClass);
+    return StyleCache.getFill(shapeProbe, fillClass);
+  }
+
+  /**
+   * Resolve the stroke of the line color and line style classes once.
+   */
+  private LineStyle resolveLine(GVSStyle style) {
+    String lineClass = "line-" + style.getLineColor().getColor();
+    String strokeClass = style.getLineStyle().getStyle() + "-"
+        + style.getLineThickness().getThickness();
+    return lineStyles.computeIfAbsent(lineClass + " " + strokeClass, key -> {
+      shapeProbe.getStyleClass().setAll(lineClass, strokeClass);
+      shapeProbe.applyCss();
+      return new LineStyle(shapeProbe);
+    });
+  }
+
+  private void loadVertices(IVertex[] graphVertices) {
+    int size = graphVertices.length;
+    vertices = graphVertices;
+    x = new double[size];
+    y = new double[size];
+    radiusX = new double[size];
+    radiusY = new double[size];
+    fill = new Color[size];
+    border = new LineStyle[size];
+    labels = new String[size];
+    labelWidth = new double[size];
+    labelColor = new Color[size];
+    icons = new char[size];
+    iconWidth = new double[size];
+
+    Text measure = new Text();
+    measure.setFont(vertexFont);
+    for (int i = 0; i < size; i++) {
+      IVertex vertex = vertices[i];
+      GVSStyle style = vertex.getStyle();
+      x[i] = vertex.getXPosition();
+      y[i] = vertex.getYPosition();
+      fill[i] = resolveFill(style);
+      border[i] = resolveLine(style);
+      labelColor[i] = ContrastColor.getContrastColor(fill[i]);
+
+      double iconSpace = 0;
+      if (vertex.getIcon() != null) {
+        icons[i] = vertex.getIcon().getChar();
+        iconWidth[i] = measureIcon(icons[i]);
+        iconSpace = iconWidth[i] + ICON_GAP;
+      }
+
+      double maxTextWidth = vertex.getMaxLabelLength() - 2 * vertexPadding
+          - iconSpace;
+      labels[i] = truncate(measure, vertex.getLabel(), maxTextWidth);
+      labelWidth[i] = width(measure, labels[i]);
+      double height = measure.getLayoutBounds().getHeight();
+
+      radiusX[i] = (labelWidth[i] + iconSpace) / 2 + vertexPadding;
+      radiusY[i] = height / 2 + vertexPadding;
+      if (vertex.getIcon() != null) {
+        radiusX[i] = Math.max(radiusX[i], Configuration.getIconFontSize());
+        radiusY[i] = Math.max(radiusY[i], Configuration.getIconFontSize());
+      }
+    }
+  }
+
+  private void loadEdges(Iterable<IEdge> graphEdges) {
+    Map<Long, Integer> indices = new HashMap<>();
+    for (int i = 0; i < vertices.length; i++) {
+      indices.put(vertices[i].getId(), i);
+    }
+
+    List<IEdge> edges = new ArrayList<>();
+    graphEdges.forEach(edges::add);
+    int size = edges.size();
+    edgeStart = new int[size];
+    edgeEnd = new int[size];
+    directed = new boolean[size];
+    edgeLine = new LineStyle[size];
+    edgeLabels = new String[size];
+    edgeLabelColor = new Color[size];
+
+    for (int i = 0; i < size; i++) {
+      IEdge edge = edges.get(i);
+      edgeStart[i] = indices.get(edge.getStartVertex().getId());
+      edgeEnd[i] = indices.get(edge.getEndVertex().getId());
+      directed[i] = edge.isDirected();
+      edgeLine[i] = resolveLine(edge.getStyle());
+      edgeLabels[i] = edge.getLabel();
+      edgeLabelColor[i] = ContrastColor.getContrastColor(edgeLine[i].color);
+    }
+  }
+
+  /**
+   * Move the vertices towards the current positions of the business logic
+   * vertices and repaint. Must be called on the JavaFX thread.
+   *
+   * @param fraction
+   *          part of the remaining distance which is covered, between 0 and 1
+   * @return true if a vertex has not reached its model position yet
+   */
+  public boolean interpolatePositions(double fraction) {
+    boolean moving = false;
+    for (int i = 0; i < vertices.length; i++) {
+      double deltaX = vertices[i].getXPosition() - x[i];
+      double deltaY = vertices[i].getYPosition() - y[i];
+      if (deltaX != 0 || deltaY != 0) {
+        indexValid = false;
+      }
+      if (Math.abs(deltaX) < SNAP_DISTANCE
+          && Math.abs(deltaY) < SNAP_DISTANCE) {
+        x[i] += deltaX;
+        y[i] += deltaY;
+      } else {
+        x[i] += deltaX * fraction;
+        y[i] += deltaY * fraction;
+        moving = true;
+      }
+    }
+    redraw();
+    return moving;
+  }
+
+  /**
+   * Paint the visible part of the graph. Edges are painted below the
+   * vertices.
+   */
+  public void redraw() {
+    GraphicsContext gc = canvas.getGraphicsContext2D();
+    gc.setTransform(1, 0, 0, 1, 0, 0);
+    gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    if (vertices.length == 0) {
+      return;
+    }
+
+    // keep the view still while a vertex is dragged
+    if (draggedVertex == -1 && !userView) {
+      zoomToContent();
+    }
+    gc.setTransform(scale, 0, 0, scale, offsetX, offsetY);
+
+    int[] visible = findItems(-offsetX / scale, -offsetY / scale,
+        (canvas.getWidth() - offsetX) / scale,
+        (canvas.getHeight() - offsetY) / scale);
+    // vertices come first in the ascending item order
+    int firstEdge = 0;
+    while (firstEdge < visible.length
+        && visible[firstEdge] < vertices.length) {
+      firstEdge++;
+    }
+
+    boolean detailed = scale >= detailZoom;
+    if (detailed) {
+      for (int k = firstEdge; k < visible.length; k++) {
+        drawEdge(gc, visible[k] - vertices.length);
+      }
+    } else {
+      drawSimpleEdges(gc, visible, firstEdge);
+    }
+    for (int k = 0; k < firstEdge; k++) {
+      drawVertex(gc, visible[k], detailed);
+    }
+  }
+
+  /**
+   * Find the vertices and edges which overlap the given area in graph
+   * coordinates.
+   *
+   * @return ascending item indices
+   */
+  private int[] findItems(double minX, double minY, double maxX,
+      double maxY) {
+    if (!indexValid) {
+      updateIndex();
+    }
+    return index.query(minX, minY, maxX, maxY);
+  }
+
+  private void updateIndex() {
+    int size = vertices.length + edgeStart.length;
+    if (boundsMinX.length != size) {
+      boundsMinX = new double[size];
+      boundsMinY = new double[size];
+      boundsMaxX = new double[size];
+      boundsMaxY = new double[size];
+    }
+    for (int i = 0; i < vertices.length; i++) {
+      double margin = border[i].width / 2;
+      boundsMinX[i] = x[i] - radiusX[i] - margin;
+      boundsMinY[i] = y[i] - radiusY[i] - margin;
+      boundsMaxX[i] = x[i] + radiusX[i] + margin;
+      boundsMaxY[i] = y[i] + radiusY[i] + margin;
+    }
+    for (int j = 0; j < edgeStart.length; j++) {
+      int item = vertices.length + j;
+      int start = edgeStart[j];
+      int end = edgeEnd[j];
+      // covers self references, arrow heads and most labels
+      double marginX = radiusX[start] + SELF_REFERENCE_LENGTH;
+      double marginY = radiusY[start] + SELF_REFERENCE_LENGTH;
+      boundsMinX[item] = Math.min(x[start], x[end]) - marginX;
+      boundsMinY[item] = Math.min(y[start], y[end]) - marginY;
+      boundsMaxX[item] = Math.max(x[start], x[end]) + marginX;
+      boundsMaxY[item] = Math.max(y[start], y[end]) + marginY;
+    }
+    index.build(size, boundsMinX, boundsMinY, boundsMaxX, boundsMaxY);
+    indexValid = true;
+  }
+
+  /**
+   * Center the content and zoom out, if it does not fit into the canvas.
+   */
+  private void zoomToContent() {
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (int i = 0; i < vertices.length; i++) {
+      minX = Math.min(minX, x[i] - radiusX[i]);
+      minY = Math.min(minY, y[i] - radiusY[i]);
+      maxX = Math.max(maxX, x[i] + radiusX[i]);
+      maxY = Math.max(maxY, y[i] + radiusY[i]);
+    }
+    // room for self references
+    minX -= SELF_REFERENCE_LENGTH;
+    minY -= SELF_REFERENCE_LENGTH;
+
+    double contentWidth = maxX - minX;
+    double contentHeight = maxY - minY;
+    scale = Math.min(MAX_SCALE, Math.min(canvas.getWidth() / contentWidth,
+        canvas.getHeight() / contentHeight));
+    offsetX = (canvas.getWidth() - contentWidth * scale) / 2 - minX * scale;
+    offsetY = (canvas.getHeight() - contentHeight * scale) / 2 - minY * scale;
+  }
+
+  private void drawVertex(GraphicsContext gc, int i, boolean detailed) {
+    double left = x[i] - radiusX[i];
+    double top = y[i] - radiusY[i];
+    if (Math.max(radiusX[i], radiusY[i]) * scale < MIN_VERTEX_PIXELS) {
+      gc.setFill(border[i].color);
+      gc.fillRect(left, top, 2 * radiusX[i], 2 * radiusY[i]);
+      return;
+    }
+
+    gc.setFill(fill[i]);
+    gc.fillOval(left, top, 2 * radiusX[i], 2 * radiusY[i]);
+    if (detailed) {
+      border[i].apply(gc);
+    } else {
+      border[i].applySimple(gc);
+    }
+    gc.strokeOval(left, top, 2 * radiusX[i], 2 * radiusY[i]);
+    if (!detailed) {
+      return;
+    }
+
+    gc.setFill(labelColor[i]);
+    gc.setTextAlign(TextAlignment.LEFT);
+    gc.setTextBaseline(VPos.CENTER);
+    double textX = x[i] - radiusX[i] + vertexPadding;
+    if (icons[i] != 0) {
+      double contentWidth = iconWidth[i] + ICON_GAP + labelWidth[i];
+      textX = x[i] - contentWidth / 2;
+      gc.setFont(iconFont);
+      gc.fillText(String.valueOf(icons[i]), textX, y[i]);
+      textX += iconWidth[i] + ICON_GAP;
+    }
+    gc.setFont(vertexFont);
+    gc.fillText(labels[i], textX, y[i]);
+  }
+
+  private void drawEdge(GraphicsContext gc, int i) {
+    int start = edgeStart[i];
+    int end = edgeEnd[i];
+    edgeLine[i].apply(gc);
+
+    if (start == end) {
+      // self reference to the upper left of the vertex
+      double startX = x[start] - radiusX[start] / Math.sqrt(2);
+      double startY = y[start] - radiusY[start] / Math.sqrt(2);
+      double cornerX = startX - SELF_REFERENCE_LENGTH;
+      double cornerY = startY - SELF_REFERENCE_LENGTH;
+      gc.strokePolygon(new double[] { startX, startX, cornerX, cornerX },
+          new double[] { startY, cornerY, cornerY, startY }, 4);
+      if (directed[i]) {
+        drawArrowHead(gc, i, startX, startY, 1, 0);
+      }
+      drawEdgeLabel(gc, i, (startX + cornerX) / 2, cornerY);
+      return;
+    }
+
+    double deltaX = x[end] - x[start];
+    double deltaY = y[end] - y[start];
+    double length = Math.hypot(deltaX, deltaY);
+    if (length == 0) {
+      return;
+    }
+    double startScale = boundary(start, deltaX, deltaY);
+    double endScale = boundary(end, deltaX, deltaY);
+    double startX = x[start] + deltaX * startScale;
+    double startY = y[start] + deltaY * startScale;
+    double endX = x[end] - deltaX * endScale;
+    double endY = y[end] - deltaY * endScale;
+
+    gc.strokeLine(startX, startY, endX, endY);
+    if (directed[i]) {
+      drawArrowHead(gc, i, endX, endY, deltaX / length, deltaY / length);
+    }
+    drawEdgeLabel(gc, i, (startX + endX) / 2, (startY + endY) / 2);
+  }
+
+  /**
+   * Paint edges as plain lines from center to center, without dashes, arrow
+   * heads and labels. Consecutive edges with the same stroke share one path.
+   *
+   * @param visible
+   *          visible items
+   * @param firstEdge
+   *          position of the first edge in the visible items
+   */
+  private void drawSimpleEdges(GraphicsContext gc, int[] visible,
+      int firstEdge) {
+
+    LineStyle current = null;
+    for (int k = firstEdge; k < visible.length; k++) {
+      int i = visible[k] - vertices.length;
+      if (current == null || !current.hasSameStroke(edgeLine[i])) {
+        if (current != null) {
+          gc.stroke();
+        }
+        current = edgeLine[i];
+        current.applySimple(gc);
+        gc.beginPath();
+      }
+      int start = edgeStart[i];
+      int end = edgeEnd[i];
+      if (start == end) {
+        double startX = x[start] - radiusX[start] / Math.sqrt(2);
+        double startY = y[start] - radiusY[start] / Math.sqrt(2);
+        gc.rect(startX - SELF_REFERENCE_LENGTH,
+            startY - SELF_REFERENCE_LENGTH, SELF_REFERENCE_LENGTH,
+            SELF_REFERENCE_LENGTH);
+      } else {
+        gc.moveTo(x[start], y[start]);
+        gc.lineTo(x[end], y[end]);
+      }
+    }
+    if (current != null) {
+      gc.stroke();
+    }
+  }
+
+  /**
+   * Scale of the given direction at which a ray from the center of a vertex
+   * leaves its ellipse.
+   */
+  private double boundary(int vertex, double deltaX, double deltaY) {
+    double normalizedX = deltaX / radiusX[vertex];
+    double normalizedY = deltaY / radiusY[vertex];
+    return 1 / Math.hypot(normalizedX, normalizedY);
+  }
+
+  /**
+   * Draw an arrow head with its tip at the given point.
+   *
+   * @param directionX
+   *          x component of the unit vector the arrow points to
+   * @param directionY
+   *          y component of the unit vector the arrow points to
+   */
+  private void drawArrowHead(GraphicsContext gc, int i, double tipX,
+      double tipY, double directionX, double directionY) {
+
+    edgeLine[i].applySolid(gc);
+    double baseX = tipX - directionX * ARROW_LENGTH;
+    double baseY = tipY - directionY * ARROW_LENGTH;
+    double wingX = -directionY * ARROW_WIDTH;
+    double wingY = directionX * ARROW_WIDTH;
+    gc.strokeLine(tipX, tipY, baseX + wingX, baseY + wingY);
+    gc.strokeLine(tipX, tipY, baseX - wingX, baseY - wingY);
+  }
+
+  private void drawEdgeLabel(GraphicsContext gc, int i, double centerX,
+      double centerY) {
+    if (edgeLabels[i] == null || edgeLabels[i].isEmpty()) {
+      return;
+    }
+    gc.setFont(edgeFont);
+    gc.setFill(edgeLabelColor[i]);
+    gc.setTextAlign(TextAlignment.CENTER);
+    gc.setTextBaseline(VPos.CENTER);
+    gc.fillText(edgeLabels[i], centerX, centerY);
+  }
+
+  /**
+   * Find the topmost vertex at the given canvas position.
+   *
+   * @return vertex index or -1
+   */
+  private int findVertex(double canvasX, double canvasY) {
+    double graphX = (canvasX - offsetX) / scale;
+    double graphY = (canvasY - offsetY) / scale;
+    int[] candidates = findItems(graphX, graphY, graphX, graphY);
+    for (int k = candidates.length - 1; k >= 0; k--) {
+      int i = candidates[k];
+      if (i >= vertices.length) {
+        continue;
+      }
+      double normalizedX = (graphX - x[i]) / radiusX[i];
+      double normalizedY = (graphY - y[i]) / radiusY[i];
+      if (normalizedX * normalizedX + normalizedY * normalizedY <= 1) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void mouseMoved(MouseEvent e) {
+    int vertex = findVertex(e.getX(), e.getY());
+    if (vertex != -1 && !vertices[vertex].isTreeVertex()) {
+      canvas.setCursor(Cursor.HAND);
+    } else {
+      canvas.setCursor(Cursor.DEFAULT);
+    }
+  }
+
+  private void mousePressed(MouseEvent e) {
+    int vertex = findVertex(e.getX(), e.getY());
+    if (vertex != -1 && !vertices[vertex].isTreeVertex()) {
+      draggedVertex = vertex;
+    } else {
+      panning = true;
+    }
+    dragX = e.getX();
+    dragY = e.getY();
+  }
+
+  private void mouseDragged(MouseEvent e) {
+    if (draggedVertex != -1) {
+      // logger level debug, because this will happen very often
+      logger.debug("Mouse drag on canvas vertex detected.");
+
+      IVertex vertex = vertices[draggedVertex];
+      x[draggedVertex] += (e.getX() - dragX) / scale;
+      y[draggedVertex] += (e.getY() - dragY) / scale;
+      vertex.setXPosition(x[draggedVertex]);
+      vertex.setYPosition(y[draggedVertex]);
+      vertex.setUserPositioned(true);
+      indexValid = false;
+    } else if (panning) {
+      offsetX += e.getX() - dragX;
+      offsetY += e.getY() - dragY;
+      userView = true;
+    } else {
+      return;
+    }
+
+    // remember last coordinates
+    dragX = e.getX();
+    dragY = e.getY();
+    redraw();
+  }
+
+  private void mouseReleased(MouseEvent e) {
+    panning = false;
+    if (draggedVertex != -1) {
+      draggedVertex = -1;
+      redraw();
+    }
+  }
+
+  /**
+   * A double click on the background zooms to the content again.
+   */
+  private void mouseClicked(MouseEvent e) {
+    if (e.getClickCount() == 2 && findVertex(e.getX(), e.getY()) == -1) {
+      userView = false;
+      redraw();
+    }
+  }
+
+  /**
+   * Zoom around the mouse position.
+   */
+  private void scrolled(ScrollEvent e) {
+    if (e.getDeltaY() == 0) {
+      return;
+    }
+    double factor = e.getDeltaY() > 0 ? ZOOM_FACTOR : 1 / ZOOM_FACTOR;
+    factor = Math.min(factor, MAX_USER_SCALE / scale);
+    offsetX = e.getX() - (e.getX() - offsetX) * factor;
+    offsetY = e.getY() - (e.getY() - offsetY) * factor;
+    scale *= factor;
+    userView = true;
+    redraw();
+  }
+
+  /**
+   * Shorten a label in the middle, like a label with center ellipsis.
+   */
+  private String truncate(Text measure, String label, double maxWidth) {
+    if (label == null) {
+      return "";
+    }
+    if (width(measure, label) <= maxWidth) {
+      return label;
+    }
+    // binary search for the longest fitting shortened label
+    int low = 0;
+    int high = label.length();
+    while (low < high) {
+      int keep = (low + high + 1) / 2;
+      if (width(measure, shorten(label, keep)) <= maxWidth) {
+        low = keep;
+      } else {
+        high = keep - 1;
+      }
+    }
+    return shorten(label, low);
+  }
+
+  private String shorten(String label, int keep) {
+    int head = (keep + 1) / 2;
+    int tail = keep / 2;
+    return label.substring(0, head) + ELLIPSIS
+        + label.substring(label.length() - tail);
+  }
+
+  private double width(Text measure, String text) {
+    measure.setText(text);
+    return measure.getLayoutBounds().getWidth();
+  }
+
+  private double measureIcon(char icon) {
+    if (iconFont == null) {
+      iconFont = FontAwesome.createFont(Configuration.getIconFontSize());
+    }
+    Text measure = new Text(String.valueOf(icon));
+    measure.setFont(iconFont);
+    return measure.getLayoutBounds().getWidth();
+  }
+
+  /**
+   * Stroke of an edge or a vertex border, as defined by the line style and
+   * thickness classes of the style sheet.
+   */
+  private static final class LineStyle {
+
+    private final Color color;
+    private final double width;
+    private final double[] dashes;
+    private final StrokeLineCap lineCap;
+
+    LineStyle(Shape styled) {
+      this.color = (Color) styled.getStroke();
+      this.width = styled.getStrokeWidth();
+      List<Double> dashArray = styled.getStrokeDashArray();
+      if (dashArray.isEmpty()) {
+        this.dashes = null;
+      } else {
+        this.dashes = dashArray.stream().mapToDouble(Double::doubleValue)
+            .toArray();
+      }
+      this.lineCap = styled.getStrokeLineCap();
+    }
+
+    void apply(GraphicsContext gc) {
+      gc.setStroke(color);
+      gc.setLineWidth(width);
+      gc.setLineDashes(dashes);
+      gc.setLineCap(lineCap);
+    }
+
+    /**
+     * Apply the stroke without dash pattern, for views without details.
+     */
+    void applySimple(GraphicsContext gc) {
+      gc.setStroke(color);
+      gc.setLineWidth(width);
+      gc.setLineDashes((double[]) null);
+      gc.setLineCap(StrokeLineCap.BUTT);
+    }
+
+    boolean hasSameStroke(LineStyle other) {
+      return color.equals(other.color) && width == other.width;
+    }
+
+    /**
+     * Apply the stroke of arrow heads, which are never dashed.
+     */
+    void applySolid(GraphicsContext gc) {
+      gc.setStroke(color);
+      gc.setLineWidth(width);
+      gc.setLineDashes((double[]) null);
+      gc.setLineCap(StrokeLineCap.ROUND);
+    }
+  }
+}
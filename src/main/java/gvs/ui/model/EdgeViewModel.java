@@ -1,5 +1,8 @@
 package gvs.ui.model;
 
+import java.util.Objects;
+import java.util.function.Consumer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,7 +10,9 @@ import gvs.model.IEdge;
 import gvs.model.styles.GVSStyle;
 import gvs.ui.view.ScalableScrollPane;
 import gvs.util.ContrastColor;
+import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.geometry.Dimension2D;
 import javafx.geometry.Point2D;
 import javafx.scene.control.Label;
 import javafx.scene.paint.Color;
@@ -25,12 +30,18 @@ import javafx.scene.transform.Rotate;
 public class EdgeViewModel {
 
   private IEdge edge;
+  private String lineClass;
   private VertexViewModel startVertex;
   private VertexViewModel endVertex;
 
   private final Label label;
   private final Path edgePath;
   private final Path arrowPath;
+  private final ChangeListener<Number> nodeDraggedListener;
+  private final Consumer<EdgeViewModel> invalidationListener;
+
+  private static final String TEXT_FILL_CLASS = "text-fill-";
+  private static final String FONT_CLASS = "edge-label";
 
   private static final Logger logger = LoggerFactory
       .getLogger(EdgeViewModel.class);
@@ -44,15 +55,21 @@ public class EdgeViewModel {
    *          start vertex
    * @param endVertex
    *          end vertex
+   * @param invalidationListener
+   *          informed if a vertex moved. Must call
+   *          {@link #computeCoordinates()} before the next frame
    */
   public EdgeViewModel(IEdge edge, VertexViewModel startVertex,
-      VertexViewModel endVertex) {
+      VertexViewModel endVertex,
+      Consumer<EdgeViewModel> invalidationListener) {
     this.edge = edge;
+    this.invalidationListener = invalidationListener;
     this.startVertex = startVertex;
     this.endVertex = endVertex;
     this.label = new Label();
     this.edgePath = new Path();
     this.arrowPath = new Path();
+    this.nodeDraggedListener = this::nodeDraggedListener;
 
     this.label.setText(edge.getLabel());
 
@@ -66,17 +83,69 @@ public class EdgeViewModel {
    */
   private void bindNodeDraggedListeners() {
     startVertex.getEllipse().centerXProperty()
-        .addListener(this::nodeDraggedListener);
+        .addListener(nodeDraggedListener);
+    startVertex.getEllipse().centerYProperty()
+        .addListener(nodeDraggedListener);
+    endVertex.getEllipse().centerXProperty()
+        .addListener(nodeDraggedListener);
+    endVertex.getEllipse().centerYProperty()
+        .addListener(nodeDraggedListener);
+  }
+
+  /**
+   * Stop following the start and end vertex.
+   */
+  private void unbindNodeDraggedListeners() {
+    startVertex.getEllipse().centerXProperty()
+        .removeListener(nodeDraggedListener);
     startVertex.getEllipse().centerYProperty()
-        .addListener(this::nodeDraggedListener);
+        .removeListener(nodeDraggedListener);
     endVertex.getEllipse().centerXProperty()
-        .addListener(this::nodeDraggedListener);
+        .removeListener(nodeDraggedListener);
     endVertex.getEllipse().centerYProperty()
-        .addListener(this::nodeDraggedListener);
+        .removeListener(nodeDraggedListener);
   }
 
   /**
-   * Recompute edge position if node is dragged.
+   * Show the edge between the same vertices of another snapshot. Label and
+   * styles are only updated, if they changed.
+   * 
+   * @param newEdge
+   *          business layer edge of the other snapshot
+   */
+  public void setEdge(IEdge newEdge) {
+    boolean restyle = !hasSameAppearance(newEdge);
+    this.edge = newEdge;
+    if (restyle) {
+      logger.info("Restyling EdgeViewModel.");
+      label.setText(edge.getLabel());
+      label.getStyleClass().removeIf(c -> c.startsWith(TEXT_FILL_CLASS));
+      edgePath.getStyleClass().clear();
+      arrowPath.getStyleClass().clear();
+      setStyles();
+      correctLabelColor();
+    }
+    // the vertices may have been resized
+    computeCoordinates();
+  }
+
+  private boolean hasSameAppearance(IEdge otherEdge) {
+    return Objects.equals(edge.getLabel(), otherEdge.getLabel())
+        && edge.isDirected() == otherEdge.isDirected()
+        && Objects.equals(edge.getStyle(), otherEdge.getStyle());
+  }
+
+  public VertexViewModel getStartVertex() {
+    return startVertex;
+  }
+
+  public VertexViewModel getEndVertex() {
+    return endVertex;
+  }
+
+  /**
+   * Request a recomputation of the edge position if node is dragged. Changes
+   * of x and y and of both vertices are handled by one recomputation.
    * 
    * @param observable
    *          observable
@@ -87,7 +156,7 @@ public class EdgeViewModel {
    */
   private void nodeDraggedListener(ObservableValue<? extends Number> observable,
       Number oldValue, Number newValue) {
-    computeCoordinates();
+    invalidationListener.accept(this);
   }
 
   /**
@@ -99,14 +168,17 @@ public class EdgeViewModel {
     String lineColor = style.getLineColor().getColor();
     String lineStyle = style.getLineStyle().getStyle();
     String lineThickness = style.getLineThickness().getThickness();
+    lineClass = "line-" + lineColor;
 
-    label.getStyleClass().add("edge-label");
+    if (!label.getStyleClass().contains(FONT_CLASS)) {
+      label.getStyleClass().add(FONT_CLASS);
+    }
 
-    edgePath.getStyleClass().add("line-" + lineColor);
+    edgePath.getStyleClass().add(lineClass);
     edgePath.getStyleClass().add(lineStyle + "-" + lineThickness);
 
     if (edge.isDirected()) {
-      arrowPath.getStyleClass().add("line-" + lineColor);
+      arrowPath.getStyleClass().add(lineClass);
       arrowPath.getStyleClass().add("thickness-" + lineThickness);
     }
   }
@@ -124,12 +196,34 @@ public class EdgeViewModel {
     correctLabelColor();
   }
 
+  /**
+   * Remove the edge from the given graph pane
+   * 
+   * @param graphPane
+   *          scalable graph pane
+   */
+  public void remove(ScalableScrollPane graphPane) {
+    unbindNodeDraggedListeners();
+    graphPane.removeNodes(edgePath, arrowPath, label);
+  }
+
+  /**
+   * Show or hide the label and the arrow head, e.g. if the view is zoomed out
+   * too far to see them.
+   * 
+   * @param detailed
+   *          true to show label and arrow head
+   */
+  public void setDetailed(boolean detailed) {
+    label.setVisible(detailed);
+    arrowPath.setVisible(detailed);
+  }
+
   /**
    * Choose a label color with enough contrast to the line stroke color.
    */
   private void correctLabelColor() {
-    edgePath.applyCss();
-    Color edgeColor = (Color) edgePath.getStroke();
+    Color edgeColor = StyleCache.getStroke(edgePath, lineClass);
     String colorClass = ContrastColor.getContrastColorClass(edgeColor);
     label.getStyleClass().add(colorClass);
   }
@@ -140,7 +234,7 @@ public class EdgeViewModel {
    * Finds the intersection points of the line with the start and end vertex.
    * Once found, an arrow head is added (if needed)
    */
-  private void computeCoordinates() {
+  public void computeCoordinates() {
     // clear previously drawn lines/arrows
     edgePath.getElements().clear();
     arrowPath.getElements().clear();
@@ -223,10 +317,9 @@ public class EdgeViewModel {
    *          end intersection point
    */
   private void drawEdgeLabel(Point2D startPoint, Point2D endPoint) {
-    // this hack forces the label to compute its height and width
-    label.applyCss();
-    double xRadius = label.prefWidth(-1) / 2;
-    double yRadius = label.prefHeight(-1) / 2;
+    Dimension2D size = StyleCache.getLabelSize(label, FONT_CLASS, null);
+    double xRadius = size.getWidth() / 2;
+    double yRadius = size.getHeight() / 2;
     Point2D middle = startPoint.midpoint(endPoint);
     label.setLayoutX(middle.getX() - xRadius);
     label.setLayoutY(middle.getY() - yRadius);
@@ -1,12 +1,18 @@
 package gvs.ui.model;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,8 +24,13 @@ import gvs.model.Graph;
 import gvs.model.GraphHolder;
 import gvs.model.IEdge;
 import gvs.model.IVertex;
+import gvs.model.Session;
+import gvs.model.SessionHolder;
 import gvs.ui.logic.session.SessionViewModel;
 import gvs.ui.view.ScalableScrollPane;
+import gvs.util.Action;
+import gvs.util.Configuration;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
@@ -29,6 +40,21 @@ import javafx.beans.value.ObservableValue;
  * Represents one snapshot of a graph visualization. Observes the
  * CurrentGraphHolder.
  * 
+ * Switching to another snapshot reuses the view models of the drawn vertices
+ * and edges. Only elements which were added, removed or restyled cause
+ * scene graph changes.
+ * 
+ * Layout progress is rendered by an {@link AnimationTimer}, which pulls the
+ * latest vertex positions once per JavaFX pulse. The frame rate does not
+ * depend on how often the layouter publishes positions. The timer stops as
+ * soon as all vertices arrived and starts again when the layouter publishes
+ * positions or a vertex is dragged.
+ * 
+ * Graphs with many vertices are painted by a {@link CanvasGraphRenderer}
+ * instead of view models, see {@link Configuration#getCanvasThreshold()}.
+ * Labels and arrow heads are hidden while the pane is zoomed out below
+ * {@link Configuration#getDetailZoom()}.
+ * 
  * @author mtrentin
  *
  */
@@ -37,21 +63,48 @@ public class GraphViewModel extends Observable implements Observer {
 
   private GraphHolder graphHolder;
   private ScalableScrollPane graphPane;
+  private Graph drawnGraph;
+  private Collection<IVertex> drawnVertices;
+  private Session drawnSession;
+  private long lastFrame;
+  private boolean animating;
+  private boolean canvasMode;
+  private boolean detailed = true;
 
   private final StringProperty snapshotDescriptionProperty;
 
   private final Map<Long, VertexViewModel> vertexViewModels;
   private final Set<EdgeViewModel> edgeViewModels;
+  // edges whose vertices moved since the last frame
+  private final Set<EdgeViewModel> invalidEdges = new LinkedHashSet<>();
   private final SessionViewModel sessionViewModel;
+  private final SessionHolder sessionHolder;
+  private final CanvasGraphRenderer canvasRenderer;
+  private final int canvasThreshold;
+  private final double detailZoom;
+
+  private final Action positionListener = this::positionsChanged;
+  private final AtomicBoolean positionsChanged = new AtomicBoolean();
+  private final AtomicBoolean renderLoopRunning = new AtomicBoolean();
+  private final AnimationTimer renderLoop;
+
+  // vertices cover about two thirds of their way within this time
+  private static final double INTERPOLATION_NANOS = 80_000_000;
+  private static final double DETAIL_HYSTERESIS = 1.1;
 
   private static final Logger logger = LoggerFactory
       .getLogger(GraphViewModel.class);
 
   @Inject
   public GraphViewModel(GraphHolder currentGraphHolder,
-      SessionViewModel sessionViewModel) {
+      SessionHolder sessionHolder, SessionViewModel sessionViewModel,
+      Configuration configuration) {
     logger.info("Initializing GraphViewModel.");
     this.sessionViewModel = sessionViewModel;
+    this.sessionHolder = sessionHolder;
+    this.detailZoom = configuration.getDetailZoom();
+    this.canvasRenderer = new CanvasGraphRenderer(detailZoom);
+    this.canvasThreshold = configuration.getCanvasThreshold();
     this.vertexViewModels = new HashMap<>();
     this.edgeViewModels = new HashSet<>();
 
@@ -60,6 +113,13 @@ public class GraphViewModel extends Observable implements Observer {
         .addListener(this::snapshotDescriptionListener);
 
     currentGraphHolder.addObserver(this);
+
+    this.renderLoop = new AnimationTimer() {
+      @Override
+      public void handle(long now) {
+        renderFrame(now);
+      }
+    };
   }
 
   private void snapshotDescriptionListener(
@@ -100,43 +160,238 @@ public class GraphViewModel extends Observable implements Observer {
 
   public void draw(Graph graph) {
     logger.info("Drawing graph...");
-    vertexViewModels.clear();
-    edgeViewModels.clear();
-    graphPane.clear();
+    if (drawnGraph != null) {
+      drawnGraph.removePositionListener(positionListener);
+    }
+    drawnGraph = graph;
+    drawnVertices = graph.getVertices();
+    graph.addPositionListener(positionListener);
+    // reused vertices move to their new positions
+    positionsChanged.set(true);
+    startRenderLoop();
 
     snapshotDescriptionProperty.set(graph.getSnapshotDescription());
 
-    drawVertices(graph.getVertices());
-    drawEdges(graph.getEdges());
-    correctZOrder();
+    // the view of the canvas is kept while stepping through a session
+    Session session = sessionHolder.getCurrentSession();
+    boolean sessionChanged = session != drawnSession;
+    drawnSession = session;
+
+    boolean wasCanvasMode = canvasMode;
+    int vertexCount = graph.getVertices().size();
+    canvasMode = canvasThreshold > 0 && vertexCount >= canvasThreshold;
+    if (canvasMode) {
+      vertexViewModels.clear();
+      edgeViewModels.clear();
+      invalidEdges.clear();
+      canvasRenderer.draw(graph, graphPane,
+          sessionChanged || !wasCanvasMode);
+    } else {
+      if (wasCanvasMode) {
+        graphPane.clear();
+      }
+      drawVertices(graph.getVertices());
+      drawEdges(graph.getEdges());
+      correctZOrder();
+      applyDetail();
+    }
+  }
+
+  /**
+   * Hide or show details if the zoom factor crosses the detail zoom. Details
+   * appear again slightly above it, so hiding them does not flip the zoom
+   * back and forth.
+   */
+  private void scaleChanged(ObservableValue<? extends Number> observable,
+      Number oldValue, Number newValue) {
+
+    double scale = newValue.doubleValue();
+    if (detailed && scale < detailZoom) {
+      detailed = false;
+      applyDetail();
+    } else if (!detailed && scale >= detailZoom * DETAIL_HYSTERESIS) {
+      detailed = true;
+      applyDetail();
+    }
+  }
+
+  private void applyDetail() {
+    vertexViewModels.values().forEach(v -> v.setDetailed(detailed));
+    edgeViewModels.forEach(e -> e.setDetailed(detailed));
+  }
+
+  /**
+   * The layouter updated the vertex positions of the drawn graph. The next
+   * frame picks them up, however often they change meanwhile.
+   */
+  private void positionsChanged() {
+    positionsChanged.set(true);
+    startRenderLoop();
+  }
+
+  /**
+   * A dragged or moving vertex invalidated the edge. It is recomputed with
+   * the next frame.
+   */
+  private void edgeInvalidated(EdgeViewModel edgeViewModel) {
+    invalidEdges.add(edgeViewModel);
+    startRenderLoop();
+  }
+
+  /**
+   * Start the render loop, unless it is running. May be called from any
+   * thread.
+   */
+  private void startRenderLoop() {
+    if (renderLoopRunning.compareAndSet(false, true)) {
+      if (Platform.isFxApplicationThread()) {
+        renderLoop.start();
+      } else {
+        Platform.runLater(renderLoop::start);
+      }
+    }
+  }
+
+  /**
+   * Stop the render loop until the next position change. Positions published
+   * while stopping start it again.
+   */
+  private void stopRenderLoop() {
+    renderLoopRunning.set(false);
+    renderLoop.stop();
+    lastFrame = 0;
+    if (positionsChanged.get()) {
+      startRenderLoop();
+    }
+  }
+
+  /**
+   * Called by the render loop once per JavaFX pulse. Moves all vertices
+   * towards the latest layout positions and recomputes the edges of moved
+   * vertices. The loop stops as soon as the layout did not change and all
+   * vertices have arrived.
+   * 
+   * @param now
+   *          timestamp of the pulse in nanoseconds
+   */
+  private void renderFrame(long now) {
+    long elapsed = 0;
+    if (lastFrame != 0) {
+      elapsed = now - lastFrame;
+    }
+    lastFrame = now;
+
+    if (positionsChanged.getAndSet(false)) {
+      // the layouter copied the vertices shared with another graph
+      if (drawnGraph.getVertices() != drawnVertices) {
+        draw(drawnGraph);
+      }
+      animating = true;
+    }
+    if (animating) {
+      double fraction = 1 - Math.exp(-elapsed / INTERPOLATION_NANOS);
+      if (canvasMode) {
+        animating = canvasRenderer.interpolatePositions(fraction);
+      } else {
+        boolean moving = false;
+        for (VertexViewModel vertexViewModel : vertexViewModels.values()) {
+          moving |= vertexViewModel.interpolatePosition(fraction);
+        }
+        animating = moving;
+      }
+    }
+    updateEdges();
+
+    if (!animating && invalidEdges.isEmpty()) {
+      stopRenderLoop();
+    }
+  }
+
+  /**
+   * Recompute the edges whose vertices moved, either by the layout or by
+   * dragging. Each edge is recomputed once per frame, however often its
+   * vertices moved.
+   */
+  private void updateEdges() {
+    if (invalidEdges.isEmpty()) {
+      return;
+    }
+    for (EdgeViewModel edgeViewModel : invalidEdges) {
+      edgeViewModel.computeCoordinates();
+    }
+    invalidEdges.clear();
   }
 
   private void correctZOrder() {
     vertexViewModels.values().forEach(v -> v.toFront());
   }
 
+  /**
+   * Show the given vertices. The view models of the drawn vertices are
+   * reused by vertex id, only new vertices are drawn and vertices which are
+   * gone are removed.
+   */
   private void drawVertices(Collection<IVertex> vertices) {
     logger.info("Drawing vertices...");
+    Map<Long, VertexViewModel> formerViewModels = new HashMap<>(
+        vertexViewModels);
+    vertexViewModels.clear();
+
     vertices.forEach(v -> {
-      VertexViewModel vertexViewModel = new VertexViewModel(v);
-      vertexViewModel.draw(graphPane);
+      VertexViewModel vertexViewModel = formerViewModels.remove(v.getId());
+      if (vertexViewModel != null && vertexViewModel.canShow(v)) {
+        vertexViewModel.setVertex(v);
+      } else {
+        if (vertexViewModel != null) {
+          vertexViewModel.remove(graphPane);
+        }
+        vertexViewModel = new VertexViewModel(v);
+        vertexViewModel.draw(graphPane);
+      }
       vertexViewModels.put(v.getId(), vertexViewModel);
     });
+    formerViewModels.values().forEach(v -> v.remove(graphPane));
   }
 
+  /**
+   * Show the given edges. The view model of a drawn edge is reused, if the
+   * new edge connects the same vertex view models. Must be called after
+   * {@link #drawVertices(Collection)}.
+   */
   private void drawEdges(Collection<IEdge> edges) {
     logger.info("Drawing edges...");
+    Map<List<VertexViewModel>, Deque<EdgeViewModel>> formerViewModels =
+        new HashMap<>();
+    edgeViewModels.forEach(e -> formerViewModels
+        .computeIfAbsent(Arrays.asList(e.getStartVertex(), e.getEndVertex()),
+            k -> new ArrayDeque<>())
+        .add(e));
+    edgeViewModels.clear();
+
     edges.forEach(e -> {
       VertexViewModel startVertex = vertexViewModels
           .get(e.getStartVertex().getId());
       VertexViewModel endVertex = vertexViewModels
           .get(e.getEndVertex().getId());
 
-      EdgeViewModel edgeViewModel = new EdgeViewModel(e, startVertex,
-          endVertex);
-      edgeViewModel.draw(graphPane);
+      Deque<EdgeViewModel> candidates = formerViewModels
+          .get(Arrays.asList(startVertex, endVertex));
+      EdgeViewModel edgeViewModel;
+      if (candidates != null && !candidates.isEmpty()) {
+        edgeViewModel = candidates.poll();
+        edgeViewModel.setEdge(e);
+      } else {
+        edgeViewModel = new EdgeViewModel(e, startVertex, endVertex,
+            this::edgeInvalidated);
+        edgeViewModel.draw(graphPane);
+      }
       edgeViewModels.add(edgeViewModel);
     });
+    formerViewModels.values()
+        .forEach(candidates -> candidates.forEach(e -> {
+          e.remove(graphPane);
+          invalidEdges.remove(e);
+        }));
   }
 
   public Collection<VertexViewModel> getVertexViewModels() {
@@ -155,6 +410,7 @@ public class GraphViewModel extends Observable implements Observer {
    */
   public void setPane(ScalableScrollPane newGraphPane) {
     this.graphPane = newGraphPane;
+    graphPane.scaleProperty().addListener(this::scaleChanged);
   }
 
   public StringProperty snapshotDescriptionProperty() {
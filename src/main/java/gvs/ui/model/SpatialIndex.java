@@ -0,0 +1,182 @@
+package gvs.ui.model;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the bounding boxes of the drawn elements.
+ *
+ * Each box is registered in all cells it overlaps. Boxes which span many
+ * cells, e.g. long edges, are kept in a separate list and tested on every
+ * query instead. The grid has about one cell per element, so a query touches
+ * only the elements near the queried area.
+ *
+ * @author mwieland
+ *
+ */
+public final class SpatialIndex {
+
+  private static final int MAX_RESOLUTION = 256;
+  private static final int MAX_CELLS_PER_ITEM = 16;
+
+  private int resolution;
+  private double originX;
+  private double originY;
+  private double cellWidth;
+  private double cellHeight;
+
+  // items of cell c are cellItems[cellStart[c]] to cellItems[cellStart[c+1]]
+  private int[] cellStart = new int[1];
+  private int[] cellItems = new int[0];
+  private int[] largeItems = new int[0];
+
+  private double[] minX = new double[0];
+  private double[] minY = new double[0];
+  private double[] maxX = new double[0];
+  private double[] maxY = new double[0];
+
+  // items already reported by the running query carry its stamp
+  private int[] stamps = new int[0];
+  private int stamp;
+
+  /**
+   * Index the given boxes. Item i is the box from (minX[i], minY[i]) to
+   * (maxX[i], maxY[i]). The arrays are referenced, not copied, and must not
+   * change until the next build.
+   *
+   * @param size
+   *          number of boxes
+   */
+  public void build(int size, double[] minX, double[] minY, double[] maxX,
+      double[] maxY) {
+
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    if (stamps.length < size) {
+      stamps = new int[size];
+      stamp = 0;
+    }
+
+    double right = -Double.MAX_VALUE;
+    double bottom = -Double.MAX_VALUE;
+    originX = Double.MAX_VALUE;
+    originY = Double.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      originX = Math.min(originX, minX[i]);
+      originY = Math.min(originY, minY[i]);
+      right = Math.max(right, maxX[i]);
+      bottom = Math.max(bottom, maxY[i]);
+    }
+    resolution = Math.max(1,
+        Math.min(MAX_RESOLUTION, (int) Math.ceil(Math.sqrt(size))));
+    cellWidth = Math.max(right - originX, 1) / resolution;
+    cellHeight = Math.max(bottom - originY, 1) / resolution;
+
+    // count, then fill the cells
+    int[] counts = new int[resolution * resolution + 1];
+    int largeCount = 0;
+    for (int i = 0; i < size; i++) {
+      if (isLarge(i)) {
+        largeCount++;
+      } else {
+        for (int row = row(minY[i]); row <= row(maxY[i]); row++) {
+          for (int col = column(minX[i]); col <= column(maxX[i]); col++) {
+            counts[row * resolution + col + 1]++;
+          }
+        }
+      }
+    }
+    cellStart = new int[counts.length];
+    for (int c = 1; c < counts.length; c++) {
+      cellStart[c] = cellStart[c - 1] + counts[c];
+    }
+    cellItems = new int[cellStart[counts.length - 1]];
+    largeItems = new int[largeCount];
+
+    int[] next = Arrays.copyOf(cellStart, counts.length - 1);
+    int large = 0;
+    for (int i = 0; i < size; i++) {
+      if (isLarge(i)) {
+        largeItems[large++] = i;
+      } else {
+        for (int row = row(minY[i]); row <= row(maxY[i]); row++) {
+          for (int col = column(minX[i]); col <= column(maxX[i]); col++) {
+            cellItems[next[row * resolution + col]++] = i;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Find all boxes which overlap the given area.
+   *
+   * @return ascending item indices
+   */
+  public int[] query(double areaMinX, double areaMinY, double areaMaxX,
+      double areaMaxY) {
+
+    if (++stamp == Integer.MAX_VALUE) {
+      Arrays.fill(stamps, 0);
+      stamp = 1;
+    }
+    int[] result = new int[16];
+    int count = 0;
+
+    int firstRow = row(areaMinY);
+    int lastRow = row(areaMaxY);
+    int firstColumn = column(areaMinX);
+    int lastColumn = column(areaMaxX);
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int col = firstColumn; col <= lastColumn; col++) {
+        int cell = row * resolution + col;
+        for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+          int item = cellItems[k];
+          if (stamps[item] != stamp && overlaps(item, areaMinX, areaMinY,
+              areaMaxX, areaMaxY)) {
+            stamps[item] = stamp;
+            if (count == result.length) {
+              result = Arrays.copyOf(result, 2 * count);
+            }
+            result[count++] = item;
+          }
+        }
+      }
+    }
+    for (int item : largeItems) {
+      if (overlaps(item, areaMinX, areaMinY, areaMaxX, areaMaxY)) {
+        if (count == result.length) {
+          result = Arrays.copyOf(result, 2 * count);
+        }
+        result[count++] = item;
+      }
+    }
+
+    result = Arrays.copyOf(result, count);
+    Arrays.sort(result);
+    return result;
+  }
+
+  private boolean isLarge(int item) {
+    int columns = column(maxX[item]) - column(minX[item]) + 1;
+    int rows = row(maxY[item]) - row(minY[item]) + 1;
+    return columns * rows > MAX_CELLS_PER_ITEM;
+  }
+
+  private boolean overlaps(int item, double areaMinX, double areaMinY,
+      double areaMaxX, double areaMaxY) {
+    return minX[item] <= areaMaxX && maxX[item] >= areaMinX
+        && minY[item] <= areaMaxY && maxY[item] >= areaMinY;
+  }
+
+  private int column(double x) {
+    int column = (int) Math.floor((x - originX) / cellWidth);
+    return Math.max(0, Math.min(resolution - 1, column));
+  }
+
+  private int row(double y) {
+    int row = (int) Math.floor((y - originY) / cellHeight);
+    return Math.max(0, Math.min(resolution - 1, row));
+  }
+}
@@ -0,0 +1,136 @@
+package gvs.ui.model;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import gvs.util.FontAwesome.Glyph;
+import javafx.geometry.Dimension2D;
+import javafx.scene.control.Label;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Shape;
+
+/**
+ * Remembers the results of CSS passes and text layout of the view models.
+ *
+ * Labels with the same text, font class, icon and maximum width have the same
+ * size, and shapes with the same color class have the same color. Only the
+ * first label or shape is styled and measured, all others take the cached
+ * result. Must only be used on the JavaFX thread.
+ *
+ * @author mwieland
+ *
+ */
+final class StyleCache {
+
+  // least recently used label sizes are dropped
+  private static final int MAX_LABEL_SIZES = 10_000;
+
+  private static final Map<LabelKey, Dimension2D> labelSizes =
+      new LinkedHashMap<LabelKey, Dimension2D>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<LabelKey, Dimension2D> eldest) {
+          return size() > MAX_LABEL_SIZES;
+        }
+      };
+
+  private static final Map<String, Color> fills = new HashMap<>();
+  private static final Map<String, Color> strokes = new HashMap<>();
+
+  private StyleCache() {
+  }
+
+  /**
+   * Returns the preferred size of a label, limited to its maximum width. The
+   * label must be part of a scene, if it has not been measured before.
+   *
+   * @param label
+   *          label to measure
+   * @param fontClass
+   *          style class which sets the font and padding of the label
+   * @param icon
+   *          icon shown by the label or null
+   * @return width and height
+   */
+  static Dimension2D getLabelSize(Label label, String fontClass, Glyph icon) {
+    LabelKey key = new LabelKey(label.getText(), fontClass, icon,
+        label.getMaxWidth());
+    Dimension2D size = labelSizes.get(key);
+    if (size == null) {
+      // this hack forces the label to compute its height and width
+      label.applyCss();
+      size = new Dimension2D(
+          Math.min(label.prefWidth(-1), label.getMaxWidth()),
+          label.prefHeight(-1));
+      labelSizes.put(key, size);
+    }
+    return size;
+  }
+
+  /**
+   * Returns the fill color, which the given style class applies to a shape.
+   *
+   * @param shape
+   *          shape with the given style class
+   * @param fillClass
+   *          style class which sets the fill
+   * @return fill color
+   */
+  static Color getFill(Shape shape, String fillClass) {
+    return fills.computeIfAbsent(fillClass, c -> {
+      shape.applyCss();
+      return (Color) shape.getFill();
+    });
+  }
+
+  /**
+   * Returns the stroke color, which the given style class applies to a shape.
+   *
+   * @param shape
+   *          shape with the given style class
+   * @param lineClass
+   *          style class which sets the stroke
+   * @return stroke color
+   */
+  static Color getStroke(Shape shape, String lineClass) {
+    return strokes.computeIfAbsent(lineClass, c -> {
+      shape.applyCss();
+      return (Color) shape.getStroke();
+    });
+  }
+
+  private static final class LabelKey {
+
+    private final String text;
+    private final String fontClass;
+    private final Glyph icon;
+    private final double maxWidth;
+
+    LabelKey(String text, String fontClass, Glyph icon, double maxWidth) {
+      this.text = text;
+      this.fontClass = fontClass;
+      this.icon = icon;
+      this.maxWidth = maxWidth;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof LabelKey)) {
+        return false;
+      }
+      LabelKey other = (LabelKey) obj;
+      return Objects.equals(text, other.text)
+          && fontClass.equals(other.fontClass) && icon == other.icon
+          && maxWidth == other.maxWidth;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(text, fontClass, icon, maxWidth);
+    }
+  }
+}
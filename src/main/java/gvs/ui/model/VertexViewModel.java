@@ -1,7 +1,6 @@
 package gvs.ui.model;
 
-import java.util.Observable;
-import java.util.Observer;
+import java.util.Objects;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,12 +11,14 @@ import gvs.ui.view.ScalableScrollPane;
 import gvs.util.Configuration;
 import gvs.util.ContrastColor;
 import gvs.util.FontAwesome;
-import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
+import javafx.event.EventHandler;
+import javafx.geometry.Dimension2D;
 import javafx.geometry.Point2D;
 import javafx.scene.Cursor;
 import javafx.scene.control.Label;
 import javafx.scene.control.OverrunStyle;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Ellipse;
 
@@ -26,15 +27,23 @@ import javafx.scene.shape.Ellipse;
  * 
  * @author mwieland
  */
-public class VertexViewModel implements Observer {
+public class VertexViewModel {
 
   private double dragOriginalSceneX;
   private double dragOriginalSceneY;
+  // positions taken over from the model are not written back
+  private boolean applyingModelPosition;
 
-  private final IVertex vertex;
+  private IVertex vertex;
+  private String fillClass;
   private final Label label;
   private final Ellipse ellipse;
 
+  // closer to the model position, a vertex jumps to it
+  private static final double SNAP_DISTANCE = 0.5;
+  private static final String TEXT_FILL_CLASS = "text-fill-";
+  private static final String FONT_CLASS = "vertex";
+
   private static final Logger logger = LoggerFactory
       .getLogger(VertexViewModel.class);
 
@@ -51,25 +60,76 @@ public class VertexViewModel implements Observer {
 
     setLabelConstraints();
 
-    // bidirectional connection
-    this.vertex.addObserver(this);
+    // bidirectional connection, see GraphViewModel for the model to view
+    // direction
     ellipse.centerXProperty().addListener(this::xPropertyListener);
     ellipse.centerYProperty().addListener(this::yPropertyListener);
 
-    // setup label text and optional icon
+    setContent();
+    if (!vertex.isTreeVertex()) {
+      label.setCursor(Cursor.HAND);
+      ellipse.setCursor(Cursor.HAND);
+    }
+
+    updateCoordinates(vertex.getXPosition(), vertex.getYPosition());
+
+    setStyles();
+  }
+
+  /**
+   * Setup label text and optional icon.
+   */
+  private void setContent() {
     if (vertex.getIcon() != null) {
       logger.info("Creating VertexViewModel with an icon");
       label.setGraphic(FontAwesome.createLabel(vertex.getIcon(),
           Configuration.getIconFontSize()));
+    } else {
+      label.setGraphic(null);
     }
     label.setText(vertex.getLabel());
-    if (!vertex.isTreeVertex()) {
-      label.setCursor(Cursor.HAND);
-    }
+  }
 
-    updateCoordinates(vertex.getXPosition(), vertex.getYPosition());
+  /**
+   * Check whether this view model can show the given vertex of another
+   * snapshot. Graph and tree vertices are dragged differently, so they are
+   * not interchangeable.
+   * 
+   * @param otherVertex
+   *          vertex with the id of the current vertex
+   * @return true if {@link #setVertex(IVertex)} may be called
+   */
+  public boolean canShow(IVertex otherVertex) {
+    return otherVertex.isTreeVertex() == vertex.isTreeVertex();
+  }
 
-    setStyles();
+  /**
+   * Show the vertex with the same id of another snapshot. The ellipse moves
+   * to its position with the next frames. Label and styles are only updated,
+   * if they changed.
+   * 
+   * @param newVertex
+   *          business logic vertex of the other snapshot
+   */
+  public void setVertex(IVertex newVertex) {
+    boolean restyle = !hasSameAppearance(newVertex);
+    this.vertex = newVertex;
+    if (restyle) {
+      logger.info("Restyling VertexViewModel.");
+      ellipse.getStyleClass().clear();
+      setLabelConstraints();
+      setContent();
+      setStyles();
+      computeSize();
+      correctLabelColor();
+    }
+  }
+
+  private boolean hasSameAppearance(IVertex otherVertex) {
+    return Objects.equals(vertex.getLabel(), otherVertex.getLabel())
+        && vertex.getIcon() == otherVertex.getIcon()
+        && vertex.getMaxLabelLength() == otherVertex.getMaxLabelLength()
+        && Objects.equals(vertex.getStyle(), otherVertex.getStyle());
   }
 
   /**
@@ -91,9 +151,12 @@ public class VertexViewModel implements Observer {
     String lineStyle = style.getLineStyle().getStyle();
     String lineThickness = style.getLineThickness().getThickness();
 
-    label.getStyleClass().add("vertex");
+    if (!label.getStyleClass().contains(FONT_CLASS)) {
+      label.getStyleClass().add(FONT_CLASS);
+    }
 
-    ellipse.getStyleClass().add("fill-" + fillColor);
+    fillClass = "fill-" + fillColor;
+    ellipse.getStyleClass().add(fillClass);
     ellipse.getStyleClass().add("line-" + lineColor);
     ellipse.getStyleClass().add(lineStyle + "-" + lineThickness);
   }
@@ -111,7 +174,8 @@ public class VertexViewModel implements Observer {
    */
   private void xPropertyListener(ObservableValue<? extends Number> observable,
       Number oldValue, Number newValue) {
-    if (!equalDouble(oldValue.doubleValue(), newValue.doubleValue())) {
+    if (!applyingModelPosition
+        && !equalDouble(oldValue.doubleValue(), newValue.doubleValue())) {
       double newX = (double) newValue;
       vertex.setXPosition(newX);
     }
@@ -130,30 +194,40 @@ public class VertexViewModel implements Observer {
    */
   private void yPropertyListener(ObservableValue<? extends Number> observable,
       Number oldValue, Number newValue) {
-    if (!equalDouble(oldValue.doubleValue(), newValue.doubleValue())) {
+    if (!applyingModelPosition
+        && !equalDouble(oldValue.doubleValue(), newValue.doubleValue())) {
       double newY = (double) newValue;
       vertex.setYPosition(newY);
     }
   }
 
   /**
-   * Create the binding from the business logic {@link GraphVertex} to the
-   * presentation {@link VertexViewModel} properties.
+   * Move the ellipse towards the current position of the business logic
+   * {@link GraphVertex}. Must be called on the JavaFX thread.
    * 
-   * As soon as any {@link GraphVertex} field is updated, the corresponding
-   * property will be notified.
-   * 
-   * @param o
-   *          updated {@link GraphVertex} object
-   * @param arg
-   *          additional arguments
+   * @param fraction
+   *          part of the remaining distance which is covered, between 0 and 1
+   * @return true if the ellipse has not reached the model position yet
    */
-  @Override
-  public void update(Observable o, Object arg) {
-    // Hand updates over to JavaFX Thread
-    Platform.runLater(() -> {
-      updateCoordinates(vertex.getXPosition(), vertex.getYPosition());
-    });
+  public boolean interpolatePosition(double fraction) {
+    double targetX = vertex.getXPosition();
+    double targetY = vertex.getYPosition();
+    double deltaX = targetX - ellipse.getCenterX();
+    double deltaY = targetY - ellipse.getCenterY();
+
+    applyingModelPosition = true;
+    try {
+      if (Math.abs(deltaX) < SNAP_DISTANCE
+          && Math.abs(deltaY) < SNAP_DISTANCE) {
+        updateCoordinates(targetX, targetY);
+        return false;
+      }
+      updateCoordinates(ellipse.getCenterX() + deltaX * fraction,
+          ellipse.getCenterY() + deltaY * fraction);
+      return true;
+    } finally {
+      applyingModelPosition = false;
+    }
   }
 
   /**
@@ -178,11 +252,29 @@ public class VertexViewModel implements Observer {
   public void draw(ScalableScrollPane graphPane) {
     logger.info("Drawing VertexViewModel.");
     graphPane.addNodes(ellipse, label);
+    computeSize();
+    dragSupport(graphPane);
+    correctLabelColor();
+  }
 
-    // this hack forces the label to compute its height and width
-    label.applyCss();
-    double xRadius = Math.min(label.prefWidth(-1), label.getMaxWidth()) / 2;
-    double yRadius = label.prefHeight(-1) / 2;
+  /**
+   * Remove vertex from the given ScaleableContentPane
+   * 
+   * @param graphPane
+   *          given scaleable pane
+   */
+  public void remove(ScalableScrollPane graphPane) {
+    graphPane.removeNodes(ellipse, label);
+  }
+
+  /**
+   * Size the ellipse according to the label.
+   */
+  private void computeSize() {
+    Dimension2D size = StyleCache.getLabelSize(label, FONT_CLASS,
+        vertex.getIcon());
+    double xRadius = size.getWidth() / 2;
+    double yRadius = size.getHeight() / 2;
 
     if (label.getGraphic() != null) {
       xRadius = Math.max(xRadius, Configuration.getIconFontSize());
@@ -194,27 +286,35 @@ public class VertexViewModel implements Observer {
 
     label.layoutXProperty().bind(ellipse.centerXProperty().subtract(xRadius));
     label.layoutYProperty().bind(ellipse.centerYProperty().subtract(yRadius));
-
-    dragSupport(graphPane);
-
-    correctLabelColor();
   }
 
   /**
    * Choose a label color with enough contrast to the background color.
    */
   private void correctLabelColor() {
-    ellipse.applyCss();
-    Color ellipseColor = (Color) ellipse.getFill();
+    Color ellipseColor = StyleCache.getFill(ellipse, fillClass);
     String colorClass = ContrastColor.getContrastColorClass(ellipseColor);
+    label.getStyleClass().removeIf(c -> c.startsWith(TEXT_FILL_CLASS));
     label.getStyleClass().add(colorClass);
 
     if (label.getGraphic() != null) {
       Label icon = (Label) label.getGraphic();
+      icon.getStyleClass().removeIf(c -> c.startsWith(TEXT_FILL_CLASS));
       icon.getStyleClass().add(colorClass);
     }
   }
 
+  /**
+   * Show or hide the label and icon, e.g. if the view is zoomed out too far
+   * to read them. The vertex can still be dragged by its ellipse.
+   * 
+   * @param detailed
+   *          true to show the label
+   */
+  public void setDetailed(boolean detailed) {
+    label.setVisible(detailed);
+  }
+
   /**
    * Add drag support for graph vertices
    * 
@@ -227,12 +327,12 @@ public class VertexViewModel implements Observer {
 
       logger.info("Adding drag support on VertexViewModel.");
 
-      label.setOnMousePressed(e -> {
+      EventHandler<MouseEvent> pressedHandler = e -> {
         dragOriginalSceneX = e.getSceneX() / graphPane.getScaleValue();
         dragOriginalSceneY = e.getSceneY() / graphPane.getScaleValue();
-      });
+      };
 
-      label.setOnMouseDragged(e -> {
+      EventHandler<MouseEvent> draggedHandler = e -> {
         // logger level debug, because this will happen very often
         logger.debug("Mouse drag on VertexViewModel detected.");
 
@@ -254,14 +354,21 @@ public class VertexViewModel implements Observer {
         // remember last coordinates
         dragOriginalSceneX = e.getSceneX() / graphPane.getScaleValue();
         dragOriginalSceneY = e.getSceneY() / graphPane.getScaleValue();
-      });
+      };
+
+      // the ellipse is the handle while the label is hidden
+      label.setOnMousePressed(pressedHandler);
+      label.setOnMouseDragged(draggedHandler);
+      ellipse.setOnMousePressed(pressedHandler);
+      ellipse.setOnMouseDragged(draggedHandler);
     }
   }
 
   /**
    * Find boundaries of the node shape.
    * 
-   * Works like binary search (recursive)
+   * Solves the equation of the ellipse, including the outer half of its
+   * stroke, for the point on the line from inside to outside.
    * 
    * @param outside
    *          point outside the current vertex
@@ -270,20 +377,31 @@ public class VertexViewModel implements Observer {
    * @return intersection point
    */
   public Point2D findIntersectionPoint(Point2D outside, Point2D inside) {
-    Point2D middle = outside.midpoint(inside);
-
-    double deltaX = outside.getX() - inside.getX();
-    double deltaY = outside.getY() - inside.getY();
+    double halfStroke = ellipse.getStrokeWidth() / 2;
+    double radiusX = ellipse.getRadiusX() + halfStroke;
+    double radiusY = ellipse.getRadiusY() + halfStroke;
+    if (radiusX <= 0 || radiusY <= 0) {
+      return inside;
+    }
 
-    if (Math.hypot(deltaX, deltaY) < 1.) {
-      return middle;
-    } else {
-      if (ellipse.contains(middle)) {
-        return findIntersectionPoint(outside, middle);
-      } else {
-        return findIntersectionPoint(middle, inside);
-      }
+    // line inside + t * (outside - inside) in unit circle coordinates
+    double startX = (inside.getX() - ellipse.getCenterX()) / radiusX;
+    double startY = (inside.getY() - ellipse.getCenterY()) / radiusY;
+    double directionX = (outside.getX() - inside.getX()) / radiusX;
+    double directionY = (outside.getY() - inside.getY()) / radiusY;
+
+    double a = directionX * directionX + directionY * directionY;
+    double b = 2 * (startX * directionX + startY * directionY);
+    double c = startX * startX + startY * startY - 1;
+    double discriminant = b * b - 4 * a * c;
+    if (a == 0 || discriminant < 0) {
+      return inside;
     }
+
+    double t = (-b + Math.sqrt(discriminant)) / (2 * a);
+    t = Math.max(0, Math.min(1, t));
+    return new Point2D(inside.getX() + t * (outside.getX() - inside.getX()),
+        inside.getY() + t * (outside.getY() - inside.getY()));
   }
 
   /**
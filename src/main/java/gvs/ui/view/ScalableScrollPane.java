@@ -1,10 +1,12 @@
 package gvs.ui.view;
 
+import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.transform.Scale;
 
@@ -13,12 +15,16 @@ import javafx.scene.transform.Scale;
  * 
  * The pane does only zoom out. (e.g. scale factor < 1)
  * 
+ * Instead of the zoomable content, the pane can show a canvas, which covers
+ * the viewport and zooms by itself.
+ * 
  * @author mwieland
  */
 public class ScalableScrollPane extends ScrollPane {
 
   private final Group contentGroup;
   private final Scale scale;
+  private Canvas canvas;
 
   private static final int MAX_SCALE = 1;
 
@@ -42,6 +48,10 @@ public class ScalableScrollPane extends ScrollPane {
     needsLayoutProperty().addListener((o, old, newVal) -> {
       zoomToContent();
     });
+
+    viewportBoundsProperty().addListener((o, old, newVal) -> {
+      resizeCanvas();
+    });
   }
 
   public void zoomToContent() {
@@ -76,6 +86,10 @@ public class ScalableScrollPane extends ScrollPane {
     contentGroup.getChildren().addAll(nodes);
   }
 
+  public void removeNodes(Node... nodes) {
+    contentGroup.getChildren().removeAll(nodes);
+  }
+
   private void addListener(Node... nodes) {
     final ChangeListener<Bounds> boundsListener = (o, oldVal, newVal) -> {
       setNeedsLayout(false);
@@ -99,12 +113,55 @@ public class ScalableScrollPane extends ScrollPane {
 
   public void clear() {
     contentGroup.getChildren().clear();
+    if (canvas != null) {
+      canvas = null;
+      setContent(contentGroup);
+    }
+  }
+
+  /**
+   * Show a canvas instead of the zoomable content. The canvas is resized with
+   * the viewport. {@link #clear()} switches back to the zoomable content.
+   * 
+   * @param newCanvas
+   *          canvas which draws the graph
+   * @param styleNodes
+   *          invisible nodes next to the canvas, which are styled by the
+   *          style sheets of this pane
+   */
+  public void showCanvas(Canvas newCanvas, Node... styleNodes) {
+    contentGroup.getChildren().clear();
+    canvas = newCanvas;
+    for (Node node : styleNodes) {
+      node.setVisible(false);
+    }
+    Group canvasGroup = new Group(canvas);
+    canvasGroup.getChildren().addAll(styleNodes);
+    setContent(canvasGroup);
+    resizeCanvas();
+  }
+
+  private void resizeCanvas() {
+    if (canvas != null) {
+      canvas.setWidth(getViewportBounds().getWidth());
+      canvas.setHeight(getViewportBounds().getHeight());
+    }
   }
 
   public double getScaleValue() {
     return scale.getX();
   }
 
+  /**
+   * Zoom factor of the content, e.g. to reduce details of far zoomed out
+   * content.
+   * 
+   * @return scale property
+   */
+  public ReadOnlyDoubleProperty scaleProperty() {
+    return scale.xProperty();
+  }
+
   @Override
   protected void layoutChildren() {
     super.layoutChildren();
@@ -32,9 +32,76 @@ public class Configuration {
   private static final String SERVER = "Server";
   private static final String STARTPORT = "StartPort";
   private static final String WATCHDOG = "Watchdog";
+  private static final String SERVER_MODE = "Mode";
+  private static final String WORKERS = "Workers";
+  private static final String INGEST = "Ingest";
+  private static final String VALIDATION = "Validation";
+  private static final String VALIDATION_SAMPLE_RATE = "ValidationSampleRate";
+  private static final String DEFAULT_SERVER_MODE = "nio";
+  private static final int DEFAULT_WORKERS = 0;
+  private static final String DEFAULT_INGEST = "stream";
+  private static final String DEFAULT_VALIDATION = "strict";
+  private static final int DEFAULT_VALIDATION_SAMPLE_RATE = 10;
+
+  // Layout
+  private static final String LAYOUT = "Layout";
+  private static final String REPULSION = "Repulsion";
+  private static final String THETA = "Theta";
+  private static final String CUTOFF = "Cutoff";
+  private static final String THREADS = "Threads";
+  private static final String ITERATIONS = "Iterations";
+  private static final String FRAME_BUDGET = "FrameBudget";
+  private static final String MAX_LAYOUTS = "MaxLayouts";
+  private static final String INCREMENTAL = "Incremental";
+  private static final String MULTILEVEL_THRESHOLD = "MultilevelThreshold";
+  private static final String SEED = "Seed";
+  private static final String LAYOUT_CACHE_SIZE = "LayoutCacheSize";
+  private static final String LAYOUT_CACHE_DIRECTORY = "LayoutCacheDirectory";
+  private static final String DEFAULT_REPULSION = "barnes-hut";
+  private static final double DEFAULT_THETA = 0.8;
+  private static final double DEFAULT_CUTOFF = 600;
+  private static final int DEFAULT_THREADS = 0;
+  private static final String DEFAULT_ITERATIONS = "frame-budget";
+  private static final int DEFAULT_FRAME_BUDGET = 20;
+  private static final int DEFAULT_MAX_LAYOUTS = 4;
+  private static final boolean DEFAULT_INCREMENTAL = true;
+  private static final int DEFAULT_MULTILEVEL_THRESHOLD = 1000;
+  private static final int DEFAULT_SEED = 0;
+  private static final int DEFAULT_LAYOUT_CACHE_SIZE = 100;
+  private static final String DEFAULT_LAYOUT_CACHE_DIRECTORY = "";
+
+  // View
+  private static final String VIEW = "View";
+  private static final String CANVAS_THRESHOLD = "CanvasThreshold";
+  private static final String DETAIL_ZOOM = "DetailZoom";
+  private static final int DEFAULT_CANVAS_THRESHOLD = 2000;
+  private static final double DEFAULT_DETAIL_ZOOM = 0.25;
 
   // Communication
   private String startPort = "";
+  private String serverMode = DEFAULT_SERVER_MODE;
+  private int workers = DEFAULT_WORKERS;
+  private String ingest = DEFAULT_INGEST;
+  private String validation = DEFAULT_VALIDATION;
+  private int validationSampleRate = DEFAULT_VALIDATION_SAMPLE_RATE;
+
+  // Layout engine
+  private String repulsion = DEFAULT_REPULSION;
+  private double theta = DEFAULT_THETA;
+  private double cutoff = DEFAULT_CUTOFF;
+  private int threads = DEFAULT_THREADS;
+  private String iterations = DEFAULT_ITERATIONS;
+  private int frameBudget = DEFAULT_FRAME_BUDGET;
+  private int maxLayouts = DEFAULT_MAX_LAYOUTS;
+  private boolean incremental = DEFAULT_INCREMENTAL;
+  private int multilevelThreshold = DEFAULT_MULTILEVEL_THRESHOLD;
+  private int seed = DEFAULT_SEED;
+  private int layoutCacheSize = DEFAULT_LAYOUT_CACHE_SIZE;
+  private String layoutCacheDirectory = DEFAULT_LAYOUT_CACHE_DIRECTORY;
+
+  // View
+  private int canvasThreshold = DEFAULT_CANVAS_THRESHOLD;
+  private double detailZoom = DEFAULT_DETAIL_ZOOM;
 
   // Logger
   private static final Logger logger = LoggerFactory
@@ -58,6 +125,13 @@ public class Configuration {
       Element eServer = docRoot.element(SERVER);
 
       loadStartPort(eServer);
+      loadServer(eServer);
+
+      Element eLayout = docRoot.element(LAYOUT);
+      loadLayout(eLayout);
+
+      Element eView = docRoot.element(VIEW);
+      loadView(eView);
     } catch (DocumentException e) {
       logger.error("No configuration found. System exit");
       System.exit(0);
@@ -85,6 +159,130 @@ public class Configuration {
     }
   }
 
+  /**
+   * Load the connection handling of the server. Missing values keep their
+   * defaults.
+   * 
+   * @param pServer
+   *          server element
+   */
+  private void loadServer(Element pServer) {
+    serverMode = readText(pServer, SERVER_MODE, DEFAULT_SERVER_MODE);
+    workers = readInt(pServer, WORKERS, DEFAULT_WORKERS);
+    ingest = readText(pServer, INGEST, DEFAULT_INGEST);
+    validation = readText(pServer, VALIDATION, DEFAULT_VALIDATION);
+    validationSampleRate = readInt(pServer, VALIDATION_SAMPLE_RATE,
+        DEFAULT_VALIDATION_SAMPLE_RATE);
+  }
+
+  /**
+   * Load the settings of the layout engine. Missing values keep their
+   * defaults.
+   * 
+   * @param pLayout
+   *          layout element
+   */
+  private void loadLayout(Element pLayout) {
+    if (pLayout == null) {
+      logger.warn("No layout configuration. Use defaults");
+      return;
+    }
+    repulsion = readText(pLayout, REPULSION, DEFAULT_REPULSION);
+    theta = readDouble(pLayout, THETA, DEFAULT_THETA);
+    cutoff = readDouble(pLayout, CUTOFF, DEFAULT_CUTOFF);
+    threads = readInt(pLayout, THREADS, DEFAULT_THREADS);
+    iterations = readText(pLayout, ITERATIONS, DEFAULT_ITERATIONS);
+    frameBudget = readInt(pLayout, FRAME_BUDGET, DEFAULT_FRAME_BUDGET);
+    maxLayouts = readInt(pLayout, MAX_LAYOUTS, DEFAULT_MAX_LAYOUTS);
+    incremental = Boolean.parseBoolean(readText(pLayout, INCREMENTAL,
+        String.valueOf(DEFAULT_INCREMENTAL)));
+    multilevelThreshold = readInt(pLayout, MULTILEVEL_THRESHOLD,
+        DEFAULT_MULTILEVEL_THRESHOLD);
+    seed = readInt(pLayout, SEED, DEFAULT_SEED);
+    layoutCacheSize = readInt(pLayout, LAYOUT_CACHE_SIZE,
+        DEFAULT_LAYOUT_CACHE_SIZE);
+    layoutCacheDirectory = readText(pLayout, LAYOUT_CACHE_DIRECTORY,
+        DEFAULT_LAYOUT_CACHE_DIRECTORY);
+  }
+
+  /**
+   * Load the settings of the graph view. Missing values keep their defaults.
+   * 
+   * @param pView
+   *          view element
+   */
+  private void loadView(Element pView) {
+    if (pView == null) {
+      logger.warn("No view configuration. Use defaults");
+      return;
+    }
+    canvasThreshold = readInt(pView, CANVAS_THRESHOLD,
+        DEFAULT_CANVAS_THRESHOLD);
+    detailZoom = readDouble(pView, DETAIL_ZOOM, DEFAULT_DETAIL_ZOOM);
+  }
+
+  /**
+   * Read the text of a child element.
+   * 
+   * @param parent
+   *          parent element
+   * @param name
+   *          name of the child element
+   * @param defaultValue
+   *          value used if the element is missing
+   * @return configured or default value
+   */
+  private String readText(Element parent, String name, String defaultValue) {
+    Element element = parent.element(name);
+    if (element == null) {
+      logger.warn("No {}. Set default: {}", name, defaultValue);
+      return defaultValue;
+    }
+    return element.getTextTrim();
+  }
+
+  /**
+   * Read a decimal number from a child element.
+   * 
+   * @param parent
+   *          parent element
+   * @param name
+   *          name of the child element
+   * @param defaultValue
+   *          value used if the element is missing or invalid
+   * @return configured or default value
+   */
+  private double readDouble(Element parent, String name, double defaultValue) {
+    String text = readText(parent, name, String.valueOf(defaultValue));
+    try {
+      return Double.parseDouble(text);
+    } catch (NumberFormatException ex) {
+      logger.warn("Load {} failed. Set default: {}", name, defaultValue);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Read an integer from a child element.
+   * 
+   * @param parent
+   *          parent element
+   * @param name
+   *          name of the child element
+   * @param defaultValue
+   *          value used if the element is missing or invalid
+   * @return configured or default value
+   */
+  private int readInt(Element parent, String name, int defaultValue) {
+    String text = readText(parent, name, String.valueOf(defaultValue));
+    try {
+      return Integer.parseInt(text);
+    } catch (NumberFormatException ex) {
+      logger.warn("Load {} failed. Set default: {}", name, defaultValue);
+      return defaultValue;
+    }
+  }
+
   /**
    * Returns the port.
    * 
@@ -94,6 +292,188 @@ public class Configuration {
     return startPort;
   }
 
+  /**
+   * Returns how client connections are served: blocking uses a thread per
+   * client, nio multiplexes all clients on one selector thread.
+   * 
+   * @return blocking or nio
+   */
+  public String getServerMode() {
+    return serverMode;
+  }
+
+  /**
+   * Returns the number of threads which parse received documents in nio
+   * mode. 0 = all available processors.
+   * 
+   * @return number of worker threads
+   */
+  public int getWorkers() {
+    return workers;
+  }
+
+  /**
+   * Returns how received documents are read: stream parses them
+   * incrementally, dom reads each into a validated document tree first.
+   * 
+   * @return stream or dom
+   */
+  public String getIngest() {
+    return ingest;
+  }
+
+  /**
+   * Returns which received documents are validated, until a client selects
+   * another mode for its connection.
+   * 
+   * @return strict, sampled or off
+   */
+  public String getValidation() {
+    return validation;
+  }
+
+  /**
+   * Returns the distance between validated documents in sampled mode.
+   * 
+   * @return every n-th document of a connection is validated
+   */
+  public int getValidationSampleRate() {
+    return validationSampleRate;
+  }
+
+  /**
+   * Returns the name of the repulsion strategy of the graph layouter.
+   * 
+   * @return "exact", "barnes-hut" or "grid"
+   */
+  public String getRepulsion() {
+    return repulsion;
+  }
+
+  /**
+   * Returns the accuracy threshold of the Barnes-Hut approximation.
+   * 
+   * @return theta
+   */
+  public double getTheta() {
+    return theta;
+  }
+
+  /**
+   * Returns the radius within which particles repel each other in grid mode.
+   * 
+   * @return cutoff radius
+   */
+  public double getCutoff() {
+    return cutoff;
+  }
+
+  /**
+   * Returns the number of threads computing the layout forces. 0 uses all
+   * available processors, 1 computes sequentially.
+   * 
+   * @return number of layout threads
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Returns how many layout iterations are executed per tick.
+   * 
+   * @return "tick", "frame-budget" or "headless"
+   */
+  public String getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Returns the time per tick which may be spent on layout iterations.
+   * 
+   * @return frame budget in milliseconds
+   */
+  public int getFrameBudget() {
+    return frameBudget;
+  }
+
+  /**
+   * Returns how many graphs may be layouted at the same time.
+   * 
+   * @return maximum number of concurrent layouts
+   */
+  public int getMaxLayouts() {
+    return maxLayouts;
+  }
+
+  /**
+   * Returns true if new snapshots only layout the vertices which were added.
+   * 
+   * @return incremental layout enabled
+   */
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * Returns the number of vertices from which on graphs are layouted by the
+   * multilevel layouter. 0 disables the multilevel layouter.
+   * 
+   * @return minimum number of vertices
+   */
+  public int getMultilevelThreshold() {
+    return multilevelThreshold;
+  }
+
+  /**
+   * Returns the seed of the random initial positions. The same graph is
+   * always layouted the same way.
+   * 
+   * @return random seed
+   */
+  public int getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns how many layouts are kept in memory for graphs which are received
+   * again. 0 disables the layout cache.
+   * 
+   * @return maximum number of cached layouts
+   */
+  public int getLayoutCacheSize() {
+    return layoutCacheSize;
+  }
+
+  /**
+   * Returns the directory in which cached layouts are stored, so they survive
+   * a restart. An empty path keeps the layouts in memory only.
+   * 
+   * @return cache directory or empty string
+   */
+  public String getLayoutCacheDirectory() {
+    return layoutCacheDirectory;
+  }
+
+  /**
+   * Returns the number of vertices from which on graphs are painted on a
+   * canvas instead of the scene graph. 0 disables the canvas.
+   * 
+   * @return minimum number of vertices
+   */
+  public int getCanvasThreshold() {
+    return canvasThreshold;
+  }
+
+  /**
+   * Returns the zoom factor below which labels and icons are hidden and
+   * arrows are simplified.
+   * 
+   * @return minimum zoom factor of a detailed view
+   */
+  public double getDetailZoom() {
+    return detailZoom;
+  }
+
   public static int getContentPaneHeight() {
     return CONTENT_PANE_HEIGHT;
   }
@@ -1,14 +1,23 @@
 package gvs.util;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javafx.scene.paint.Color;
 
 /**
  * Represents a nice contrast color.
  * 
+ * The contrast classes are cached by color, because every drawn vertex and
+ * edge asks for one.
+ * 
  * @author mtrentini
  */
 public class ContrastColor {
 
+  private static final Map<Color, String> contrastColorClasses =
+      new ConcurrentHashMap<>();
+
   /**
    * Return either black or white depending on the brightness of the input
    * color.
@@ -35,6 +44,11 @@ public class ContrastColor {
    * @return color class
    */
   public static String getContrastColorClass(Color color) {
+    return contrastColorClasses.computeIfAbsent(color,
+        ContrastColor::computeContrastColorClass);
+  }
+
+  private static String computeContrastColorClass(Color color) {
     double brightness = color.getBrightness();
     if (brightness >= 0.95) {
       return "text-fill-black";
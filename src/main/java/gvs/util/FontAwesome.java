@@ -38,6 +38,17 @@ public class FontAwesome {
     return label;
   }
 
+  /**
+   * Loads the FontAwesome font, e.g. to draw glyphs on a canvas.
+   * 
+   * @param size
+   *          font size
+   * @return FontAwesome font
+   */
+  public static Font createFont(int size) {
+    return loadFontResource(size);
+  }
+
   private static Font loadFontResource(int size) {
     InputStream is = FontAwesome.class.getClassLoader()
         .getResourceAsStream("fonts/fontawesome-webfont.ttf");
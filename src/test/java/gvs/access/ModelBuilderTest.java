@@ -0,0 +1,345 @@
+package gvs.access;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.dom4j.io.SAXReader;
+import org.junit.jupiter.api.Test;
+
+import gvs.model.ClientData;
+import gvs.model.Graph;
+import gvs.model.GraphDelta;
+import gvs.model.IEdge;
+import gvs.model.IVertex;
+import gvs.model.tree.TreeVertex;
+
+class ModelBuilderTest {
+
+  private static final String GRAPH = "<?xml version=\"1.0\" "
+      + "encoding=\"UTF-8\"?><GVS><Graph Id=\"7\"><Label>ring</Label>"
+      + "</Graph><Vertizes>" + vertex(1, "a") + vertex(2, "b")
+      + vertex(3, "c") + "</Vertizes><Edges>"
+      + edge("true", 0, 1, 2) + edge("false", 1, 2, 3)
+      + edge("false", 0, 3, 1) + "</Edges></GVS>";
+
+  private static final String TREE = "<?xml version=\"1.0\" "
+      + "encoding=\"UTF-8\"?><GVS><Tree Id=\"8\"><Label>tree</Label>"
+      + "</Tree><Nodes>" + node(1, 2, 3) + node(2) + node(3)
+      + "</Nodes></GVS>";
+
+  private final GvsXmlReader xmlReader = new GvsXmlReader(new SAXReader(),
+      new GvsSchema());
+
+  @Test
+  void testStreamBuildsSameGraphAsDocument() throws Exception {
+    ClientData document = buildFromDocument(GRAPH);
+    ClientData stream = buildFromStream(GRAPH);
+
+    assertEquals(7, stream.getSessionId());
+    assertEquals("ring", stream.getSessionName());
+    assertEquals(describe(document.getGraph()),
+        describe(stream.getGraph()));
+    assertEquals(document.getGraph().isLayoutable(),
+        stream.getGraph().isLayoutable());
+  }
+
+  @Test
+  void testStreamBuildsSameTreeAsDocument() throws Exception {
+    ClientData document = buildFromDocument(TREE);
+    ClientData stream = buildFromStream(TREE);
+
+    assertEquals(8, stream.getSessionId());
+    assertEquals(describe(document.getGraph()),
+        describe(stream.getGraph()));
+    List<TreeVertex> roots = stream.getGraph().getVertices().stream()
+        .map(v -> (TreeVertex) v).filter(TreeVertex::isRoot)
+        .collect(Collectors.toList());
+    assertEquals(1, roots.size());
+    assertEquals(2, roots.get(0).getChildren().size());
+  }
+
+  @Test
+  void testStrictValidationRejectsInvalidDocument() throws Exception {
+    String invalid = GRAPH.replace("<Linecolor>black</Linecolor>", "");
+
+    assertNull(xmlReader.read(new ByteArrayInputStream(invalid.getBytes()),
+        true));
+    assertThrows(XMLStreamException.class,
+        () -> buildFromStream(invalid, true));
+
+    // not validated, the missing colors are null
+    ClientData stream = buildFromStream(invalid, false);
+    assertEquals(describe(buildFromDocument(invalid, false).getGraph()),
+        describe(stream.getGraph()));
+  }
+
+  @Test
+  void testBinaryBuildsSameGraphAsDocument() throws Exception {
+    BinaryMessage message = new BinaryMessage(BinaryInput.GRAPH);
+    message.id(7).string("ring").var(3);
+    for (long id = 1; id <= 3; id++) {
+      message.id(id).string(String.valueOf((char) ('a' + id - 1)))
+          .style("red").var(BinaryInput.RELATIVE_POSITION | BinaryInput.ICON)
+          .position(10 * id, 20 * id).string("CIRCLE");
+    }
+    message.var(3);
+    message.string("12").style(null).var(1).id(1).id(2);
+    // an undirected edge with an arrow is a directed edge in reverse
+    message.string("23").style(null).var(1).id(3).id(2);
+    message.string("31").style(null).var(0).id(3).id(1);
+
+    List<ClientData> received = new ArrayList<>();
+    createBuilder(received).buildModelFromBinary(message.toByteBuffer());
+
+    assertEquals(1, received.size());
+    ClientData binary = received.get(0);
+    assertEquals(7, binary.getSessionId());
+    assertEquals("ring", binary.getSessionName());
+    assertEquals(describe(buildFromDocument(GRAPH).getGraph()),
+        describe(binary.getGraph()));
+  }
+
+  @Test
+  void testDeltaChangesCopyOfPreviousGraph() throws Exception {
+    Graph previous = buildFromDocument(GRAPH).getGraph();
+    String before = describe(previous);
+
+    BinaryMessage message = new BinaryMessage(BinaryInput.DELTA);
+    message.id(7).string("ring").var(5);
+    message.var(BinaryInput.RESTYLE_VERTEX).id(1).style("blue");
+    message.var(BinaryInput.REMOVE_VERTEX).id(3);
+    message.var(BinaryInput.PUT_VERTEX).id(4).string("d").style("red")
+        .var(0);
+    message.var(BinaryInput.ADD_EDGE).string("24").style(null).var(1).id(2)
+        .id(4);
+    message.var(BinaryInput.RESTYLE_EDGE).id(1).id(2).style("blue");
+
+    List<ClientData> received = new ArrayList<>();
+    createBuilder(received).buildModelFromBinary(message.toByteBuffer());
+    GraphDelta delta = received.get(0).getDelta();
+    assertEquals(7, received.get(0).getSessionId());
+    assertEquals(5, delta.size());
+
+    Graph next = delta.applyTo(previous);
+
+    assertEquals(before, describe(previous));
+    assertEquals("[1, 2, 4]", next.getVertices().stream()
+        .map(IVertex::getId).sorted().collect(Collectors.toList())
+        .toString());
+    assertEquals("[1-2, 2-4]", next.getEdges().stream()
+        .map(e -> e.getStartVertex().getId() + "-"
+            + e.getEndVertex().getId())
+        .sorted().collect(Collectors.toList()).toString());
+
+    IVertex formerFirst = findVertex(previous, 1);
+    IVertex first = findVertex(next, 1);
+    assertNotEquals(formerFirst.getStyle(), first.getStyle());
+    assertEquals(formerFirst.getXPosition(), first.getXPosition());
+    assertSame(findVertex(previous, 2).getStyle(),
+        findVertex(next, 2).getStyle());
+  }
+
+  @Test
+  void testDeltaSharesUntouchedVertices() throws Exception {
+    Graph previous = buildFromDocument(GRAPH).getGraph();
+
+    BinaryMessage message = new BinaryMessage(BinaryInput.DELTA);
+    message.id(7).string("ring").var(1);
+    message.var(BinaryInput.RESTYLE_VERTEX).id(1).style("blue");
+    List<ClientData> received = new ArrayList<>();
+    createBuilder(received).buildModelFromBinary(message.toByteBuffer());
+
+    Graph next = received.get(0).getDelta().applyTo(previous);
+
+    assertNotSame(findVertex(previous, 1), findVertex(next, 1));
+    assertSame(findVertex(previous, 2), findVertex(next, 2));
+    assertSame(findVertex(previous, 3), findVertex(next, 3));
+    // only the edge between the untouched vertices is shared
+    assertEquals(1, next.getEdges().stream()
+        .filter(previous.getEdges()::contains).count());
+
+    String before = describe(next);
+    assertTrue(next.copySharedVertices());
+    assertEquals(before, describe(next));
+    assertNotSame(findVertex(previous, 2), findVertex(next, 2));
+    next.getEdges().forEach(e -> {
+      assertSame(findVertex(next, e.getStartVertex().getId()),
+          e.getStartVertex());
+      assertSame(findVertex(next, e.getEndVertex().getId()),
+          e.getEndVertex());
+    });
+  }
+
+  private ClientData buildFromDocument(String xml) throws Exception {
+    return buildFromDocument(xml, true);
+  }
+
+  private ClientData buildFromDocument(String xml, boolean validate)
+      throws Exception {
+
+    List<ClientData> received = new ArrayList<>();
+    ModelBuilder builder = createBuilder(received);
+    builder.buildModelFromXML(xmlReader
+        .read(new ByteArrayInputStream(xml.getBytes("UTF-8")), validate));
+    assertEquals(1, received.size());
+    return received.get(0);
+  }
+
+  private ClientData buildFromStream(String xml) throws Exception {
+    return buildFromStream(xml, true);
+  }
+
+  private ClientData buildFromStream(String xml, boolean validate)
+      throws Exception {
+
+    List<ClientData> received = new ArrayList<>();
+    ModelBuilder builder = createBuilder(received);
+    builder.buildModelFromStream(xmlReader.openStream(
+        new ByteArrayInputStream(xml.getBytes("UTF-8")), validate));
+    assertEquals(1, received.size());
+    return received.get(0);
+  }
+
+  private ModelBuilder createBuilder(List<ClientData> received) {
+    ModelBuilder builder = new ModelBuilder(() -> null, () -> null);
+    builder.addObserver((o, data) -> received.add((ClientData) data));
+    return builder;
+  }
+
+  /**
+   * Compare graphs by their vertices and edges in id order.
+   */
+  private String describe(Graph graph) {
+    String vertices = graph.getVertices().stream()
+        .sorted(Comparator.comparingLong(IVertex::getId))
+        .map(v -> v.getId() + v.getLabel() + v.getXPosition()
+            + v.getYPosition() + v.getStyle().hashCode() + v.getIcon())
+        .collect(Collectors.joining(","));
+    String edges = graph.getEdges().stream()
+        .map(e -> describe(e)).sorted().collect(Collectors.joining(","));
+    return vertices + ";" + edges;
+  }
+
+  private IVertex findVertex(Graph graph, long id) {
+    return graph.getVertices().stream().filter(v -> v.getId() == id)
+        .findFirst().get();
+  }
+
+  private String describe(IEdge edge) {
+    return edge.getStartVertex().getId() + "-" + edge.getEndVertex().getId()
+        + edge.isDirected() + edge.getLabel() + edge.getStyle().hashCode();
+  }
+
+  private static String vertex(long id, String label) {
+    return "<RelativVertex Id=\"" + id + "\"><Label>" + label + "</Label>"
+        + style() + "<Fillcolor>red</Fillcolor><Icon>CIRCLE</Icon>"
+        + "<XPos>" + 10 * id + "</XPos><YPos>" + 20 * id + "</YPos>"
+        + "</RelativVertex>";
+  }
+
+  private static String edge(String directed, int arrow, long from,
+      long to) {
+    return "<Edge Id=\"0\" IsDirected=\"" + directed
+        + "\" DrawArrowOnPosition=\"" + arrow + "\"><Label>" + from + to
+        + "</Label>" + style() + "<FromVertex>" + from
+        + "</FromVertex><ToVertex>" + to + "</ToVertex></Edge>";
+  }
+
+  private static String node(long id, long... children) {
+    StringBuilder node = new StringBuilder("<DefaultNode Id=\"" + id
+        + "\"><Label>" + id + "</Label>" + style()
+        + "<Fillcolor>blue</Fillcolor>");
+    for (long child : children) {
+      node.append("<Child>").append(child).append("</Child>");
+    }
+    return node.append("</DefaultNode>").toString();
+  }
+
+  /**
+   * Encodes a message of the binary protocol. Every string and style is
+   * introduced once and referenced afterwards.
+   */
+  private static class BinaryMessage {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final List<String> strings = new ArrayList<>();
+    private final List<String> styles = new ArrayList<>();
+
+    BinaryMessage(int type) {
+      bytes.write(type);
+    }
+
+    BinaryMessage var(long value) {
+      while ((value & ~0x7FL) != 0) {
+        bytes.write((int) (value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes.write((int) value);
+      return this;
+    }
+
+    BinaryMessage id(long id) {
+      return var((id << 1) ^ (id >> 63));
+    }
+
+    BinaryMessage string(String text) {
+      if (text == null) {
+        return var(0);
+      }
+      int index = strings.indexOf(text);
+      if (index >= 0) {
+        return var(index + 1);
+      }
+      strings.add(text);
+      byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+      var(strings.size()).var(utf8.length);
+      bytes.write(utf8, 0, utf8.length);
+      return this;
+    }
+
+    /**
+     * Style of the xml documents with the given fill color.
+     */
+    BinaryMessage style(String fillColor) {
+      int index = styles.indexOf(fillColor);
+      if (index >= 0) {
+        return var(index + 1);
+      }
+      styles.add(fillColor);
+      return var(styles.size()).string("black").string("through")
+          .string("standard").string(fillColor);
+    }
+
+    BinaryMessage position(double x, double y) {
+      ByteBuffer doubles = ByteBuffer.allocate(2 * Double.BYTES);
+      doubles.putDouble(x).putDouble(y);
+      bytes.write(doubles.array(), 0, doubles.capacity());
+      return this;
+    }
+
+    ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(bytes.toByteArray());
+    }
+  }
+
+  private static String style() {
+    return "<Linecolor>black</Linecolor><Linestyle>through</Linestyle>"
+        + "<Linethickness>standard</Linethickness>";
+  }
+}
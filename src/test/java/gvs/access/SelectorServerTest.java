@@ -0,0 +1,272 @@
+package gvs.access;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.dom4j.io.SAXReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gvs.model.ClientData;
+import gvs.util.Configuration;
+
+/**
+ * Talks to a {@link SelectorServer} over loopback. Input is sent in several
+ * writes with pauses in between, so the server receives it in several reads.
+ */
+class SelectorServerTest {
+
+  private static final int PAUSE_MS = 100;
+  private static final int TIMEOUT_MS = 5000;
+  private static final long SLOW_SESSION = 9;
+
+  private final List<Long> received = Collections
+      .synchronizedList(new ArrayList<>());
+  private final List<Socket> clients = new ArrayList<>();
+
+  private SelectorServer server;
+  private Thread serverThread;
+  private int port;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+
+    ModelBuilder modelBuilder = new ModelBuilder(() -> null, () -> null);
+    modelBuilder.addObserver((o, data) -> {
+      long sessionId = ((ClientData) data).getSessionId();
+      if (sessionId == SLOW_SESSION) {
+        pause();
+      }
+      received.add(sessionId);
+    });
+    GvsSchema schema = new GvsSchema();
+    // documents of several clients could be built at the same time
+    Configuration configuration = new Configuration() {
+      @Override
+      public int getWorkers() {
+        return 2;
+      }
+    };
+    server = new SelectorServer(new ConnectionMonitor(), modelBuilder,
+        () -> new GvsXmlReader(new SAXReader(), schema), configuration);
+
+    serverThread = new Thread(() -> {
+      try {
+        server.serve(port);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    serverThread.setDaemon(true);
+    serverThread.start();
+  }
+
+  @AfterEach
+  void stopServer() throws Exception {
+    for (Socket client : clients) {
+      client.close();
+    }
+    server.stop();
+    serverThread.join(TIMEOUT_MS);
+  }
+
+  @Test
+  void testLineBreakSplitAcrossReads() throws Exception {
+    Socket client = connect();
+    send(client, "reserveGVS\r");
+    send(client, "\n" + document(1) + ";\r");
+    send(client, "\nbinaryGVS\r");
+    assertEquals("OK", readLine(client));
+    assertEquals("OK", readLine(client));
+
+    // a line feed taken for a new line would be read as frame length
+    byte[] bytes = frame(binaryGraph(3));
+    send(client, new byte[] { '\n' }, 0, 1);
+    send(client, bytes, 0, bytes.length);
+
+    awaitReceived(1L, 3L);
+  }
+
+  @Test
+  void testDataEndWithinLine() throws Exception {
+    Socket client = connect();
+    send(client, "reserveGVS\n" + document(1) + ";ignored\n"
+        + document(2).replace("\n", "") + ";\n");
+
+    assertEquals("OK", readLine(client));
+    awaitReceived(1L, 2L);
+  }
+
+  @Test
+  void testBinaryFrameSplitAcrossReads() throws Exception {
+    Socket client = connect();
+    send(client, "reserveGVS\r\nbinaryGVS\r\n");
+    assertEquals("OK", readLine(client));
+    assertEquals("OK", readLine(client));
+
+    byte[] bytes = frame(binaryGraph(3));
+    for (int i = 0; i < bytes.length; i += 3) {
+      send(client, bytes, i, Math.min(3, bytes.length - i));
+    }
+    send(client, new byte[] { 0, 0, 0, 1, BinaryInput.RELEASE }, 0, 5);
+
+    awaitReceived(3L);
+  }
+
+  @Test
+  void testWaitingClientResumesAfterRelease() throws Exception {
+    Socket owner = connect();
+    send(owner, "reserveGVS\n");
+    assertEquals("OK", readLine(owner));
+
+    Socket waiting = connect();
+    send(waiting, "reserveGVS\n" + document(2) + ";\n");
+    waiting.setSoTimeout(PAUSE_MS);
+    assertThrows(SocketTimeoutException.class, () -> readLine(waiting));
+
+    send(owner, document(1) + ";\nreleaseGVS\n");
+    waiting.setSoTimeout(TIMEOUT_MS);
+    assertEquals("OK", readLine(waiting));
+    awaitReceived(1L, 2L);
+  }
+
+  @Test
+  void testNextOwnerWaitsForQueuedDocuments() throws Exception {
+    Socket owner = connect();
+    send(owner, "reserveGVS\n");
+    assertEquals("OK", readLine(owner));
+
+    Socket waiting = connect();
+    send(waiting, "reserveGVS\n" + document(2) + ";\n");
+
+    // the document of the owner is still built after its release
+    send(owner, document(SLOW_SESSION) + ";\nreleaseGVS\n");
+    assertEquals("OK", readLine(waiting));
+    awaitReceived(SLOW_SESSION, 2L);
+  }
+
+  private Socket connect() throws Exception {
+    // the server may not listen yet
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    Socket client = null;
+    while (client == null) {
+      try {
+        client = new Socket("localhost", port);
+      } catch (ConnectException e) {
+        if (System.currentTimeMillis() > deadline) {
+          throw e;
+        }
+        Thread.sleep(PAUSE_MS / 10);
+      }
+    }
+    client.setSoTimeout(TIMEOUT_MS);
+    clients.add(client);
+    return client;
+  }
+
+  private void send(Socket client, String text) throws Exception {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    send(client, bytes, 0, bytes.length);
+  }
+
+  private void send(Socket client, byte[] bytes, int offset, int length)
+      throws Exception {
+
+    OutputStream output = client.getOutputStream();
+    output.write(bytes, offset, length);
+    output.flush();
+    Thread.sleep(PAUSE_MS / 10);
+  }
+
+  private String readLine(Socket client) throws IOException {
+    // single bytes, so nothing is buffered beyond the line
+    StringBuilder line = new StringBuilder();
+    int b;
+    while ((b = client.getInputStream().read()) != -1 && b != '\n') {
+      if (b != '\r') {
+        line.append((char) b);
+      }
+    }
+    return line.toString();
+  }
+
+  private void awaitReceived(Long... sessionIds) throws Exception {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (received.size() < sessionIds.length
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(PAUSE_MS / 10);
+    }
+    Thread.sleep(PAUSE_MS);
+    assertEquals(List.of(sessionIds), received);
+  }
+
+  private static void pause() {
+    try {
+      Thread.sleep(PAUSE_MS * 3);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static String document(long sessionId) {
+    String style = "<Linecolor>black</Linecolor><Linestyle>through"
+        + "</Linestyle><Linethickness>standard</Linethickness>";
+    return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<GVS>\n<Graph Id=\""
+        + sessionId + "\"><Label>g</Label></Graph>\n<Vertizes>\n"
+        + "<DefaultVertex Id=\"1\"><Label>a</Label>" + style
+        + "</DefaultVertex>\n<DefaultVertex Id=\"2\"><Label>b</Label>"
+        + style + "</DefaultVertex>\n</Vertizes>\n<Edges>\n"
+        + "<Edge Id=\"0\" IsDirected=\"true\"><Label></Label>" + style
+        + "<FromVertex>1</FromVertex><ToVertex>2</ToVertex></Edge>\n"
+        + "</Edges>\n</GVS>";
+  }
+
+  private static byte[] frame(byte[] message) throws IOException {
+    ByteArrayOutputStream framed = new ByteArrayOutputStream();
+    new DataOutputStream(framed).writeInt(message.length);
+    framed.write(message);
+    return framed.toByteArray();
+  }
+
+  /**
+   * Graph with a single vertex, see {@link BinaryInput} for the format.
+   */
+  private static byte[] binaryGraph(long sessionId) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(BinaryInput.GRAPH);
+    bytes.write((int) sessionId << 1);
+    bytes.write(0); // no name
+    bytes.write(1); // vertices
+    bytes.write(2); // id 1
+    bytes.write(0); // no label
+    bytes.write(1); // new style
+    String[] texts = { "black", "through", "standard" };
+    for (int i = 0; i < texts.length; i++) {
+      String text = texts[i];
+      bytes.write(i + 1); // new string
+      bytes.write(text.length());
+      bytes.write(text.getBytes(StandardCharsets.UTF_8), 0, text.length());
+    }
+    bytes.write(0); // no fill color
+    bytes.write(0); // no flags
+    bytes.write(0); // edges
+    return bytes.toByteArray();
+  }
+}
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.verify;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.inject.Inject;
 
@@ -23,9 +25,13 @@ import gvs.access.Persistor;
 import gvs.mock.PersistorMock;
 import gvs.mock.SessionHolderMock;
 import gvs.mock.SessionMock;
+import gvs.model.Graph;
+import gvs.model.GraphDelta;
+import gvs.model.IVertex;
 import gvs.model.Session;
 import gvs.model.SessionFactory;
 import gvs.model.SessionHolder;
+import gvs.model.graph.GraphVertex;
 
 @RunWith(JukitoRunner.class)
 public class ApplicationControllerTest {
@@ -111,6 +117,20 @@ public class ApplicationControllerTest {
     assertEquals(null, holder.getCurrentSession());
   }
 
+  @Test
+  public void dropsDeltaWithUnknownVertex() {
+    List<IVertex> vertices = new ArrayList<>();
+    vertices.add(new GraphVertex(1, "a", null, 0, 0, null));
+    session.addGraph(new Graph("", vertices, new ArrayList<>()));
+    holder.addSession(session);
+
+    GraphDelta delta = new GraphDelta();
+    delta.addEdge("", null, false, 1, 2);
+    appController.addDeltaToSession(delta, session.getId());
+
+    assertEquals(1, session.getGraphs().size());
+  }
+
   @Test
   public void transferChangingCurrentSessionToSessionHolder() {
     appController.changeCurrentSession(session);
@@ -0,0 +1,92 @@
+package gvs.business.logic.layouter.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import gvs.model.Edge;
+import gvs.model.Graph;
+import gvs.model.IEdge;
+import gvs.model.IVertex;
+import gvs.model.graph.GraphVertex;
+
+class AreaLoaderTest {
+
+  @Test
+  void testIncrementalLayoutMovesOnlyNewNeighbourhood() {
+    Map<Long, IVertex> formerVertices = new HashMap<>();
+    List<IVertex> vertices = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      formerVertices.put((long) i, createVertex(i, 100 + i * 200, 500));
+      vertices.add(createVertex(i, 0, 0));
+    }
+    GraphVertex added = createVertex(10, 0, 0);
+    vertices.add(added);
+
+    Collection<IEdge> edges = new ArrayList<>();
+    for (int i = 0; i < 9; i++) {
+      edges.add(new Edge("", null, false, vertices.get(i),
+          vertices.get(i + 1)));
+    }
+    edges.add(new Edge("", null, false, vertices.get(9), added));
+
+    Area area = new Area(new AreaDimension(3000, 1500));
+    AreaLoader.loadIncremental(area, new Graph("", vertices, edges),
+        formerVertices);
+    area.updateAll();
+    area.publishPositions();
+
+    for (int i = 0; i < 9; i++) {
+      IVertex vertex = vertices.get(i);
+      assertTrue(area.getParticles().isStable(i));
+      assertEquals(100 + i * 200, vertex.getXPosition());
+      assertEquals(500, vertex.getYPosition());
+    }
+    for (int i = 9; i < 11; i++) {
+      ParticleStore particles = area.getParticles();
+      assertTrue(particles.getAccelerationX(i) != 0
+          || particles.getAccelerationY(i) != 0);
+    }
+  }
+
+  @Test
+  void testCoincidentFormerPositionsAreSeparated() {
+    Map<Long, IVertex> formerVertices = new HashMap<>();
+    List<IVertex> vertices = new ArrayList<>();
+    Collection<IEdge> edges = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      formerVertices.put((long) i, createVertex(i, 0, 0));
+      vertices.add(createVertex(i, 0, 0));
+      if (i > 0) {
+        edges.add(new Edge("", null, false, vertices.get(i - 1),
+            vertices.get(i)));
+      }
+    }
+
+    Area area = new Area(new AreaDimension(3000, 1500));
+    AreaLoader.load(area, new Graph("", vertices, edges), formerVertices);
+
+    ParticleStore particles = area.getParticles();
+    Set<String> positions = new HashSet<>();
+    for (int i = 0; i < vertices.size(); i++) {
+      positions.add(particles.getX(i) + "," + particles.getY(i));
+    }
+    assertEquals(vertices.size(), positions.size());
+    area.updateAll();
+    assertFalse(area.isStable());
+  }
+
+  private GraphVertex createVertex(long id, double x, double y) {
+    return new GraphVertex(id, String.valueOf(id), null, x, y, null);
+  }
+}
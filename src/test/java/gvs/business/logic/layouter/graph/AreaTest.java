@@ -0,0 +1,153 @@
+package gvs.business.logic.layouter.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import gvs.model.graph.GraphVertex;
+
+class AreaTest {
+
+  private static final long SEED = 42;
+  private static final double WIDTH = 3000;
+  private static final double HEIGHT = 1500;
+  private static final int MAX_ITERATIONS = 2000;
+
+  @Test
+  void testBarnesHutWithoutApproximationEqualsPairwise() {
+    for (int size : new int[] { 2, 10, 50 }) {
+      ParticleStore exact = updateArea(size, RepulsionMode.EXACT, 0);
+      ParticleStore barnesHut = updateArea(size, RepulsionMode.BARNES_HUT, 0);
+
+      for (int i = 0; i < size; i++) {
+        assertEquals(exact.getAccelerationX(i), barnesHut.getAccelerationX(i),
+            1e-9);
+        assertEquals(exact.getAccelerationY(i), barnesHut.getAccelerationY(i),
+            1e-9);
+      }
+    }
+  }
+
+  @Test
+  void testBarnesHutApproximatesPairwise() {
+    for (int size : new int[] { 10, 50, 200 }) {
+      ParticleStore exact = updateArea(size, RepulsionMode.EXACT, 0);
+      ParticleStore barnesHut = updateArea(size, RepulsionMode.BARNES_HUT,
+          0.5);
+
+      double error = 0;
+      double total = 0;
+      for (int i = 0; i < size; i++) {
+        error += Math.hypot(
+            exact.getAccelerationX(i) - barnesHut.getAccelerationX(i),
+            exact.getAccelerationY(i) - barnesHut.getAccelerationY(i));
+        total += Math.hypot(exact.getAccelerationX(i),
+            exact.getAccelerationY(i));
+      }
+      assertTrue(error / total < 0.05,
+          "Relative error too high for " + size + " particles");
+    }
+  }
+
+  @Test
+  void testGridWithLargeCutoffEqualsPairwise() {
+    int size = 100;
+    ParticleStore exact = updateArea(size, RepulsionMode.EXACT, 0);
+    ParticleStore grid = updateArea(size, RepulsionMode.GRID, 0);
+
+    for (int i = 0; i < size; i++) {
+      assertEquals(exact.getAccelerationX(i), grid.getAccelerationX(i), 1e-9);
+      assertEquals(exact.getAccelerationY(i), grid.getAccelerationY(i), 1e-9);
+    }
+  }
+
+  @Test
+  void testParallelForcesAreReproducible() {
+    int size = 1000;
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      ParticleStore sequential = updateArea(size, RepulsionMode.BARNES_HUT,
+          0.5, null);
+      ParticleStore first = updateArea(size, RepulsionMode.BARNES_HUT, 0.5,
+          pool);
+      ParticleStore second = updateArea(size, RepulsionMode.BARNES_HUT, 0.5,
+          pool);
+
+      for (int i = 0; i < size; i++) {
+        assertEquals(first.getX(i), second.getX(i));
+        assertEquals(first.getY(i), second.getY(i));
+        assertEquals(sequential.getX(i), first.getX(i), 1e-6);
+        assertEquals(sequential.getY(i), first.getY(i), 1e-6);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void testStepCoolsDownWhileEnergyOscillates() {
+    Area area = createArea(200, RepulsionMode.BARNES_HUT, 0.8, null);
+    double formerEnergy = Double.MAX_VALUE;
+    double formerStep = area.getStep();
+    int rises = 0;
+    while (!area.isStable() && area.getIterations() < MAX_ITERATIONS) {
+      area.updateAll();
+      if (area.getEnergy() >= formerEnergy) {
+        rises++;
+        assertTrue(area.getStep() < formerStep);
+      } else {
+        assertTrue(area.getStep() >= formerStep);
+      }
+      formerEnergy = area.getEnergy();
+      formerStep = area.getStep();
+    }
+    // the energy rose in between, yet the layout converged
+    assertTrue(rises > 0);
+    assertTrue(area.isConverged());
+    assertTrue(area.getIterations() < MAX_ITERATIONS);
+  }
+
+  private ParticleStore updateArea(int size, RepulsionMode mode,
+      double theta) {
+    return updateArea(size, mode, theta, null);
+  }
+
+  /**
+   * Build an area with randomly placed particles, connected as a ring, and
+   * execute one iteration.
+   */
+  private ParticleStore updateArea(int size, RepulsionMode mode, double theta,
+      ForkJoinPool pool) {
+    Area area = createArea(size, mode, theta, pool);
+    area.updateAll();
+    return area.getParticles();
+  }
+
+  /**
+   * Build an area with randomly placed particles, connected as a ring.
+   */
+  private Area createArea(int size, RepulsionMode mode, double theta,
+      ForkJoinPool pool) {
+    Random random = new Random(SEED);
+    Area area = new Area(new AreaDimension(WIDTH, HEIGHT));
+    area.setRepulsionMode(mode);
+    area.setTheta(theta);
+    area.setCutoff(Math.hypot(WIDTH, HEIGHT));
+    area.setForkJoinPool(pool);
+
+    for (int i = 0; i < size; i++) {
+      GraphVertex vertex = new GraphVertex(i, String.valueOf(i), null, 0, 0,
+          null);
+      area.addParticle(vertex, random.nextDouble() * WIDTH,
+          random.nextDouble() * HEIGHT, 50);
+    }
+    for (int i = 0; i < size; i++) {
+      area.addTraction(new Traction(i, (i + 1) % size, 50, 150));
+    }
+    return area;
+  }
+}
@@ -0,0 +1,111 @@
+package gvs.business.logic.layouter.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import gvs.model.Edge;
+import gvs.model.Graph;
+import gvs.model.IEdge;
+import gvs.model.IVertex;
+import gvs.model.graph.GraphVertex;
+
+class LayoutCacheTest {
+
+  private Path directory;
+
+  @AfterEach
+  void deleteDirectory() throws IOException {
+    if (directory != null) {
+      // files before their directories
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  @Test
+  void testRestoresLayoutOfStructurallyEqualGraph() {
+    LayoutCache cache = new LayoutCache(1, null);
+    cache.store(createRing(5, 100));
+
+    Graph graph = createRing(5, 0);
+    assertTrue(cache.restore(graph));
+    for (IVertex vertex : graph.getVertices()) {
+      assertEquals(100 + vertex.getId(), vertex.getXPosition());
+    }
+
+    // the least recently used layout is dropped
+    cache.store(createRing(6, 100));
+    assertFalse(cache.restore(createRing(5, 0)));
+  }
+
+  @Test
+  void testRestoresStoredLayoutAfterRestart() throws Exception {
+    directory = Files.createTempDirectory("layouts");
+    LayoutCache former = new LayoutCache(1, directory);
+    former.store(createRing(5, 100));
+    former.awaitWrites();
+
+    Graph graph = createRing(5, 0);
+    assertTrue(new LayoutCache(1, directory).restore(graph));
+    for (IVertex vertex : graph.getVertices()) {
+      assertEquals(100 + vertex.getId(), vertex.getXPosition());
+    }
+  }
+
+  @Test
+  void testDeletesLeastRecentlyUsedFiles() throws Exception {
+    directory = Files.createTempDirectory("layouts");
+    LayoutCache cache = new LayoutCache(1, directory);
+    cache.store(createRing(5, 100));
+    cache.awaitWrites();
+    try (Stream<Path> files = Files.list(directory)) {
+      // older than the next file, however coarse the file times are
+      Files.setLastModifiedTime(files.findFirst().get(),
+          FileTime.fromMillis(0));
+    }
+
+    cache.store(createRing(6, 100));
+    cache.awaitWrites();
+
+    LayoutCache restarted = new LayoutCache(1, directory);
+    assertFalse(restarted.restore(createRing(5, 0)));
+    assertTrue(restarted.restore(createRing(6, 0)));
+  }
+
+  /**
+   * Ring with vertices at x = offset + id. The edges are added in reverse
+   * order to each second graph, which must not change its hash.
+   */
+  private Graph createRing(int size, double offset) {
+    List<IVertex> vertices = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      vertices.add(new GraphVertex(i, String.valueOf(i), null, offset + i, 0,
+          null));
+    }
+    Collection<IEdge> edges = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      int from = offset == 0 ? size - 1 - i : i;
+      edges.add(new Edge("", null, false, vertices.get(from),
+          vertices.get((from + 1) % size)));
+    }
+    return new Graph("", vertices, edges);
+  }
+}
@@ -0,0 +1,43 @@
+package gvs.business.logic.layouter.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import gvs.model.Graph;
+import gvs.model.IVertex;
+import gvs.model.graph.GraphVertex;
+import gvs.util.Configuration;
+
+class LayoutSchedulerTest {
+
+  @Test
+  void testJobsOfLayoutedGraphCompleteWithoutTicking() {
+    List<AreaTicker> tickers = new ArrayList<>();
+    LayoutScheduler scheduler = new LayoutScheduler((tickable, rate) -> {
+      AreaTicker ticker = new AreaTicker(tickable, rate);
+      tickers.add(ticker);
+      return ticker;
+    }, new Configuration());
+
+    List<IVertex> vertices = new ArrayList<>();
+    vertices.add(new GraphVertex(1, "1", null, 0, 0, null));
+    Graph graph = new Graph("", vertices, new ArrayList<>());
+    graph.setLayouted(true);
+
+    AtomicInteger completed = new AtomicInteger();
+    for (int i = 0; i < 5; i++) {
+      scheduler.submit(new LayoutJob(graph,
+          new Area(new AreaDimension(1000, 1000)), IterationMode.HEADLESS, 0,
+          completed::incrementAndGet));
+    }
+
+    assertEquals(5, completed.get());
+    tickers.forEach(ticker -> assertEquals(Thread.State.NEW,
+        ticker.getState()));
+  }
+}
@@ -0,0 +1,55 @@
+package gvs.business.logic.layouter.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import gvs.model.Graph;
+import gvs.model.IVertex;
+import gvs.model.graph.GraphVertex;
+import gvs.util.Configuration;
+
+class MultilevelLayouterTest {
+
+  @Test
+  void testQueuedLayoutsOfLayoutedGraphAreSkipped() throws Exception {
+    CountDownLatch firstLayout = new CountDownLatch(1);
+    AtomicInteger computed = new AtomicInteger();
+    MultilevelLayouter layouter = new MultilevelLayouter(
+        new Configuration()) {
+      @Override
+      void computeLayout(Graph graph) {
+        computed.incrementAndGet();
+        try {
+          // the other layouts are queued meanwhile
+          firstLayout.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    List<IVertex> vertices = new ArrayList<>();
+    vertices.add(new GraphVertex(1, "1", null, 0, 0, null));
+    Graph graph = new Graph("", vertices, new ArrayList<>());
+
+    CountDownLatch completed = new CountDownLatch(5);
+    for (int i = 0; i < 5; i++) {
+      layouter.layout(graph, () -> {
+        graph.setLayouted(true);
+        completed.countDown();
+      });
+    }
+    firstLayout.countDown();
+
+    assertTrue(completed.await(5, TimeUnit.SECONDS));
+    assertEquals(1, computed.get());
+  }
+}
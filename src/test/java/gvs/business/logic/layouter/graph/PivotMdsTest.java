@@ -0,0 +1,39 @@
+package gvs.business.logic.layouter.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class PivotMdsTest {
+
+  private static final double EDGE_LENGTH = 150;
+
+  @Test
+  void testPathIsPlacedOnALine() {
+    int size = 10;
+    int[][] adjacency = new int[size][];
+    for (int i = 0; i < size; i++) {
+      if (i == 0) {
+        adjacency[i] = new int[] { 1 };
+      } else if (i == size - 1) {
+        adjacency[i] = new int[] { i - 1 };
+      } else {
+        adjacency[i] = new int[] { i - 1, i + 1 };
+      }
+    }
+
+    double[][] positions = PivotMds.computePositions(adjacency, EDGE_LENGTH);
+
+    for (int i = 0; i < size - 1; i++) {
+      assertEquals(EDGE_LENGTH, distance(positions, i, i + 1),
+          0.1 * EDGE_LENGTH);
+    }
+    assertEquals((size - 1) * EDGE_LENGTH, distance(positions, 0, size - 1),
+        0.1 * (size - 1) * EDGE_LENGTH);
+  }
+
+  private double distance(double[][] positions, int a, int b) {
+    return Math.hypot(positions[0][a] - positions[0][b],
+        positions[1][a] - positions[1][b]);
+  }
+}
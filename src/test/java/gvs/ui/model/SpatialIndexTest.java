@@ -0,0 +1,33 @@
+package gvs.ui.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+class SpatialIndexTest {
+
+  @Test
+  void testQueryFindsOverlappingBoxes() {
+    // a row of 100 unit boxes at x = 0, 10, 20, ... and one long box
+    int size = 101;
+    double[] minX = new double[size];
+    double[] minY = new double[size];
+    double[] maxX = new double[size];
+    double[] maxY = new double[size];
+    for (int i = 0; i < size - 1; i++) {
+      minX[i] = 10 * i;
+      maxX[i] = 10 * i + 1;
+      maxY[i] = 1;
+    }
+    maxX[size - 1] = 1000;
+    minY[size - 1] = 500;
+    maxY[size - 1] = 501;
+
+    SpatialIndex index = new SpatialIndex();
+    index.build(size, minX, minY, maxX, maxY);
+
+    assertArrayEquals(new int[] { 2, 3 }, index.query(15, 0, 30, 10));
+    assertArrayEquals(new int[] { 50, 100 }, index.query(500, 0, 505, 500));
+    assertArrayEquals(new int[0], index.query(2, 2, 8, 8));
+  }
+}